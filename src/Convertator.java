@@ -34,11 +34,33 @@ public class Convertator
 /**
  * The main method initializes the Convertator and places the window.
  * 
- * @param args	The arguments supplied when the application is started.  Currently
- *				there are no arguments supported.
+ * @param args	The arguments supplied when the application is started.  With no
+ *				arguments the window is opened.  Otherwise the first argument selects
+ *				a command line tool:
+ *				<br>-csv	Convert columns of a CSV or TSV file (see CvtrColumns).
+ *				<br>-serve	Run the HTTP server (see CvtrServer).
+ *				<br>-batch	Calculate a file of equations (see CvtrBatch).
+ *				<br>-bench	Measure the calculating engine (see CvtrBench).
  */
 	public static void main(String[] args)
 	{
+		if (args.length > 0) {
+			if (args[0].equals("-csv")) {
+				System.exit(CvtrColumns.runColumns(args));
+			} else if (args[0].equals("-serve")) {
+				// The server keeps running after a successful start
+				if (CvtrServer.runServer(args) != 0)
+					System.exit(1);
+				return;
+			} else if (args[0].equals("-batch")) {
+				System.exit(CvtrBatch.runBatch(args));
+			} else if (args[0].equals("-bench")) {
+				System.exit(CvtrBench.runBench(args));
+			}
+			System.err.println("Unknown option " + args[0]);
+			System.exit(1);
+		}
+
 		CvtrWindow cvtrWindow = new CvtrWindow();
 		cvtrWindow.setLocation(300, 200);
 		cvtrWindow.start();
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * The Convertator Batch class calculates a file of equations without the window.
+ * Each line of the input is one equation, and blank lines and lines starting with
+ * '#' are skipped.  Each line of the output is the equation, a tab, and either the
+ * result or "ERROR: " followed by the error message.  With the table option, each
+ * result is followed by a line for each numeric base and each unit of its categories,
+ * which is a tab, the base or unit, a tab, and the result in that base or unit.
+ * <p/>
+ * Results are saved in the disk cache in the Convertator home directory, so when the
+ * same equations are calculated again, even by a later run, they are read instead of
+ * calculated.
+ */
+public class CvtrBatch
+{
+	static final boolean verbose = false;
+	final private static String cacheFile = "results.cvc";
+
+	public String errorMessage = null;
+
+	private CvtrEngine cvtrEngine;
+	private CvtrDiskCache diskCache = null;
+	private boolean showTable = false;
+
+/**
+ * The Convertator Batch constructor.
+ *
+ * @param ce	The engine used for the calculations.
+ */
+	public CvtrBatch(CvtrEngine ce) {
+		cvtrEngine = ce;
+	}
+
+/**
+ * Run a batch from the command line arguments:
+ * <br>-batch input [output] [-precision n] [-fixed scale[,rounding]] [-separator c] [-nocache] [-table]
+ * <br>If there is no output file, the results are written to standard output.  With
+ * -fixed, decimal numbers are calculated as fixed point, such as "-fixed 4,HALF_UP", and
+ * with "-separator ," the decimal separator of equations and results is a comma.
+ *
+ * @param args	The command line arguments, starting with -batch.
+ *
+ * @return int	The exit status, which is 0 if successful.
+ */
+	public static int runBatch(String[] args) {
+		int idx;
+		boolean useCache = true, table = false;
+		String input = null, output = null;
+		CvtrEngine ce;
+		CvtrBatch cb;
+		CvtrFixed fp;
+
+		try {
+			ce = new CvtrEngine();
+		} catch (Exception err) {
+			System.err.println("Failed to create Convertator calulating engine:\n  " + err.getMessage());
+			return 1;
+		}
+		for (idx=1; idx < args.length; idx++) {
+			if (args[idx].equals("-nocache")) {
+				useCache = false;
+			} else if (args[idx].equals("-table")) {
+				table = true;
+			} else if (args[idx].equals("-precision") && (idx + 1) < args.length) {
+				ce.setPrecision(args[++idx]);
+			} else if (args[idx].equals("-fixed") && (idx + 1) < args.length) {
+				if ((fp = CvtrFixed.valueOf(args[++idx])) == null) {
+					input = null;
+					break;
+				}
+				ce.setFixedPoint(fp);
+			} else if (args[idx].equals("-separator") && (idx + 1) < args.length) {
+				if (args[++idx].length() != 1) {
+					input = null;
+					break;
+				}
+				ce.setDecimalSeparator(args[idx].charAt(0));
+			} else if (input == null) {
+				input = args[idx];
+			} else if (output == null) {
+				output = args[idx];
+			} else {
+				input = null;
+				break;
+			}
+		}
+		if (input == null) {
+			System.err.println("Usage: -batch input [output] [-precision n] [-fixed scale[,rounding]] [-separator c] [-nocache] [-table]");
+			return 1;
+		}
+
+		cb = new CvtrBatch(ce);
+		cb.setTable(table);
+		if (useCache && !cb.openCache()) {
+			// The equations are still calculated without the cache
+			System.err.println(cb.errorMessage);
+		}
+		try {
+			if (!cb.calculateFile(input, output)) {
+				System.err.println(cb.errorMessage);
+				return 1;
+			}
+		} finally {
+			cb.closeCache();
+		}
+
+		return 0;
+	} /* end runBatch */
+
+/**
+ * Set whether each result is followed by its table of bases and units.  The tables
+ * are calculated, so the cache is not used for them.
+ *
+ * @param table	If true, the table of each result is written.
+ */
+	public void setTable(boolean table) {
+		showTable = table;
+	}
+
+/**
+ * Open the disk cache in the Convertator home directory.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	public boolean openCache() {
+		try {
+			diskCache = new CvtrDiskCache(new CvtrFile().homeDir + cacheFile, cvtrEngine.getCatalog().fingerprint);
+		} catch (Exception err) {
+			errorMessage = err.getMessage();
+			return false;
+		}
+		cvtrEngine.setDiskCache(diskCache);
+
+		return true;
+	}
+
+/**
+ * Close the disk cache.
+ */
+	public void closeCache() {
+		if (diskCache != null) {
+			cvtrEngine.setDiskCache(null);
+			diskCache.close();
+			diskCache = null;
+		}
+	}
+
+/**
+ * Calculate each equation in a file.
+ *
+ * @param input	The file of equations.
+ * @param output	The file where the results are saved, or null for standard output.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	public boolean calculateFile(String input, String output) {
+		String line, equation, result;
+		BufferedReader reader;
+		Writer writer;
+
+		errorMessage = null;
+		try {
+			reader = Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+		} catch (IOException err) {
+			errorMessage = "Error opening file " + input + ":\n  " + err.getMessage();
+			return false;
+		}
+		try {
+			writer = (output == null) ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) :
+				Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8);
+		} catch (IOException err) {
+			errorMessage = "Error opening file " + output + ":\n  " + err.getMessage();
+			try {
+				reader.close();
+			} catch (IOException e) {
+				;	// Ignore errors
+			}
+			return false;
+		}
+
+		try {
+			while ((line = reader.readLine()) != null) {
+				equation = line.trim();
+				if (equation.length() == 0 || equation.startsWith("#"))
+					continue;
+				if (showTable) {
+					result = (cvtrEngine.calculate(equation, 0) < 0) ? null : cvtrEngine.getResult(null);
+				} else {
+					result = cvtrEngine.evaluate(equation, null);
+				}
+				if (result != null)
+					writer.write(equation + "\t" + result + "\n");
+				else
+					writer.write(equation + "\tERROR: " + cvtrEngine.getCalcError().replace('\n', ' ') + "\n");
+				if (showTable && result != null) {
+					for (String[] row : cvtrEngine.getResultTable())
+						writer.write("\t" + row[0] + "\t" + row[1] + "\n");
+				}
+			}
+		} catch (IOException err) {
+			errorMessage = "Error calculating file " + input + ":\n  " + err.getMessage();
+			return false;
+		} finally {
+			try {
+				reader.close();
+				if (output == null)
+					writer.flush();
+				else
+					writer.close();
+			} catch (IOException err) {
+				if (errorMessage == null)
+					errorMessage = "Error writing file " + output + ":\n  " + err.getMessage();
+			}
+		}
+
+		return errorMessage == null;
+	} /* end calculateFile */
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * The Convertator Bench class measures the time and the memory allocated by the
+ * calculating engine for each equation in a list.  Each equation is calculated and
+ * its result formatted, without the result cache, first to warm up the engine and
+ * then for the measured iterations.  The memory is the bytes allocated by the thread,
+ * which is only available on JVMs that support it.  The engine reuses its operands and
+ * scratch arrays, but the strings of each result are still allocated, so the memory
+ * of a calculation is not 0.
+ * <p/>
+ * The equations are read from a file in the format of the batch input, or a built in
+ * list is used.
+ */
+public class CvtrBench
+{
+	static final boolean verbose = false;
+	final private static String[] defaultEquations = {
+		"1 + 2 - 3 + 4",
+		"3ft + 2in",
+		"60 mi/hr",
+		"3ft / 2sec",
+		"(1ft + 2sec) * (3ft - 4sec)",
+		"(1ft / 2sec) / (3ft)",
+		"(1ft + 2sec)^5",
+		"x1f & xff0",
+		"S(g30) + O(g60)"
+	};
+
+	public String errorMessage = null;
+
+	private CvtrEngine cvtrEngine;
+	private int warmup = 2000;
+	private int iterations = 10000;
+
+/**
+ * The Convertator Bench constructor.
+ *
+ * @param ce	The engine to be measured.
+ */
+	public CvtrBench(CvtrEngine ce) {
+		cvtrEngine = ce;
+	}
+
+/**
+ * Run a benchmark from the command line arguments:
+ * <br>-bench [input] [-iterations n] [-fixed scale[,rounding]]
+ * <br>The results are written to standard output.
+ *
+ * @param args	The command line arguments, starting with -bench.
+ *
+ * @return int	The exit status, which is 0 if successful.
+ */
+	public static int runBench(String[] args) {
+		int idx;
+		String input = null;
+		String[] equations = defaultEquations;
+		CvtrEngine ce;
+		CvtrBench cb;
+		CvtrFixed fp;
+
+		try {
+			ce = new CvtrEngine();
+		} catch (Exception err) {
+			System.err.println("Failed to create Convertator calulating engine:\n  " + err.getMessage());
+			return 1;
+		}
+		cb = new CvtrBench(ce);
+		for (idx=1; idx < args.length; idx++) {
+			if (args[idx].equals("-iterations") && (idx + 1) < args.length) {
+				try {
+					cb.setIterations(Integer.parseInt(args[++idx]));
+				} catch (NumberFormatException err) {
+					System.err.println("Usage: -bench [input] [-iterations n] [-fixed scale[,rounding]]");
+					return 1;
+				}
+			} else if (args[idx].equals("-fixed") && (idx + 1) < args.length) {
+				if ((fp = CvtrFixed.valueOf(args[++idx])) == null) {
+					System.err.println("Usage: -bench [input] [-iterations n] [-fixed scale[,rounding]]");
+					return 1;
+				}
+				ce.setFixedPoint(fp);
+			} else if (input == null && !args[idx].startsWith("-")) {
+				input = args[idx];
+			} else {
+				System.err.println("Usage: -bench [input] [-iterations n] [-fixed scale[,rounding]]");
+				return 1;
+			}
+		}
+		if (input != null && (equations = readEquations(input)) == null)
+			return 1;
+
+		System.out.print(cb.measure(equations));
+
+		return 0;
+	} /* end runBench */
+
+/**
+ * Set the number of measured iterations.  The engine is warmed up with a fifth as
+ * many iterations first.
+ *
+ * @param n	The number of iterations, which must be at least 1.
+ */
+	public void setIterations(int n) {
+		iterations = (n < 1) ? 1 : n;
+		warmup = iterations / 5;
+	}
+
+/**
+ * Read the equations from a file.  Blank lines and lines starting with '#' are skipped.
+ *
+ * @param input	The file of equations.
+ *
+ * @return String[]	The equations, or null if the file cannot be read.
+ */
+	private static String[] readEquations(String input) {
+		String equation;
+		ArrayList <String> list = new ArrayList<String>();
+
+		try {
+			for (String line : Files.readAllLines(Paths.get(input), StandardCharsets.UTF_8)) {
+				equation = line.trim();
+				if (equation.length() > 0 && !equation.startsWith("#"))
+					list.add(equation);
+			}
+		} catch (IOException err) {
+			System.err.println("Error opening file " + input + ":\n  " + err.getMessage());
+			return null;
+		}
+
+		return list.toArray(new String[list.size()]);
+	}
+
+/**
+ * Measure each equation and the total of all of them.  Each line of the report is the
+ * nanoseconds and bytes allocated for each calculation, a tab, and the equation.
+ *
+ * @param equations	The equations.
+ *
+ * @return String	The report.
+ */
+	public String measure(String[] equations) {
+		int i;
+		long time, bytes, totalTime = 0, totalBytes = 0;
+		boolean memory;
+		String report = String.format("%12s %12s\t%s\n", "ns/calc", "bytes/calc", "equation");
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean sunBean = null;
+
+		// The allocated memory is only measured by JVMs that support it
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (!sunBean.isThreadAllocatedMemorySupported())
+				sunBean = null;
+			else if (!sunBean.isThreadAllocatedMemoryEnabled())
+				sunBean.setThreadAllocatedMemoryEnabled(true);
+		}
+		memory = (sunBean != null);
+
+		for (String equation : equations) {
+			for (i=0; i < warmup; i++)
+				calculate(equation);
+			bytes = memory ? sunBean.getCurrentThreadAllocatedBytes() : 0;
+			time = System.nanoTime();
+			for (i=0; i < iterations; i++)
+				calculate(equation);
+			time = System.nanoTime() - time;
+			bytes = memory ? sunBean.getCurrentThreadAllocatedBytes() - bytes : 0;
+			totalTime += time;
+			totalBytes += bytes;
+if (verbose)
+System.out.println("Bench: " + equation + " = " + calculate(equation));
+			report += String.format("%12d %12s\t%s\n", time / iterations, memory ? "" + (bytes / iterations) : "n/a", equation);
+		}
+		if (equations.length > 0) {
+			report += String.format("%12d %12s\t%s\n", totalTime / ((long) iterations * equations.length),
+				memory ? "" + (totalBytes / ((long) iterations * equations.length)) : "n/a", "(average)");
+		}
+
+		return report;
+	} /* end measure */
+
+/**
+ * Calculate an equation and format its result, without the result cache.
+ *
+ * @param equation	The equation.
+ *
+ * @return String	The result or the error message.
+ */
+	private String calculate(String equation) {
+		if (cvtrEngine.calculate(equation, 0) < 0)
+			return cvtrEngine.getCalcError();
+
+		return cvtrEngine.getResult(null);
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+/**
+ * The Convertator Budget is the limits of each calculation of an engine, so that an
+ * equation that expands into too many operands, or takes too long, is stopped with the
+ * error CvtrError.limit instead of using a worker without end.  The engine tests the
+ * limits while it parses the equation and in each of its reduction loops.
+ * <p/>
+ * A budget is never changed after it is created, so it may be shared by any number of
+ * engines.  A limit of 0 is no limit.
+ */
+public class CvtrBudget
+{
+/** A budget with no limits, which is the budget of a new engine. */
+	public static final CvtrBudget unlimited = new CvtrBudget(0, 0, 0, 0);
+
+/** The maximum number of operators, parentheses and operands in an equation. */
+	public final int maxTokens;
+/** The maximum number of operands created by one calculation, including the operands
+ *  of intermediate groups. */
+	public final int maxOperands;
+/** The maximum number of terms in a group expanded by multiplication or a power. */
+	public final int maxTerms;
+/** The maximum time of one calculation, in milliseconds. */
+	public final long timeLimit;
+
+/**
+ * The Convertator Budget constructor.
+ *
+ * @param tokens	The maximum number of tokens in an equation, or 0 for no limit.
+ * @param operands	The maximum number of operands of a calculation, or 0 for no limit.
+ * @param terms	The maximum number of terms of an expanded group, or 0 for no limit.
+ * @param millis	The maximum time of a calculation in milliseconds, or 0 for no limit.
+ */
+	public CvtrBudget(int tokens, int operands, int terms, long millis) {
+		maxTokens = Math.max(0, tokens);
+		maxOperands = Math.max(0, operands);
+		maxTerms = Math.max(0, terms);
+		timeLimit = Math.max(0, millis);
+	}
+
+/**
+ * Get the limits as a string, for debugging.
+ *
+ * @return String	The limits.
+ */
+	public String toString() {
+		return "tokens=" + maxTokens + " operands=" + maxOperands + " terms=" + maxTerms + " time=" + timeLimit + "ms";
+	}
+
+}
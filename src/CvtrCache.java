@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The Convertator Cache saves the results of calculations so that the same equation
+ * is not calculated again.  It may be shared by any number of engines.  The cache is
+ * divided into segments, each with its own lock, and each segment removes its least
+ * recently used result when it is full.  Results also expire after a fixed time.
+ * <p/>
+ * When several threads request the same result at the same time, only one calculates
+ * it and the others wait for its result.  The key of each result includes the
+ * fingerprint of the catalog that was used to calculate it, so results from other
+ * catalogs are not used, and are removed as they become the least recently used.
+ */
+public class CvtrCache
+{
+	static final boolean verbose = false;
+	// The most segments, which is less for a small cache
+	final private static int maxSegments = 16;
+
+/**
+ * The Cache Entry is a saved result, which is either the formatted result or the error.
+ */
+	public static class Entry
+	{
+	/** The formatted result, or null if there was an error. */
+		public final String result;
+	/** The calculation error, if result is null, which is never changed. */
+		public final CvtrError error;
+		private final long expires;
+		// The entry is only given to the requests waiting for it, and is not saved
+		private final boolean saved;
+
+		private Entry(String res, CvtrError err, long expireTime, boolean save) {
+			result = res;
+			error = err;
+			expires = expireTime;
+			saved = save;
+		}
+	}
+
+/**
+ * The Cache Segment is a part of the cache with its own lock, which removes its least
+ * recently used result when it is full.
+ */
+	private static class Segment extends LinkedHashMap<String, Entry>
+	{
+		static final long serialVersionUID = 0;
+		private final int maxSize;
+
+		private Segment(int size) {
+			super(16, 0.75f, true);
+			maxSize = size;
+		}
+
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > maxSize;
+		}
+	}
+
+	private final Segment[] segments;
+	private final ConcurrentHashMap<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Entry>>();
+	private final long timeToLive;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+
+/**
+ * The Convertator Cache constructor.
+ *
+ * @param maxEntries	The maximum number of results saved.
+ * @param ttlMillis	The time in milliseconds that a result is used, or 0 for no limit.
+ */
+	public CvtrCache(int maxEntries, long ttlMillis) {
+		int i;
+
+		// Each segment holds at least one result, so the segments never hold more than maxEntries
+		maxEntries = Math.max(1, maxEntries);
+		segments = new Segment[Math.min(maxSegments, maxEntries)];
+		for (i=0; i < segments.length; i++)
+			segments[i] = new Segment(maxEntries / segments.length);
+		// Results that do not expire use a time that does not overflow
+		timeToLive = (ttlMillis > 0) ? ttlMillis * 1000000 : Long.MAX_VALUE >> 1;
+	}
+
+/**
+ * Get a result from the cache, or calculate and save it.
+ *
+ * @param key	The normalized equation and format options.
+ * @param cc	The catalog used for the calculation.
+ * @param calculate	Calculates the result if it is not saved.
+ *
+ * @return Entry	The result or the error.
+ */
+	public Entry get(String key, CvtrCatalog cc, Supplier<Entry> calculate) {
+		long now = System.nanoTime();
+		Entry entry;
+		CompletableFuture<Entry> future, running;
+		Segment segment;
+
+		// Results of other catalogs have other keys
+		key = Long.toHexString(cc.fingerprint) + "\n" + key;
+		segment = segments[(key.hashCode() & 0x7fffffff) % segments.length];
+		synchronized (segment) {
+			entry = segment.get(key);
+			if (entry != null && now - entry.expires > 0) {
+				segment.remove(key);
+				entry = null;
+			}
+		}
+		if (entry != null) {
+			hits.incrementAndGet();
+			return entry;
+		}
+
+		// Only one thread calculates a result, and the others wait for it
+		future = new CompletableFuture<Entry>();
+		if ((running = inFlight.putIfAbsent(key, future)) != null) {
+			hits.incrementAndGet();
+			return running.join();
+		}
+		misses.incrementAndGet();
+		try {
+			entry = calculate.get();
+			if (entry.saved) {
+				synchronized (segment) {
+					segment.put(key, entry);
+				}
+			}
+			future.complete(entry);
+		} catch (Throwable err) {
+			future.completeExceptionally(err);
+			throw err;
+		} finally {
+			inFlight.remove(key, future);
+		}
+
+		return entry;
+	} /* end get */
+
+/**
+ * Create an entry for a result.
+ *
+ * @param result	The formatted result, or null if there was an error.
+ * @param error	The calculation error, if result is null.
+ *
+ * @return Entry	The entry.
+ */
+	public Entry newEntry(String result, CvtrError error) {
+		return newEntry(result, error, true);
+	}
+
+/**
+ * Create an entry for a result, which may not be saved, such as the error of a
+ * calculation that was stopped before it was finished.
+ *
+ * @param result	The formatted result, or null if there was an error.
+ * @param error	The calculation error, if result is null.
+ * @param save	If true, the entry is saved, otherwise it is only given to the
+ * 				requests for it that are waiting.
+ *
+ * @return Entry	The entry.
+ */
+	public Entry newEntry(String result, CvtrError error, boolean save) {
+		CvtrError copy = null;
+
+		// The error of the engine is set again by its next calculation
+		if (result == null) {
+			copy = new CvtrError();
+			copy.set(error);
+		}
+
+		return new Entry(result, copy, System.nanoTime() + timeToLive, save);
+	}
+
+/**
+ * Remove all results.
+ */
+	public void clear() {
+		int i;
+
+		for (i=0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				segments[i].clear();
+			}
+		}
+	}
+
+/**
+ * Get the number of results in the cache.
+ *
+ * @return int	The number of results.
+ */
+	public int size() {
+		int i, size = 0;
+
+		for (i=0; i < segments.length; i++) {
+			synchronized (segments[i]) {
+				size += segments[i].size();
+			}
+		}
+
+		return size;
+	}
+
+/**
+ * Get the number of requests answered from the cache, including requests that waited
+ * for another thread to calculate the same result.
+ *
+ * @return long	The number of hits.
+ */
+	public long getHits() {
+		return hits.get();
+	}
+
+/**
+ * Get the number of requests that were calculated.
+ *
+ * @return long	The number of misses.
+ */
+	public long getMisses() {
+		return misses.get();
+	}
+
+}
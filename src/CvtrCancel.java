@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+/**
+ * The Convertator Cancel stops the calculations of one request, such as a request to
+ * the server, from another thread.  A request creates its own Cancel and gives it to
+ * the engine before it calculates, so a cancel that arrives before the calculation
+ * starts still stops it, and a cancel never stops the calculation of another request
+ * that uses the same engine later.
+ * <p/>
+ * Once it is cancelled, it stays cancelled.
+ */
+public class CvtrCancel
+{
+	private volatile boolean cancelled = false;
+
+/**
+ * The Convertator Cancel constructor creates a Cancel that is not cancelled.
+ */
+	public CvtrCancel() {
+
+	}
+
+/**
+ * Stop the calculations that use this Cancel, which may be called from any thread.
+ * Each calculation ends with the error CvtrError.cancelled the next time it tests its
+ * budget.
+ */
+	public void cancel() {
+		cancelled = true;
+	}
+
+/**
+ * Test whether the calculations that use this Cancel must stop.
+ *
+ * @return boolean	True if it was cancelled.
+ */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Convertator Catalog is a snapshot of all of the Units, Constants and Equations
+ * read from the Convertator data files (*.cvd).  A catalog is never changed after it
+ * is created.  When data files change, a new catalog is created with reload, which
+ * only reads the files that changed, and the engine is given the new catalog.  A
+ * calculation uses the catalog that was current when it started.
+ */
+public class CvtrCatalog
+{
+	static final boolean verbose = false;
+	// The largest unit power, and the largest category, with precalculated conversion ratios
+	final private static int maxRatioPower = 3;
+	final private static int maxRatioUnits = 256;
+
+/** The complete list of Units which can have a binary search performed on the abbreviation. */
+	public final CvtrUnit[] cUnits;
+/** The list of Unit names, in order of category. */
+	public final List <String[]> UnitNames;
+/** The list of Unit conversion values, in order of category. */
+	public final List <String[]> UnitValues;
+/** The list of Unit categories. */
+	public final List <String> UnitCategories;
+/** The list of Unit files, in order of category. */
+	public final List <String> UnitFiles;
+/** The list of Constant names, in order of category. */
+	public final List <String[]> ConstantNames;
+/** The list of Constant values, in order of category. */
+	public final List <String[]> ConstantValues;
+/** The list of Constant categories. */
+	public final List <String> ConstantCategories;
+/** The list of Constant files, in order of category. */
+	public final List <String> ConstantFiles;
+/** The list of Equation names, in order of category. */
+	public final List <String[]> EquationNames;
+/** The list of Equation values, in order of category. */
+	public final List <String[]> EquationValues;
+/** The list of Equation categories. */
+	public final List <String> EquationCategories;
+/** The list of Equation files, in order of category. */
+	public final List <String> EquationFiles;
+/** Warnings found when the files were read, or null. */
+	public final String warning;
+/** A hash of all of the names and values, which identifies catalogs with the same data. */
+	public final long fingerprint;
+
+	// The valid Units of each category, in the order of the category
+	private final List <List<CvtrUnit>> categoryUnits;
+	// The conversion ratio of each pair of units in a category for each power:
+	// [category][power - 1][from * units + to], or null for large categories
+	private final double[][][] unitRatios;
+	// The data read from each file, in the order the files are loaded
+	private final Map <String, CvtrData> dataFiles;
+	private final String keyCodes;
+
+/**
+ * The Convertator Catalog constructor creates the lists from the data files.
+ *
+ * @param files	The data read from each file, in the order the files are loaded.
+ * @param keycodes	The list of key letters and symbols that may not be used as unit abbreviations.
+ * @param warnings	Warnings found when the files were read, or null.
+ */
+	private CvtrCatalog(Map<String, CvtrData> files, String keycodes, String warnings) {
+		int i, j, idx = 0, unitSize = 0;
+		String name, dType, unitErrors = "";
+		String[] defaults = {"NONE"};
+		ArrayList <String[]> uNames = new ArrayList<String[]>(), uValues = new ArrayList<String[]>();
+		ArrayList <String[]> cNames = new ArrayList<String[]>(), cValues = new ArrayList<String[]>();
+		ArrayList <String[]> eNames = new ArrayList<String[]>(), eValues = new ArrayList<String[]>();
+		ArrayList <String> uCategories = new ArrayList<String>(), uFiles = new ArrayList<String>();
+		ArrayList <String> cCategories = new ArrayList<String>(), cFiles = new ArrayList<String>();
+		ArrayList <String> eCategories = new ArrayList<String>(), eFiles = new ArrayList<String>();
+		CvtrUnit[] units;
+		ArrayList <List<CvtrUnit>> catUnits = new ArrayList<List<CvtrUnit>>();
+
+		for (Map.Entry<String, CvtrData> entry : files.entrySet()) {
+			name = new File(entry.getKey()).getName();
+			dType = entry.getValue().getDataType();
+			if (dType.equals("U")) {
+				uFiles.add(name);
+				uCategories.add(entry.getValue().elementCategory);
+				uNames.add(entry.getValue().elementNames);
+				uValues.add(entry.getValue().elementValues);
+			} else if (dType.equals("C")) {
+				cFiles.add(name);
+				cCategories.add(entry.getValue().elementCategory);
+				cNames.add(entry.getValue().elementNames);
+				cValues.add(entry.getValue().elementValues);
+			} else if (dType.equals("E")) {
+				eFiles.add(name);
+				eCategories.add(entry.getValue().elementCategory);
+				eNames.add(entry.getValue().elementNames);
+				eValues.add(entry.getValue().elementValues);
+			}
+		}
+
+		// Put placeholders in every empty list
+		if (uCategories.size() == 0 || cCategories.size() == 0 || eCategories.size() == 0) {
+			if (uCategories.size() == 0) {
+				uNames.add(defaults);
+				uValues.add(defaults);
+				uCategories.add("NONE");
+			}
+			if (cCategories.size() == 0) {
+				cNames.add(defaults);
+				cValues.add(defaults);
+				cCategories.add("NONE");
+			}
+			if (eCategories.size() == 0) {
+				eNames.add(defaults);
+				eValues.add(defaults);
+				eCategories.add("NONE");
+			}
+		}
+
+		// Set the Units for fast searches when parsing Equations
+		for (i=0; i < uCategories.size(); i++)
+			unitSize += uNames.get(i).length;
+		units = new CvtrUnit[unitSize];
+		for (i=0; i < uCategories.size(); i++) {
+			for (j=0; j < uNames.get(i).length; j++) {
+				try {
+					units[idx++] = new CvtrUnit(uNames.get(i)[j], uValues.get(i)[j], i, j, keycodes);
+				} catch (IllegalArgumentException err) {
+					idx--;
+					unitErrors += "Error in Unit " + uNames.get(i)[j] + ", " + uValues.get(i)[j] + ":\n\n  " + err.getMessage() + "\n";
+				}
+			}
+		}
+		// Keep the Units of each category for converting a result to every unit
+		for (i=0; i < uCategories.size(); i++)
+			catUnits.add(new ArrayList<CvtrUnit>());
+		for (i=0; i < idx; i++)
+			catUnits.get(units[i].indexType).add(units[i]);
+		for (i=0; i < uCategories.size(); i++)
+			catUnits.set(i, Collections.unmodifiableList(catUnits.get(i)));
+		categoryUnits = Collections.unmodifiableList(catUnits);
+		unitRatios = new double[uCategories.size()][][];
+		for (i=0; i < uCategories.size(); i++)
+			unitRatios[i] = getRatios(uNames.get(i).length, catUnits.get(i));
+		// Sort the Units by abbreviation
+		cUnits = Arrays.copyOf(units, idx);
+		Arrays.sort(cUnits);
+
+		UnitNames = Collections.unmodifiableList(uNames);
+		UnitValues = Collections.unmodifiableList(uValues);
+		UnitCategories = Collections.unmodifiableList(uCategories);
+		UnitFiles = Collections.unmodifiableList(uFiles);
+		ConstantNames = Collections.unmodifiableList(cNames);
+		ConstantValues = Collections.unmodifiableList(cValues);
+		ConstantCategories = Collections.unmodifiableList(cCategories);
+		ConstantFiles = Collections.unmodifiableList(cFiles);
+		EquationNames = Collections.unmodifiableList(eNames);
+		EquationValues = Collections.unmodifiableList(eValues);
+		EquationCategories = Collections.unmodifiableList(eCategories);
+		EquationFiles = Collections.unmodifiableList(eFiles);
+		dataFiles = files;
+		keyCodes = keycodes;
+		fingerprint = getFingerprint();
+		if (unitErrors.length() > 0)
+			warning = (warnings == null) ? unitErrors : warnings + "\n\n" + unitErrors;
+		else
+			warning = warnings;
+	} /* end CvtrCatalog */
+
+/**
+ * Calculate the conversion ratios of a category.  Each ratio is the quotient of the
+ * powers of the two conversion factors, rounded once to the nearest double.
+ *
+ * @param size	The number of units in the category, including units that are not valid.
+ * @param units	The valid units of the category.
+ *
+ * @return double[][]	The ratios for each power, or null if the category is too large.
+ */
+	private static double[][] getRatios(int size, List<CvtrUnit> units) {
+		int power;
+		BigDecimal from, to;
+		double[][] ratios;
+
+		if (size > maxRatioUnits)
+			return null;
+		ratios = new double[maxRatioPower][size * size];
+		for (power=1; power <= maxRatioPower; power++) {
+			// Units that are not valid are never converted
+			Arrays.fill(ratios[power - 1], Double.NaN);
+			for (CvtrUnit cuFrom : units) {
+				if (cuFrom.conversionFactor == 0 || Double.isInfinite(cuFrom.conversionFactor) || Double.isNaN(cuFrom.conversionFactor))
+					continue;
+				from = new BigDecimal(cuFrom.conversionFactor).pow(power);
+				for (CvtrUnit cuTo : units) {
+					if (Double.isInfinite(cuTo.conversionFactor) || Double.isNaN(cuTo.conversionFactor))
+						continue;
+					to = new BigDecimal(cuTo.conversionFactor).pow(power);
+					ratios[power - 1][cuFrom.indexUnit * size + cuTo.indexUnit] = to.divide(from, MathContext.DECIMAL128).doubleValue();
+				}
+			}
+		}
+
+		return ratios;
+	} /* end getRatios */
+
+/**
+ * Get the ratio that converts a value from one unit to another unit of the same
+ * category.  The value in the new unit is the value multiplied by the ratio.
+ *
+ * @param category	The category index.
+ * @param from	The unit index of the value.
+ * @param to	The unit index of the result.
+ * @param power	The power of the units.
+ *
+ * @return double	The ratio, or NaN if it is not precalculated.
+ */
+	public double getRatio(int category, int from, int to, int power) {
+		int size;
+
+		if (category < 0 || category >= unitRatios.length || unitRatios[category] == null ||
+				power < 1 || power > maxRatioPower)
+			return Double.NaN;
+		size = UnitNames.get(category).length;
+		if (from < 0 || from >= size || to < 0 || to >= size)
+			return Double.NaN;
+
+		return unitRatios[category][power - 1][from * size + to];
+	}
+
+/**
+ * Calculate the fingerprint of the catalog, which is a 64 bit FNV-1a hash of every
+ * category, name and value.
+ *
+ * @return long	The fingerprint.
+ */
+	private long getFingerprint() {
+		long hash = 0xcbf29ce484222325L;
+		List <List<String[]>> lists = Arrays.asList(UnitNames, UnitValues, ConstantNames, ConstantValues, EquationNames, EquationValues);
+		List <List<String>> categories = Arrays.asList(UnitCategories, ConstantCategories, EquationCategories);
+
+		for (List<String> list : categories) {
+			for (String s : list)
+				hash = hashString(hash, s);
+			hash = hashString(hash, "\n");
+		}
+		for (List<String[]> list : lists) {
+			for (String[] elements : list) {
+				for (String s : elements)
+					hash = hashString(hash, s);
+				hash = hashString(hash, "\n");
+			}
+		}
+
+		return hash;
+	}
+
+/**
+ * Add a string to an FNV-1a hash.
+ *
+ * @param hash	The hash.
+ * @param s	The string, which is followed by a separator.
+ *
+ * @return long	The new hash.
+ */
+	private static long hashString(long hash, String s) {
+		int i;
+
+		for (i=0; i < s.length(); i++) {
+			hash ^= s.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= 0xffff;
+		hash *= 0x100000001b3L;
+
+		return hash;
+	}
+
+/**
+ * Read all of the Convertator data files and create a catalog.
+ *
+ * @param cf	The Convertator file handler.
+ * @param keycodes	The list of key letters and symbols that may not be used as unit abbreviations.
+ *
+ * @return CvtrCatalog	The catalog.
+ *
+ * @throws IllegalArgumentException	If a data file cannot be read.
+ */
+	public static CvtrCatalog load(CvtrFile cf, String keycodes) throws IllegalArgumentException {
+		return build(cf, null, null, keycodes);
+	}
+
+/**
+ * Create a new catalog after data files have changed.  Only the changed files and
+ * new files are read, and the data of the other files is shared with this catalog.
+ *
+ * @param cf	The Convertator file handler.
+ * @param changed	The full path of each file that was created, changed or deleted,
+ * 					or null to read every file.
+ *
+ * @return CvtrCatalog	The new catalog.
+ *
+ * @throws IllegalArgumentException	If a data file cannot be read.
+ */
+	public CvtrCatalog reload(CvtrFile cf, Collection<String> changed) throws IllegalArgumentException {
+		return build(cf, this, changed, keyCodes);
+	}
+
+/**
+ * Get the CvtrUnit element from its abbreviation.
+ * 
+ * @param uName	The abbreviation of the unit.
+ * 
+ * @return CvtrUnit	The unit information.  If the unit is not found or the abbreviation
+ * 					is not valid, null is returned.
+ */
+	public CvtrUnit findUnit(String uName) {
+		int low = 0, high = cUnits.length - 1, mid, cmp;
+		String abbrev = uName;
+
+		// The abbreviation ends at a close parenthesis, and may not be part of the key codes,
+		// which is tested without creating a unit so that a failed search does not throw
+		if ((mid = uName.indexOf(')')) >= 0)
+			abbrev = uName.substring(0, mid);
+		if ((keyCodes == null ? "" : keyCodes).indexOf(abbrev) >= 0)
+			return null;
+		// The units are sorted in the order of CvtrUnit.compareTo, which is descending
+		while (low <= high) {
+			mid = (low + high) >>> 1;
+			if ((cmp = abbrev.compareTo(cUnits[mid].unitAbbrev)) < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return cUnits[mid];
+		}
+
+		return null;
+	}
+
+/**
+ * Get the valid Units of a category, in the order of the category.
+ * 
+ * @param category	The category index.
+ * 
+ * @return List	The Units, or an empty list if the category does not exist.
+ */
+	public List<CvtrUnit> getCategoryUnits(int category) {
+		if (category < 0 || category >= categoryUnits.size())
+			return Collections.emptyList();
+
+		return categoryUnits.get(category);
+	}
+
+/**
+ * Read the data files, reusing the data of unchanged files from a previous catalog.
+ *
+ * @param cf	The Convertator file handler.
+ * @param previous	The previous catalog, or null to read every file.
+ * @param changed	The files that changed since the previous catalog was created.
+ * @param keycodes	The list of key letters and symbols that may not be used as unit abbreviations.
+ *
+ * @return CvtrCatalog	The catalog.
+ *
+ * @throws IllegalArgumentException	If a data file cannot be read.
+ */
+	private static CvtrCatalog build(CvtrFile cf, CvtrCatalog previous, Collection<String> changed, String keycodes) throws IllegalArgumentException {
+		String warnings;
+		ArrayList <String> paths;
+		LinkedHashMap <String, CvtrData> files = new LinkedHashMap<String, CvtrData>();
+		CvtrData cd;
+		IllegalArgumentException exception;
+
+		if ((paths = cf.getDataPaths()) == null) {
+			exception = new IllegalArgumentException(cf.errorMessage);
+			throw exception;
+		}
+		warnings = cf.errorMessage;
+		for (String path : paths) {
+			if (previous != null && changed != null && !changed.contains(path) && (cd = previous.dataFiles.get(path)) != null) {
+				files.put(path, cd);
+				continue;
+			}
+if (verbose)
+System.out.println("Catalog read: " + path);
+			if ((cd = cf.getCvtrFile(path)) == null) {
+				exception = new IllegalArgumentException("Invalid file in " +
+					(path.startsWith(cf.homeDir) ? "home" : "application") + " data directory");
+				throw exception;
+			}
+			files.put(path, cd);
+		}
+
+		return new CvtrCatalog(files, keycodes, warnings);
+	} /* end build */
+
+}
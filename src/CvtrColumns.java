@@ -0,0 +1,691 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The Convertator Columns class converts selected columns of a CSV or TSV file from
+ * one unit to another.  The first line of the file must contain the column names.
+ * Each column to be converted is specified as <i>name:from:to</i>, for example
+ * <i>distance_mi:mi:km</i>, where the units are written as in an equation.
+ * <p/>
+ * The input file is memory mapped and split into chunks that end on line boundaries,
+ * and the chunks are converted in parallel.  Numbers are parsed directly from the
+ * mapped bytes, and all other fields are copied unchanged.  The output is either the
+ * same text file with the converted values, or a raw file of little-endian doubles
+ * with the converted columns of each row in the order they were specified.
+ * <p/>
+ * Quoted fields are supported, but a record may not contain an embedded line end.
+ * Values that are not numbers are copied unchanged to text output and are NaN in
+ * raw output.
+ */
+public class CvtrColumns
+{
+	static final boolean verbose = false;
+	// The smallest and largest chunk of the input file converted by one task
+	final private static long minChunk = 1 << 20;
+	final private static long maxChunk = 1 << 22;
+	// The most output of the chunks that are converted but not yet written, and the
+	// largest output of one chunk
+	final private static long maxPending = 1 << 27;
+	final private static long maxOutput = Integer.MAX_VALUE - 64;
+	// The largest header line
+	final private static int maxHeader = 1 << 20;
+	// Powers of ten that are exact as doubles
+	final private static double[] power10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	public String errorMessage = null;
+
+	private CvtrEngine cvtrEngine = null;
+	private byte delimiter = ',';
+	private boolean rawOutput = false;
+	private int precision = -1;
+	// The converted columns, indexed by the field number in a line
+	private CvtrConvert[] columnConvert;
+	// The order of the converted columns in raw output, indexed by the field number in a line
+	private int[] rawIndex;
+	private int rawCount;
+
+/**
+ * The Convertator Columns constructor sets the engine that provides the units.
+ *
+ * @param ce	The Convertator engine.
+ */
+	public CvtrColumns(CvtrEngine ce) {
+		cvtrEngine = ce;
+	}
+
+/**
+ * Set the output to raw little-endian doubles instead of text.
+ *
+ * @param raw	If true, only the converted columns are written as 8 octet values.
+ */
+	public void setRawOutput(boolean raw) {
+		rawOutput = raw;
+	}
+
+/**
+ * Set the number of digits after the decimal point in converted text values.
+ *
+ * @param digits	The number of digits, or -1 for the shortest exact representation.
+ */
+	public void setPrecision(int digits) {
+		precision = digits;
+		if (precision > 15)
+			precision = 15;
+	}
+
+/**
+ * Run the column converter from the command line arguments, which are:
+ * <p/>
+ * <i>-csv input output name:from:to [name:from:to ...] [-raw] [-precision n]</i>
+ *
+ * @param args	The command line arguments.
+ *
+ * @return int	The exit status, which is 0 if successful.
+ */
+	public static int runColumns(String[] args) {
+		int idx;
+		String input = null, output = null;
+		ArrayList <String> columns = new ArrayList<String>();
+		CvtrColumns cc;
+
+		try {
+			cc = new CvtrColumns(new CvtrEngine());
+		} catch (Exception err) {
+			System.err.println("Failed to create Convertator calulating engine:\n  " + err.getMessage());
+			return 1;
+		}
+		for (idx=1; idx < args.length; idx++) {
+			if (args[idx].equals("-raw")) {
+				cc.setRawOutput(true);
+			} else if (args[idx].equals("-precision") && (idx + 1) < args.length) {
+				try {
+					cc.setPrecision(Integer.parseInt(args[++idx]));
+				} catch (NumberFormatException err) {
+					System.err.println("Invalid precision " + args[idx]);
+					return 1;
+				}
+			} else if (input == null) {
+				input = args[idx];
+			} else if (output == null) {
+				output = args[idx];
+			} else {
+				columns.add(args[idx]);
+			}
+		}
+		if (input == null || output == null || columns.size() == 0) {
+			System.err.println("Usage: -csv input output name:from:to [name:from:to ...] [-raw] [-precision n]");
+			return 1;
+		}
+		if (!cc.convertFile(input, output, columns.toArray(new String[columns.size()]))) {
+			System.err.println(cc.errorMessage);
+			return 1;
+		}
+
+		return 0;
+	} /* end runColumns */
+
+/**
+ * Convert the selected columns of a file.
+ *
+ * @param input	The CSV or TSV file to be converted.  Files ending in .tsv, or with
+ * 				a tab but no comma in the header, are separated by tabs.
+ * @param output	The file where the converted data is saved.
+ * @param columns	The columns to convert in the format name:from:to.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	public boolean convertFile(String input, String output, String[] columns) {
+		int i, threads, window;
+		long size, start, end, chunk, headerEnd;
+		ByteBuffer header;
+		FileChannel inChannel, outChannel;
+		ExecutorService executor;
+		ArrayList <Future<ByteBuffer>> pending = new ArrayList<Future<ByteBuffer>>();
+		Path inPath = Paths.get(input), outPath = Paths.get(output);
+
+		errorMessage = null;
+		try {
+			inChannel = FileChannel.open(inPath, StandardOpenOption.READ);
+		} catch (IOException err) {
+			errorMessage = "Error opening file " + input + ":\n  " + err.getMessage();
+			return false;
+		}
+		try {
+			outChannel = FileChannel.open(outPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException err) {
+			errorMessage = "Error opening file " + output + ":\n  " + err.getMessage();
+			closeChannel(inChannel);
+			return false;
+		}
+
+		threads = Runtime.getRuntime().availableProcessors();
+		executor = Executors.newFixedThreadPool(threads);
+		try {
+			// Get the column names and the units of each converted column
+			size = inChannel.size();
+			header = inChannel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, maxHeader));
+			for (i=0; i < header.limit() && header.get(i) != '\n'; i++)
+				;
+			if (i == header.limit() && i < size) {
+				errorMessage = "Header line too long in " + input;
+				return false;
+			}
+			headerEnd = (i < header.limit()) ? i + 1 : i;
+			if (!setColumns(input, header, (int) headerEnd, columns))
+				return false;
+			if (!rawOutput) {
+				header.limit((int) headerEnd);
+				header.position(0);
+				while (header.hasRemaining())
+					outChannel.write(header);
+			}
+
+			// Split the data into line-aligned chunks and convert them in parallel
+			chunk = Math.max(minChunk, Math.min(maxChunk, (size - headerEnd) / (threads * 4L)));
+			window = (int) Math.max(1, Math.min(threads * 2L, maxPending / outputSize(chunk)));
+			start = headerEnd;
+			while (start < size) {
+				end = lineEnd(inChannel, Math.min(size, start + chunk), size);
+				final MappedByteBuffer data = inChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+				pending.add(executor.submit(() -> convertChunk(data)));
+				start = end;
+				// Write finished chunks in order, limiting the memory used by pending chunks
+				while (pending.size() >= window || (start >= size && pending.size() > 0)) {
+					writeBuffer(outChannel, pending.remove(0).get());
+				}
+			}
+if (verbose)
+System.out.println("Converted " + input + " to " + output);
+		} catch (IOException err) {
+			errorMessage = "Error with file " + input + ":\n  " + err.getMessage();
+			return false;
+		} catch (InterruptedException err) {
+			errorMessage = "Conversion of " + input + " interrupted";
+			return false;
+		} catch (ExecutionException err) {
+			errorMessage = "Error converting " + input + ":\n  " + err.getCause();
+			return false;
+		} finally {
+			executor.shutdownNow();
+			closeChannel(inChannel);
+			closeChannel(outChannel);
+		}
+
+		return true;
+	} /* end convertFile */
+
+/**
+ * Get the column numbers and the conversion for each converted column.
+ *
+ * @param input	The name of the input file.
+ * @param header	The mapped start of the file.
+ * @param headerEnd	The offset after the end of the header line.
+ * @param columns	The columns to convert in the format name:from:to.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	private boolean setColumns(String input, ByteBuffer header, int headerEnd, String[] columns) {
+		int i, idx;
+		byte[] line;
+		String[] names, spec;
+		String headerLine;
+
+		line = new byte[headerEnd];
+		header.get(0, line, 0, headerEnd);
+		headerLine = new String(line, StandardCharsets.UTF_8).replace("\r", "").replace("\n", "");
+		if (input.toLowerCase().endsWith(".tsv") || (headerLine.indexOf('\t') >= 0 && headerLine.indexOf(',') < 0))
+			delimiter = '\t';
+		names = headerLine.split(delimiter == '\t' ? "\t" : ",", -1);
+		columnConvert = new CvtrConvert[names.length];
+		rawIndex = new int[names.length];
+		rawCount = 0;
+
+		for (i=0; i < columns.length; i++) {
+			spec = columns[i].split(":");
+			if (spec.length != 3) {
+				errorMessage = "Invalid column " + columns[i] + ", use name:from:to";
+				return false;
+			}
+			for (idx=0; idx < names.length; idx++) {
+				if (names[idx].trim().replace("\"", "").equals(spec[0]))
+					break;
+			}
+			if (idx == names.length) {
+				errorMessage = "Column " + spec[0] + " not found in " + input;
+				return false;
+			}
+			if (columnConvert[idx] != null) {
+				errorMessage = "Column " + spec[0] + " specified more than once";
+				return false;
+			}
+			try {
+				columnConvert[idx] = new CvtrConvert(cvtrEngine, spec[1], spec[2]);
+			} catch (IllegalArgumentException err) {
+				errorMessage = "Error in column " + spec[0] + ":\n  " + err.getMessage();
+				return false;
+			}
+			rawIndex[idx] = rawCount++;
+		}
+
+		return true;
+	} /* end setColumns */
+
+/**
+ * Find the end of the line that contains an offset in the file.
+ *
+ * @param channel	The input file.
+ * @param offset	The offset in the file.
+ * @param size	The size of the file.
+ *
+ * @return long	The offset after the next line end, or the size of the file.
+ *
+ * @throws IOException	If the file cannot be read.
+ */
+	private long lineEnd(FileChannel channel, long offset, long size) throws IOException {
+		int i;
+		ByteBuffer scan;
+
+		while (offset < size) {
+			scan = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, minChunk));
+			for (i=0; i < scan.limit(); i++) {
+				if (scan.get(i) == '\n')
+					return offset + i + 1;
+			}
+			offset += scan.limit();
+		}
+
+		return size;
+	}
+
+/**
+ * Convert the lines in one chunk of the input file.
+ *
+ * @param in	The chunk of the input file, which ends at a line end or the end of the file.
+ *
+ * @return ByteBuffer	The converted data, ready to be written.
+ */
+	private ByteBuffer convertChunk(ByteBuffer in) {
+		int idx = 0, start, end, field, fieldEnd, row = 0, limit = in.limit();
+		double d;
+		ByteBuffer out;
+
+		out = ByteBuffer.allocateDirect((int) Math.min(maxOutput, outputSize(limit)));
+		if (rawOutput)
+			out.order(ByteOrder.LITTLE_ENDIAN);
+
+		while (idx < limit) {
+			// Get the end of the line, not including a carriage return
+			for (end=idx; end < limit && in.get(end) != '\n'; end++)
+				;
+			fieldEnd = (end > idx && in.get(end - 1) == '\r') ? end - 1 : end;
+			// Skip empty lines in raw output
+			if (rawOutput && fieldEnd == idx) {
+				idx = end + 1;
+				continue;
+			}
+			// The converted fields of a row in raw output are in the order they were
+			// specified, and missing fields are NaN
+			if (rawOutput) {
+				if (out.remaining() < rawCount * 8)
+					out = growBuffer(out, rawCount * 8);
+				row = out.position();
+				for (field=0; field < rawCount; field++)
+					out.putDouble(row + field * 8, Double.NaN);
+			}
+
+			// Convert each field in the line
+			field = 0;
+			start = idx;
+			while (start <= fieldEnd) {
+				int stop = fieldStop(in, start, fieldEnd);
+				if (field < columnConvert.length && columnConvert[field] != null) {
+					d = parseNumber(in, start, stop);
+					if (rawOutput) {
+						out.putDouble(row + rawIndex[field] * 8, columnConvert[field].convert(d));
+					} else if (Double.isNaN(d)) {
+						out = copyBytes(out, in, start, stop);
+					} else {
+						out = putNumber(out, columnConvert[field].convert(d));
+					}
+				} else if (!rawOutput) {
+					out = copyBytes(out, in, start, stop);
+				}
+				if (!rawOutput && stop < fieldEnd) {
+					out = copyBytes(out, in, stop, stop + 1);
+				}
+				field++;
+				start = stop + 1;
+			}
+			if (rawOutput) {
+				out.position(row + rawCount * 8);
+			} else if (fieldEnd < limit) {
+				out = copyBytes(out, in, fieldEnd, Math.min(limit, end + 1));
+			}
+			idx = end + 1;
+		}
+		out.flip();
+
+		return out;
+	} /* end convertChunk */
+
+/**
+ * Get the expected size of the output of a chunk.  Text output is usually about the
+ * same size as the input, and raw output assumes each field of a line has at least a
+ * digit and a delimiter.  Larger output is handled by growing the buffer.
+ *
+ * @param length	The size of the chunk of the input file.
+ *
+ * @return long	The size of the output buffer.
+ */
+	private long outputSize(long length) {
+		if (rawOutput)
+			return (length / (2L * columnConvert.length) + 1) * rawCount * 8 + 64;
+
+		return length + (length >> 1) + 64;
+	}
+
+/**
+ * Find the end of a field, skipping delimiters inside quotes.
+ *
+ * @param in	The input data.
+ * @param start	The offset of the start of the field.
+ * @param end	The offset of the end of the line.
+ *
+ * @return int	The offset of the delimiter after the field, or the end of the line.
+ */
+	private int fieldStop(ByteBuffer in, int start, int end) {
+		int idx = start;
+		boolean quoted = false;
+
+		for (; idx < end; idx++) {
+			if (in.get(idx) == '"')
+				quoted = !quoted;
+			else if (!quoted && in.get(idx) == delimiter)
+				break;
+		}
+
+		return idx;
+	}
+
+/**
+ * Parse a decimal number directly from the input data.  Surrounding spaces and
+ * quotes are ignored.  Numbers with up to 15 significant digits and small exponents
+ * are calculated exactly from the digits, and others are parsed by the Java library.
+ *
+ * @param in	The input data.
+ * @param start	The offset of the start of the field.
+ * @param end	The offset of the end of the field.
+ *
+ * @return double	The value, or NaN if the field is not a number.
+ */
+	private double parseNumber(ByteBuffer in, int start, int end) {
+		int idx, digits = 0, exp = 0, expDigits = 0;
+		long mantissa = 0;
+		byte b;
+		boolean negative = false, expNegative = false, point = false;
+		double d;
+
+		while (start < end && (in.get(start) == ' ' || in.get(start) == '"'))
+			start++;
+		while (end > start && (in.get(end - 1) == ' ' || in.get(end - 1) == '"'))
+			end--;
+		if (start == end)
+			return Double.NaN;
+
+		idx = start;
+		if (in.get(idx) == '-' || in.get(idx) == '+') {
+			negative = (in.get(idx) == '-');
+			idx++;
+		}
+		for (; idx < end; idx++) {
+			b = in.get(idx);
+			if (b >= '0' && b <= '9') {
+				// Ignore leading zeros, and fall back to the library for long mantissas
+				if (mantissa == 0 && b == '0') {
+					if (point)
+						exp--;
+				} else if (digits < 19) {
+					mantissa = mantissa * 10 + (b - '0');
+					digits++;
+					if (point)
+						exp--;
+				} else {
+					return parseSlow(in, start, end);
+				}
+				expDigits++;
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (expDigits == 0)
+			return Double.NaN;
+		// Get the exponent
+		if (idx < end && (in.get(idx) == 'e' || in.get(idx) == 'E')) {
+			int e = 0;
+			idx++;
+			if (idx < end && (in.get(idx) == '-' || in.get(idx) == '+')) {
+				expNegative = (in.get(idx) == '-');
+				idx++;
+			}
+			if (idx == end)
+				return Double.NaN;
+			for (; idx < end; idx++) {
+				b = in.get(idx);
+				if (b < '0' || b > '9')
+					return Double.NaN;
+				if (e < 10000)
+					e = e * 10 + (b - '0');
+			}
+			exp += expNegative ? -e : e;
+		}
+		if (idx < end)
+			return Double.NaN;
+
+		// The mantissa and power of ten are both exact, so the result is correctly rounded
+		if (digits <= 15 && exp >= -22 && exp <= 22) {
+			d = (double) mantissa;
+			if (exp < 0)
+				d /= power10[-exp];
+			else
+				d *= power10[exp];
+		} else if (mantissa == 0) {
+			d = 0;
+		} else {
+			return parseSlow(in, start, end);
+		}
+
+		return negative ? -d : d;
+	} /* end parseNumber */
+
+/**
+ * Parse a number with the Java library.
+ *
+ * @param in	The input data.
+ * @param start	The offset of the start of the number.
+ * @param end	The offset of the end of the number.
+ *
+ * @return double	The value, or NaN if the field is not a number.
+ */
+	private double parseSlow(ByteBuffer in, int start, int end) {
+		byte[] number = new byte[end - start];
+
+		in.get(start, number, 0, number.length);
+		try {
+			return Double.parseDouble(new String(number, StandardCharsets.US_ASCII));
+		} catch (NumberFormatException err) {
+			return Double.NaN;
+		}
+	}
+
+/**
+ * Put a converted value in the output as text.
+ *
+ * @param out	The output buffer.
+ * @param value	The converted value.
+ *
+ * @return ByteBuffer	The output buffer, which may have been replaced by a larger one.
+ */
+	private ByteBuffer putNumber(ByteBuffer out, double value) {
+		int i, len;
+		long l, scale;
+		String number;
+
+		if (out.remaining() < 32)
+			out = growBuffer(out, 32);
+		// Fixed precision values that fit in a long are formatted directly
+		if (precision >= 0 && Math.abs(value) < 9e15 / power10[precision]) {
+			scale = (long) power10[precision];
+			l = Math.round(Math.abs(value) * scale);
+			if (value < 0 && l != 0)
+				out.put((byte) '-');
+			out = putDigits(out, l / scale, 1);
+			if (precision > 0) {
+				out.put((byte) '.');
+				out = putDigits(out, l % scale, precision);
+			}
+			return out;
+		}
+		number = Double.toString(value);
+		len = number.length();
+		for (i=0; i < len; i++)
+			out.put((byte) number.charAt(i));
+
+		return out;
+	}
+
+/**
+ * Put the decimal digits of a positive value in the output.
+ *
+ * @param out	The output buffer, which has room for the digits.
+ * @param value	The value.
+ * @param width	The minimum number of digits, padded with leading zeros.
+ *
+ * @return ByteBuffer	The output buffer.
+ */
+	private ByteBuffer putDigits(ByteBuffer out, long value, int width) {
+		int i, pos = out.position(), len = 0;
+		long l = value;
+
+		do {
+			len++;
+			l /= 10;
+		} while (l > 0);
+		if (len < width)
+			len = width;
+		for (i=len - 1; i >= 0; i--) {
+			out.put(pos + i, (byte) ('0' + (value % 10)));
+			value /= 10;
+		}
+		out.position(pos + len);
+
+		return out;
+	}
+
+/**
+ * Copy bytes from the input to the output.
+ *
+ * @param out	The output buffer.
+ * @param in	The input data.
+ * @param start	The offset of the first byte to copy.
+ * @param end	The offset after the last byte to copy.
+ *
+ * @return ByteBuffer	The output buffer, which may have been replaced by a larger one.
+ */
+	private ByteBuffer copyBytes(ByteBuffer out, ByteBuffer in, int start, int end) {
+		int len = end - start;
+
+		if (out.remaining() < len)
+			out = growBuffer(out, len);
+		out.put(out.position(), in, start, len);
+		out.position(out.position() + len);
+
+		return out;
+	}
+
+/**
+ * Replace an output buffer with a larger one.
+ *
+ * @param out	The output buffer.
+ * @param needed	The number of bytes that must fit in the new buffer.
+ *
+ * @return ByteBuffer	The new buffer, with the same contents and position.
+ *
+ * @throws IllegalStateException	If the output of one chunk does not fit in a buffer.
+ */
+	private ByteBuffer growBuffer(ByteBuffer out, int needed) {
+		long newSize = (long) out.position() + needed;
+		ByteBuffer newOut;
+
+		if (newSize > maxOutput)
+			throw new IllegalStateException("Converted chunk larger than " + maxOutput + " octets");
+		newSize = Math.min(maxOutput, Math.max(out.capacity() * 2L, newSize));
+		newOut = ByteBuffer.allocateDirect((int) newSize).order(out.order());
+		out.flip();
+		newOut.put(out);
+
+		return newOut;
+	}
+
+/**
+ * Write an output buffer to the output file.
+ *
+ * @param channel	The output file.
+ * @param out	The data to be written.
+ *
+ * @throws IOException	If the file cannot be written.
+ */
+	private void writeBuffer(FileChannel channel, ByteBuffer out) throws IOException {
+		while (out.hasRemaining())
+			channel.write(out);
+	}
+
+/**
+ * Close a file, ignoring errors.
+ *
+ * @param channel	The file to be closed.
+ */
+	private void closeChannel(FileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException err) {
+			;	// Ignore errors
+		}
+	}
+
+}
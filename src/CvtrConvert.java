@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.nio.DoubleBuffer;
+
+/**
+ * The Convertator Convert class converts large numbers of values from one set of
+ * units to another.  The units are written the same way as in an equation, for
+ * example <i>ft</i>, <i>sqft</i>, <i>ft^2</i> or <i>ft/sec</i>.  Every unit
+ * category in the source units must appear in the target units with the same power.
+ * <p/>
+ * All of the conversion factors are combined into a single multiplier when the class
+ * is created, so converting a value is a single multiplication.  The bulk methods
+ * are written as simple counted loops over primitive arrays, which the JIT compiler
+ * turns into SIMD instructions on processors that support them.
+ */
+public class CvtrConvert
+{
+	static final boolean verbose = false;
+	// The number of values copied at a time from buffers that are not backed by an array
+	final private static int chunkSize = 8192;
+	final private static String unitOps = "*/";
+
+/** The source units. */
+	public String fromUnits = null;
+/** The target units. */
+	public String toUnits = null;
+/** The combined conversion factor which is multiplied by each value. */
+	public double conversionFactor = 1;
+
+ /**
+  * The Convertator Convert constructor validates the source and target units and
+  * calculates the combined conversion factor.
+  *
+  * @param ce	The Convertator engine which provides the units.
+  * @param from	The source units, such as 'mi/hr'.
+  * @param to	The target units, such as 'km/hr'.
+  *
+  * @throws IllegalArgumentException	If a unit is not found, or the source and target
+  * 									units are not in the same categories and powers.
+  */
+	public CvtrConvert(CvtrEngine ce, String from, String to) throws IllegalArgumentException {
+		this(ce.getCatalog(), from, to);
+	}
+
+/**
+ * The Convertator Convert constructor which gets the units from a catalog.
+ *
+ * @param cc	The catalog which provides the units.
+ * @param from	The source units, such as 'mi/hr'.
+ * @param to	The target units, such as 'km/hr'.
+ *
+ * @throws IllegalArgumentException	If a unit is not found, or the source and target
+ * 									units are not in the same categories and powers.
+ */
+	public CvtrConvert(CvtrCatalog cc, String from, String to) throws IllegalArgumentException {
+		int i;
+		int[] fromPower, toPower;
+		double numer = 1, denom = 1;
+		IllegalArgumentException exception;
+
+		fromUnits = from.trim();
+		toUnits = to.trim();
+		fromPower = new int[cc.UnitCategories.size()];
+		toPower = new int[cc.UnitCategories.size()];
+		// The source factors divide the value and the target factors multiply it
+		denom = unitFactors(cc, fromUnits, fromPower, denom);
+		numer = unitFactors(cc, toUnits, toPower, numer);
+		for (i=0; i < fromPower.length; i++) {
+			if (fromPower[i] != toPower[i]) {
+				exception = new IllegalArgumentException("Units " + fromUnits + " cannot be converted to " + toUnits);
+				throw exception;
+			}
+		}
+		conversionFactor = numer / denom;
+if (verbose)
+System.out.println("Convert " + fromUnits + " to " + toUnits + ": " + conversionFactor);
+	}
+
+/**
+ * Get the product of the conversion factors of each unit in a list of units.
+ * Units which follow a division sign are applied to the opposite side of the
+ * conversion, so the result is returned as a product for the numerator and the
+ * power for the denominator is subtracted from the category power.
+ *
+ * @param cc	The catalog which provides the units.
+ * @param units	The list of units, such as 'ft*lb/sec^2'.
+ * @param power	The power of each unit category, which is updated.
+ * @param factor	The starting product of conversion factors.
+ *
+ * @return double	The product of the conversion factors of the units in the numerator
+ * 					divided by the product of the factors of the units in the denominator.
+ *
+ * @throws IllegalArgumentException	If a unit is not found or the format is invalid.
+ */
+	private double unitFactors(CvtrCatalog cc, String units, int[] power, double factor) throws IllegalArgumentException {
+		int idx = 0, end, p;
+		boolean divide = false;
+		String term;
+		CvtrUnit cu;
+		IllegalArgumentException exception;
+
+		if (units.length() == 0) {
+			exception = new IllegalArgumentException("No units");
+			throw exception;
+		}
+		while (idx < units.length()) {
+			// Get the next unit term
+			for (end=idx; end < units.length(); end++) {
+				if (unitOps.indexOf(units.charAt(end)) >= 0)
+					break;
+			}
+			term = units.substring(idx, end).trim();
+			p = 1;
+			if (term.indexOf('^') > 0) {
+				try {
+					p = Integer.parseInt(term.substring(term.indexOf('^') + 1).trim());
+				} catch (NumberFormatException err) {
+					exception = new IllegalArgumentException("Invalid unit power " + term);
+					throw exception;
+				}
+				term = term.substring(0, term.indexOf('^')).trim();
+			}
+			if (p < 1 || (cu = cc.findUnit(term)) == null) {
+				exception = new IllegalArgumentException("Invalid unit " + term);
+				throw exception;
+			}
+			// Units raised to a power use the power of the conversion factor
+			if (divide) {
+				factor /= (p > 1) ? Math.pow(cu.conversionFactor, (double) p) : cu.conversionFactor;
+				power[cu.indexType] -= p;
+			} else {
+				factor *= (p > 1) ? Math.pow(cu.conversionFactor, (double) p) : cu.conversionFactor;
+				power[cu.indexType] += p;
+			}
+			if (end < units.length())
+				divide = (units.charAt(end) == '/');
+			idx = end + 1;
+		}
+
+		return factor;
+	} /* end unitFactors */
+
+/**
+ * Convert a single value.
+ *
+ * @param value	The value in the source units.
+ *
+ * @return double	The value in the target units.
+ */
+	public double convert(double value) {
+		return value * conversionFactor;
+	}
+
+/**
+ * Convert every value in an array.  The values are replaced by the converted values.
+ *
+ * @param values	The values in the source units.
+ */
+	public void convert(double[] values) {
+		convert(values, 0, values, 0, values.length);
+	}
+
+/**
+ * Convert a range of values from one array to another.  The source and destination
+ * may be the same array.
+ *
+ * @param src	The values in the source units.
+ * @param srcOffset	The index of the first value to convert.
+ * @param dst	The array where the converted values are saved.
+ * @param dstOffset	The index where the first converted value is saved.
+ * @param length	The number of values to convert.
+ */
+	public void convert(double[] src, int srcOffset, double[] dst, int dstOffset, int length) {
+		int i;
+		double f = conversionFactor;
+
+		// Keep the loop simple so that it is vectorized by the compiler
+		for (i=0; i < length; i++)
+			dst[dstOffset + i] = src[srcOffset + i] * f;
+	}
+
+/**
+ * Convert the values in a buffer between its position and its limit.  The values
+ * are replaced by the converted values, and the position is not changed.  The buffer
+ * may be a direct (off-heap) buffer, including a view of a direct ByteBuffer.
+ *
+ * @param buffer	The values in the source units.
+ */
+	public void convert(DoubleBuffer buffer) {
+		convert(buffer, buffer);
+	}
+
+/**
+ * Convert the values in a buffer between its position and its limit, and put them in
+ * another buffer starting at its position.  The positions of both buffers are not changed.
+ *
+ * @param src	The values in the source units.
+ * @param dst	The buffer where the converted values are saved.
+ *
+ * @throws IllegalArgumentException	If the destination buffer is too small.
+ */
+	public void convert(DoubleBuffer src, DoubleBuffer dst) throws IllegalArgumentException {
+		int idx, len, srcPos = src.position(), dstPos = dst.position(), length = src.remaining();
+		double[] chunk;
+		IllegalArgumentException exception;
+
+		if (dst.remaining() < length) {
+			exception = new IllegalArgumentException("Destination buffer too small");
+			throw exception;
+		}
+		// Heap buffers are converted directly in their arrays
+		if (src.hasArray() && dst.hasArray() && !dst.isReadOnly()) {
+			convert(src.array(), src.arrayOffset() + srcPos, dst.array(), dst.arrayOffset() + dstPos, length);
+			return;
+		}
+		// Other buffers are copied through a chunk array using bulk transfers
+		chunk = new double[Math.min(length, chunkSize)];
+		for (idx=0; idx < length; idx += len) {
+			len = Math.min(chunk.length, length - idx);
+			src.get(srcPos + idx, chunk, 0, len);
+			convert(chunk, 0, chunk, 0, len);
+			dst.put(dstPos + idx, chunk, 0, len);
+		}
+	} /* end convert */
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Convertator Dimension is the units of a term as a vector of unit categories
+ * and their powers.  For example, ft*lb^2 is {Distance: ft^1, Weight: lb^2}.  Each
+ * category has one unit, which is true after the units of an equation are reduced.
+ * <p/>
+ * A dimension is never changed after it is created.  Two terms have the same units
+ * when their dimensions are equal, so a dimension is the key of the terms that are
+ * combined by the Convertator Polynomial.
+ */
+public class CvtrDimension
+{
+/** The dimension of a number without units. */
+	public static final CvtrDimension NONE = new CvtrDimension(new int[0], new int[0], new int[0]);
+
+	// The categories in ascending order, and the unit and power of each
+	private final int[] types;
+	private final int[] units;
+	private final int[] powers;
+	private final int hash;
+
+/**
+ * The Convertator Dimension constructor.
+ *
+ * @param typeList	The categories in ascending order.
+ * @param unitList	The unit index of each category.
+ * @param powerList	The power of each category, which is not zero.
+ */
+	private CvtrDimension(int[] typeList, int[] unitList, int[] powerList) {
+		types = typeList;
+		units = unitList;
+		powers = powerList;
+		hash = 31 * (31 * Arrays.hashCode(types) + Arrays.hashCode(units)) + Arrays.hashCode(powers);
+	}
+
+/**
+ * Get the dimension of the units of a group in an operand stack.  The group is the
+ * operand at the start and the group units that follow it.  The power of each unit
+ * is positive.
+ *
+ * @param stack	The operand stack.
+ * @param start	The index of the first operand of the group.
+ *
+ * @return CvtrDimension	The dimension, or null if a category is in the group more than
+ * 							once, or the group has units and an operand without units.
+ */
+	public static CvtrDimension of(List<CvtrOperand> stack, int start) {
+		int idx, i, j, end, count = 0;
+		int[] typeList, unitList, powerList;
+		CvtrOperand oper;
+
+		for (end=start+1; end < stack.size() && stack.get(end).groupUnit; end++)
+			;
+		typeList = new int[end - start];
+		unitList = new int[end - start];
+		powerList = new int[end - start];
+		for (idx=start; idx < end; idx++) {
+			oper = stack.get(idx);
+			// A number is only part of a group without units
+			if (oper.indexType < 0) {
+				if (end - start > 1 || oper.unitPower != 1)
+					return null;
+				continue;
+			}
+			// Insert in order of category
+			for (i=count; i > 0 && typeList[i - 1] > oper.indexType; i--)
+				;
+			if (i > 0 && typeList[i - 1] == oper.indexType)
+				return null;
+			for (j=count; j > i; j--) {
+				typeList[j] = typeList[j - 1];
+				unitList[j] = unitList[j - 1];
+				powerList[j] = powerList[j - 1];
+			}
+			typeList[i] = oper.indexType;
+			unitList[i] = oper.indexUnit;
+			powerList[i] = oper.unitPower;
+			count++;
+		}
+		if (count == 0)
+			return NONE;
+
+		return new CvtrDimension(Arrays.copyOf(typeList, count), Arrays.copyOf(unitList, count), Arrays.copyOf(powerList, count));
+	} /* end of */
+
+/**
+ * Test whether two dimensions have the same units and powers.
+ *
+ * @param o	The other dimension.
+ *
+ * @return boolean	True if the dimensions are equal.
+ */
+	public boolean equals(Object o) {
+		CvtrDimension d;
+
+		if (this == o)
+			return true;
+		if (!(o instanceof CvtrDimension))
+			return false;
+		d = (CvtrDimension) o;
+
+		return hash == d.hash && Arrays.equals(types, d.types) && Arrays.equals(units, d.units) && Arrays.equals(powers, d.powers);
+	}
+
+/**
+ * Get the hash code of the dimension.
+ *
+ * @return int	The hash code.
+ */
+	public int hashCode() {
+		return hash;
+	}
+
+/**
+ * Get the dimension as a string of category:unit^power, for debugging.
+ *
+ * @return String	The dimension.
+ */
+	public String toString() {
+		int i;
+		String s = "";
+
+		for (i=0; i < types.length; i++)
+			s += ((i > 0) ? " " : "") + types[i] + ":" + units[i] + "^" + powers[i];
+
+		return "[" + s + "]";
+	}
+
+}
@@ -0,0 +1,602 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The Convertator Disk Cache saves the results of calculations in a file, so that they
+ * are available after a restart.  The file is memory mapped, and has three parts:
+ * <ul>
+ *   <li>Header: The file identifier, version, number of slots, end of the data, and
+ *       the fingerprint of the catalog that last used the file.</li>
+ *   <li>Slots: An open addressing hash table where each slot is an 8 octet hash of the
+ *       key (0 if the slot is empty) and the 8 octet location of its record.</li>
+ *   <li>Data: Records which are only appended.  Each record is a 4 octet length, a 4 octet
+ *       CRC-32 of the rest of the record, the 8 octet catalog fingerprint, the key,
+ *       a flag which is 1 if the value is an error, and the value.  The value of an
+ *       error is its 4 octet code, 4 octet location, 4 octet number of values, and the
+ *       values as Strings.  Strings are a 4 octet length followed by UTF-8 text.</li>
+ * </ul>
+ * A record is written before the end of the data is moved past it, and the slot is
+ * written after that, with the hash last.  A record is only used if its checksum,
+ * fingerprint and key match, so a file that was not completely written when the
+ * computer stopped loses only the results that were being saved.
+ * <p/>
+ * Each key includes the catalog fingerprint, so results calculated with other data files
+ * are ignored.  The file is compacted, which removes the results of other catalogs, when
+ * it is opened with a different catalog, and when it is full.  Compaction writes a new
+ * file and renames it over the old one, so the old file is used until the new one is
+ * complete.  The old file is closed and its mapping released before the rename, since
+ * some systems, such as Windows, do not replace a file that is open or mapped.  The
+ * file is locked, so only one program uses it at a time.  The file is mapped as one
+ * buffer, so it is never larger than 2 GB, and a result that does not fit is not saved.
+ */
+public class CvtrDiskCache
+{
+	static final boolean verbose = false;
+	final private static long fileId = 0x4356545243414348L;	// CVTRCACH
+	final private static int fileVersion = 2;
+	final private static int headerSize = 64;
+	final private static int slotSize = 16;
+	final private static int minSlots = 1 << 14;
+	final private static int maxSlots = 1 << 24;
+	final private static long minData = 1 << 22;
+	final private static long maxData = 1L << 30;
+	// The largest file that can be mapped as one buffer, which holds maxSlots and maxData
+	final private static long maxFile = Integer.MAX_VALUE;
+	// Header fields
+	final private static int hId = 0, hVersion = 8, hSlots = 12, hDataEnd = 16, hUsed = 24, hFingerprint = 32;
+
+/**
+ * The Saved Result is a result read from the file, which is either the formatted result
+ * or the error.
+ */
+	public static class Saved
+	{
+	/** The formatted result, or null if there was an error. */
+		public final String result;
+	/** The calculation error, if result is null. */
+		public final CvtrError error;
+
+	/**
+	 * The Saved Result constructor.
+	 *
+	 * @param res	The formatted result, or null if there was an error.
+	 * @param err	The calculation error, if res is null.
+	 */
+		public Saved(String res, CvtrError err) {
+			result = res;
+			error = err;
+		}
+	}
+
+	public String errorMessage = null;
+
+	private Path cachePath;
+	private FileChannel channel = null;
+	private FileLock lock = null;
+	private MappedByteBuffer map = null;
+	private int slotCount;
+	private long dataStart, dataEnd, fileSize;
+	private int usedSlots;
+	private CRC32 crc = new CRC32();
+	// The way to release a mapping before its buffer is collected, or null if the JVM
+	// does not have one
+	private static Object unmapper = null;
+	private static Method unmapMethod = null;
+
+	static {
+		Class <?> unsafe;
+		Field field;
+
+		try {
+			unsafe = Class.forName("sun.misc.Unsafe");
+			field = unsafe.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unmapMethod = unsafe.getMethod("invokeCleaner", ByteBuffer.class);
+			unmapper = field.get(null);
+		} catch (ReflectiveOperationException | RuntimeException err) {
+			unmapMethod = null;	// The mapping is released when it is collected
+		}
+	}
+
+/**
+ * The Convertator Disk Cache constructor opens or creates the cache file.  If the file
+ * was last used with a different catalog, it is compacted.
+ *
+ * @param filename	The cache file, usually in the Convertator home directory.
+ * @param fingerprint	The fingerprint of the current catalog.
+ *
+ * @throws IllegalArgumentException	If the file cannot be opened or is used by another program.
+ */
+	public CvtrDiskCache(String filename, long fingerprint) throws IllegalArgumentException {
+		IllegalArgumentException exception;
+
+		cachePath = Paths.get(filename);
+		try {
+			if (!openFile(cachePath, minSlots, minData)) {
+				exception = new IllegalArgumentException(errorMessage);
+				throw exception;
+			}
+			// A compaction that did not finish is discarded, which is only done while
+			// holding the lock, so it is not the compaction of another program
+			Files.deleteIfExists(Paths.get(filename + ".tmp"));
+			if (map.getLong(hFingerprint) != fingerprint && usedSlots > 0)
+				compact(fingerprint, 0);
+			map.putLong(hFingerprint, fingerprint);
+		} catch (IOException err) {
+			close();
+			exception = new IllegalArgumentException("Error opening result cache " + filename + ":\n  " + err.getMessage());
+			throw exception;
+		}
+	}
+
+/**
+ * Open and map a cache file, creating it if it does not exist or is not valid.
+ *
+ * @param path	The cache file.
+ * @param slots	The number of slots for a new file, which is a power of 2.
+ * @param dataSize	The size of the data for a new file.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ *
+ * @throws IOException	If the file cannot be read or written.
+ */
+	private boolean openFile(Path path, int slots, long dataSize) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException err) {
+			lock = null;	// Locked by this program
+		}
+		if (lock == null) {
+			errorMessage = "Result cache " + path + " is used by another program";
+			channel.close();
+			channel = null;
+			return false;
+		}
+		fileSize = channel.size();
+		if (fileSize >= headerSize && fileSize <= maxFile) {
+			map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+			slotCount = map.getInt(hSlots);
+			dataStart = headerSize + (long) slotCount * slotSize;
+			dataEnd = map.getLong(hDataEnd);
+			usedSlots = map.getInt(hUsed);
+			if (map.getLong(hId) == fileId && map.getInt(hVersion) == fileVersion && Integer.bitCount(slotCount) == 1 &&
+					slotCount > 0 && slotCount <= maxSlots && dataStart <= dataEnd && dataEnd <= fileSize)
+				return true;
+		}
+
+		// Create a new file
+if (verbose)
+System.out.println("Create result cache " + path);
+		unmap(map);
+		map = null;
+		channel.truncate(0);
+		slotCount = slots;
+		dataStart = headerSize + (long) slotCount * slotSize;
+		fileSize = dataStart + dataSize;
+		// Writing the last octet sets the file size, and the rest reads as zeros
+		channel.write(ByteBuffer.allocate(1), fileSize - 1);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+		dataEnd = dataStart;
+		usedSlots = 0;
+		map.putInt(hVersion, fileVersion);
+		map.putInt(hSlots, slotCount);
+		map.putLong(hDataEnd, dataEnd);
+		map.putInt(hUsed, usedSlots);
+		map.putLong(hId, fileId);
+
+		return true;
+	} /* end openFile */
+
+/**
+ * Close the cache file.  The mapping is released, so the file can be replaced or
+ * deleted, even on systems that do not allow it while a file is mapped.
+ */
+	public synchronized void close() {
+		try {
+			if (map != null) {
+				map.force();
+				unmap(map);
+			}
+			if (lock != null)
+				lock.release();
+			if (channel != null)
+				channel.close();
+		} catch (IOException err) {
+			;	// Ignore errors
+		}
+		map = null;
+		lock = null;
+		channel = null;
+	}
+
+/**
+ * Get a saved result.
+ *
+ * @param fingerprint	The fingerprint of the catalog used for the calculation.
+ * @param key	The normalized equation and format options.
+ *
+ * @return Saved	The result or the error, or null if the result is not saved.
+ */
+	public synchronized Saved get(long fingerprint, String key) {
+		int idx, probe;
+		long hash, offset;
+		byte[] keyBytes;
+		Saved saved;
+
+		if (map == null)
+			return null;
+		keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		hash = hashKey(fingerprint, keyBytes);
+		idx = (int) hash & (slotCount - 1);
+		for (probe=0; probe < slotCount; probe++) {
+			offset = headerSize + (long) idx * slotSize;
+			if (map.getLong((int) offset) == 0)
+				return null;
+			if (map.getLong((int) offset) == hash && (saved = readRecord(map.getLong((int) offset + 8), fingerprint, keyBytes)) != null)
+				return saved;
+			idx = (idx + 1) & (slotCount - 1);
+		}
+
+		return null;
+	}
+
+/**
+ * Save a result.  The result is not saved if the key is already saved.
+ *
+ * @param fingerprint	The fingerprint of the catalog used for the calculation.
+ * @param key	The normalized equation and format options.
+ * @param result	The formatted result, or null if there was an error.
+ * @param error	The calculation error, if result is null.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	public synchronized boolean put(long fingerprint, String key, String result, CvtrError error) {
+		int idx;
+		long hash, offset, length;
+		byte[] keyBytes, valueBytes;
+
+		if (map == null || get(fingerprint, key) != null)
+			return map != null;
+		keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		valueBytes = (result != null) ? result.getBytes(StandardCharsets.UTF_8) : errorBytes(error);
+		hash = hashKey(fingerprint, keyBytes);
+		length = 8 + 8 + 4 + keyBytes.length + 1 + 4 + valueBytes.length;
+
+		try {
+			// Remove old results, and resize the file for the results that are kept
+			if (dataEnd + length > fileSize || (usedSlots + 1) * 4L > slotCount * 3L) {
+				compact(fingerprint, length);
+				if (dataEnd + length > fileSize || (usedSlots + 1) * 4L > slotCount * 3L) {
+					errorMessage = "Result cache is full";
+					return false;
+				}
+			}
+		} catch (IOException err) {
+			errorMessage = "Error compacting result cache:\n  " + err.getMessage();
+			return false;
+		}
+
+		// Write the record, then the end of the data, then the slot
+		offset = dataEnd;
+		writeRecord(offset, fingerprint, keyBytes, result == null, valueBytes);
+		dataEnd += length;
+		map.putLong(hDataEnd, dataEnd);
+		idx = (int) hash & (slotCount - 1);
+		while (map.getLong(headerSize + idx * slotSize) != 0)
+			idx = (idx + 1) & (slotCount - 1);
+		map.putLong(headerSize + idx * slotSize + 8, offset);
+		map.putLong(headerSize + idx * slotSize, hash);
+		map.putInt(hUsed, ++usedSlots);
+
+		return true;
+	} /* end put */
+
+/**
+ * Write a record in the data.
+ *
+ * @param offset	The location of the record.
+ * @param fingerprint	The catalog fingerprint.
+ * @param keyBytes	The key.
+ * @param isError	True if the value is an error.
+ * @param valueBytes	The value.
+ */
+	private void writeRecord(long offset, long fingerprint, byte[] keyBytes, boolean isError, byte[] valueBytes) {
+		int pos = (int) offset + 8;
+
+		map.putLong(pos, fingerprint);
+		map.putInt(pos + 8, keyBytes.length);
+		map.put(pos + 12, keyBytes);
+		pos += 12 + keyBytes.length;
+		map.put(pos, (byte) (isError ? 1 : 0));
+		map.putInt(pos + 1, valueBytes.length);
+		map.put(pos + 5, valueBytes);
+		pos += 5 + valueBytes.length;
+		map.putInt((int) offset, pos - (int) offset - 8);
+		map.putInt((int) offset + 4, checksum((int) offset + 8, pos - (int) offset - 8));
+	}
+
+/**
+ * Get the value of a record of an error.
+ *
+ * @param error	The error.
+ *
+ * @return byte[]	The code, location and values of the error.
+ */
+	private static byte[] errorBytes(CvtrError error) {
+		int i, length = 12;
+		Object[] values = error.getValues();
+		byte[][] valueBytes = new byte[values.length][];
+		ByteBuffer buffer;
+
+		for (i=0; i < values.length; i++) {
+			valueBytes[i] = String.valueOf(values[i]).getBytes(StandardCharsets.UTF_8);
+			length += 4 + valueBytes[i].length;
+		}
+		buffer = ByteBuffer.allocate(length);
+		buffer.putInt(error.getCode()).putInt(error.getOffset()).putInt(values.length);
+		for (i=0; i < values.length; i++)
+			buffer.putInt(valueBytes[i].length).put(valueBytes[i]);
+
+		return buffer.array();
+	}
+
+/**
+ * Get the error of the value of a record.
+ *
+ * @param bytes	The value.
+ *
+ * @return CvtrError	The error, or null if the value is not valid.
+ */
+	private static CvtrError readError(byte[] bytes) {
+		int i, code, location, count, length;
+		String[] values;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		CvtrError error = new CvtrError();
+
+		if (bytes.length < 12)
+			return null;
+		code = buffer.getInt();
+		location = buffer.getInt();
+		count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining() / 4)
+			return null;
+		values = new String[count];
+		for (i=0; i < count; i++) {
+			if (buffer.remaining() < 4 || (length = buffer.getInt()) < 0 || length > buffer.remaining())
+				return null;
+			values[i] = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		error.set(code, location, (Object[]) values);
+
+		return error;
+	}
+
+/**
+ * Read a record, checking that it is complete and matches the key.
+ *
+ * @param offset	The location of the record.
+ * @param fingerprint	The catalog fingerprint, or 0 to accept any fingerprint.
+ * @param keyBytes	The key, or null to accept any key.
+ *
+ * @return Saved	The result or the error, or null if the record is not valid or does
+ * 					not match.
+ */
+	private Saved readRecord(long offset, long fingerprint, byte[] keyBytes) {
+		int pos, length, keyLength, valueLength;
+		byte[] bytes;
+		CvtrError error;
+
+		if (offset < dataStart || offset + 8 > dataEnd)
+			return null;
+		pos = (int) offset;
+		length = map.getInt(pos);
+		if (length < 17 || offset + 8 + length > dataEnd || map.getInt(pos + 4) != checksum(pos + 8, length))
+			return null;
+		if (fingerprint != 0 && map.getLong(pos + 8) != fingerprint)
+			return null;
+		keyLength = map.getInt(pos + 16);
+		if (keyLength < 0 || keyLength > length - 17 || (keyBytes != null && keyLength != keyBytes.length))
+			return null;
+		if (keyBytes != null) {
+			bytes = new byte[keyLength];
+			map.get(pos + 20, bytes);
+			if (!Arrays.equals(bytes, keyBytes))
+				return null;
+		}
+		pos += 20 + keyLength;
+		valueLength = map.getInt(pos + 1);
+		bytes = new byte[valueLength];
+		map.get(pos + 5, bytes);
+		if (map.get(pos) != 1)
+			return new Saved(new String(bytes, StandardCharsets.UTF_8), null);
+		if ((error = readError(bytes)) == null)
+			return null;
+
+		return new Saved(null, error);
+	} /* end readRecord */
+
+/**
+ * Rewrite the file with only the results of the current catalog.  The new file has
+ * room for twice the results that are kept, and is written beside the old one and
+ * renamed over it when it is complete.
+ *
+ * @param fingerprint	The fingerprint of the current catalog.
+ * @param extra	The size of the data that will be added after compacting.
+ *
+ * @throws IOException	If the file cannot be written.
+ */
+	public synchronized void compact(long fingerprint, long extra) throws IOException {
+		int i, keyLength, slots = minSlots, kept = 0;
+		long offset, dataSize, keptSize = extra;
+		byte[] keyBytes;
+		Saved saved;
+		Path tmpPath = Paths.get(cachePath.toString() + ".tmp");
+		CvtrDiskCache newCache;
+		IOException exception;
+
+if (verbose)
+System.out.println("Compact result cache: " + usedSlots + " results");
+		// Find the size of the results that are kept
+		for (i=0; i < slotCount; i++) {
+			offset = map.getLong(headerSize + i * slotSize + 8);
+			if (map.getLong(headerSize + i * slotSize) != 0 && readRecord(offset, fingerprint, null) != null) {
+				kept++;
+				keptSize += 8 + map.getInt((int) offset);
+			}
+		}
+		while (slots < kept * 4L && slots < maxSlots)
+			slots <<= 1;
+		dataSize = Math.min(maxData, Math.max(minData, keptSize * 2));
+
+		Files.deleteIfExists(tmpPath);
+		newCache = new CvtrDiskCache(tmpPath, slots, dataSize);
+		for (i=0; i < slotCount; i++) {
+			if (map.getLong(headerSize + i * slotSize) == 0)
+				continue;
+			offset = map.getLong(headerSize + i * slotSize + 8);
+			if ((saved = readRecord(offset, fingerprint, null)) == null)
+				continue;
+			keyLength = map.getInt((int) offset + 16);
+			keyBytes = new byte[keyLength];
+			map.get((int) offset + 20, keyBytes);
+			if (!newCache.put(fingerprint, new String(keyBytes, StandardCharsets.UTF_8), saved.result, saved.error))
+				break;
+		}
+		newCache.map.putLong(hFingerprint, fingerprint);
+		newCache.close();
+
+		// Replace the old file once neither file is open or mapped, which some systems
+		// require, and map the new one.  No other thread uses the cache until it is
+		// open again, and if the new file cannot be moved the old one is opened again.
+		close();
+		try {
+			Files.move(tmpPath, cachePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException err) {
+			Files.deleteIfExists(tmpPath);
+			openFile(cachePath, slotCount, fileSize - dataStart);
+			throw err;
+		}
+		if (!openFile(cachePath, slots, dataSize)) {
+			exception = new IOException(errorMessage);
+			throw exception;
+		}
+if (verbose)
+System.out.println("Compacted result cache: " + usedSlots + " results");
+	} /* end compact */
+
+/**
+ * The constructor for the new file written by compact.
+ *
+ * @param path	The new file.
+ * @param slots	The number of slots, which is a power of 2.
+ * @param dataSize	The size of the data.
+ *
+ * @throws IOException	If the file cannot be written.
+ */
+	private CvtrDiskCache(Path path, int slots, long dataSize) throws IOException {
+		IOException exception;
+
+		cachePath = path;
+		if (!openFile(path, slots, dataSize)) {
+			exception = new IOException(errorMessage);
+			throw exception;
+		}
+	}
+
+/**
+ * Release the mapping of a buffer, which must not be used again.
+ *
+ * @param buffer	The mapped buffer, or null.
+ */
+	private static void unmap(MappedByteBuffer buffer) {
+		if (buffer == null || unmapMethod == null)
+			return;
+		try {
+			unmapMethod.invoke(unmapper, buffer);
+		} catch (ReflectiveOperationException | RuntimeException err) {
+			;	// The mapping is released when it is collected
+		}
+	}
+
+/**
+ * Get the number of saved results.
+ *
+ * @return int	The number of results.
+ */
+	public synchronized int size() {
+		return usedSlots;
+	}
+
+/**
+ * Calculate the hash of a key, which is never 0.
+ *
+ * @param fingerprint	The catalog fingerprint.
+ * @param keyBytes	The key.
+ *
+ * @return long	The hash.
+ */
+	private long hashKey(long fingerprint, byte[] keyBytes) {
+		int i;
+		long hash = 0xcbf29ce484222325L ^ fingerprint;
+
+		for (i=0; i < keyBytes.length; i++) {
+			hash ^= keyBytes[i] & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 29;
+
+		return (hash == 0) ? 1 : hash;
+	}
+
+/**
+ * Calculate the CRC-32 of part of the file.
+ *
+ * @param pos	The start of the data.
+ * @param length	The length of the data.
+ *
+ * @return int	The checksum.
+ */
+	private int checksum(int pos, int length) {
+		crc.reset();
+		crc.update(map.slice(pos, length));
+
+		return (int) crc.getValue();
+	}
+
+}
@@ -16,11 +16,15 @@
  * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA. 
  */
 
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * The primary function of the Convertator Engine class is to parse an equation that contains units,
@@ -34,6 +38,50 @@ import java.util.Arrays;
  */
 public class CvtrEngine
 {
+/**
+ * The Nest Frame is a nesting level whose groups are being reduced by getEquationNesting.
+ */
+	private static class NestFrame
+	{
+		private final int level;
+		private final ArrayList<CvtrOperand> nestStack;
+		private final ArrayList<ArrayList<CvtrOperand>> groupList;
+		private final ArrayList<CvtrOperand> newStack = new ArrayList<CvtrOperand>();
+		// The next group to be reduced, and whether it is being reduced at the next level
+		private int index = 0;
+		private boolean reducing = false;
+
+		private NestFrame(int lvl, ArrayList<CvtrOperand> stack, ArrayList<ArrayList<CvtrOperand>> groups) {
+			level = lvl;
+			nestStack = stack;
+			groupList = groups;
+		}
+	}
+
+/**
+ * The Reduce Frame is a group of operands being reduced by reduceGroups.
+ */
+	private static class ReduceFrame
+	{
+		private final static int start = 0, groups = 1, operations = 2, function = 3;
+		private final ArrayList<CvtrOperand> groupStack;
+		private final int nLevel;
+		private final ArrayList<ArrayList<CvtrOperand>> groupList = new ArrayList<ArrayList<CvtrOperand>>();
+		// The step of the reduction, and the next group to be reduced or operated on
+		private int state = start;
+		private int index = 0;
+		private int first = 0;
+		// The result of the operations so far, and of the last operation
+		private ArrayList<CvtrOperand> newStack = new ArrayList<CvtrOperand>();
+		private ArrayList<CvtrOperand> tempStack = new ArrayList<CvtrOperand>();
+		private ArrayList<CvtrOperand> result = null;
+
+		private ReduceFrame(ArrayList<CvtrOperand> stack, int level) {
+			groupStack = stack;
+			nLevel = level;
+		}
+	}
+
 	static final boolean verbose = false;
 	public CvtrFile cvtrFile = null;
 	public String errorMessage = null;
@@ -44,42 +92,89 @@ public class CvtrEngine
 	private String opList = " ()+-*/%^&|#!\\";
 	// Group types must set none, addsub to 0 and 1 respectively
 	final private static int none = 0, addsub = 1, mult = 2, div = 3;
-	private String[] sBases = {"Binary (n#)", "Octal (o#)", "Decimal", "Hexadecimal (x#)", "Degrees (g#)", "Radians (r#)", "DottedDec (i#)", "ASCII (s'..')", "Unicode (u'..')"};
+	// The most products of terms calculated for each multiplication of a group power
+	final private static int maxPowerTerms = 100000;
+	// The largest integer for which every smaller integer is exact in a double
+	final private static double maxExact = 9007199254740992.0;
+	final private static String[] sBases = {"Binary (n#)", "Octal (o#)", "Decimal", "Hexadecimal (x#)", "Degrees (g#)", "Radians (r#)", "DottedDec (i#)", "ASCII (s'..')", "Unicode (u'..')"};
 	private String[] digitList = {"01", "01234567", "0123456789.-", "0123456789abcdefABCDEF", "0123456789.-", "0123456789.-", "0123456789."};
-	private int[] digitLen = {32, 10, 23, 8, 23, 23, 1000};
+	// The decimal separator of decimal, degree and radian numbers
+	private char decimalSeparator = '.';
+	// The digits of an integer base are the 64 bits of a long, unsigned
+	private int[] digitLen = {64, 22, 23, 16, 23, 23, 1000};
 	final private static int bin = 0, oct = 1, dec = 2, hex = 3, deg = 4, rad = 5, dot = 6, asc = 7, uni = 8;
 	final private static int ddBase = dot;
 	private String[] sPrecision = {"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10"};
 	private int iPrecision = 0;
-	private String keyCodes = "n(o)x+g-r*i/s%u^S&O|T#L!l\\d";
+	final private static String keyCodes = "n(o)x+g-r*i/s%u^S&O|T#L!l\\d";
+// The String of each ASCII character, which is shared by every parsed character
+	final private static String[] asciiStrings = newCharStrings(128);
 	public boolean scientificNotation = false;
 
 /** The complete list of Units which can have a binary search performed on the abbreviation. */
 	public CvtrUnit[] cUnits = null;
+// The public lists are taken from the current catalog, and each calculation uses the
+// catalog that was current when it started
+	private volatile CvtrCatalog catalog = null;
+	private CvtrCatalog calcCatalog = null;
+// The reduced form of the last calculation, which is created when it is first used
+	private CvtrFinal finalForm = null;
+// Scratch arrays reused by each calculation, which grow to fit the largest equation
+	private int[] scratchTypes = new int[8], scratchUnits = new int[8];
+	private String[] scratchAbbrevs = new String[8];
+	private double[] scratchFactors = new double[8];
+// The operands of each calculation, which are reused by the next calculation
+	private ArrayList <CvtrOperand> operandPool = new ArrayList<CvtrOperand>();
+	private int poolNext = 0;
+	final private static int maxPoolSize = 4096;
+// The stack of parsed operands and the nest groups of displayed stacks, which are reused
+	private ArrayList <CvtrOperand> parseStack = new ArrayList<CvtrOperand>();
+	private int[] displayGroup = new int[nestLevels];
+// The nest groups of the operands, which are shared by the operands in the same groups
+	private CvtrNestPaths nestPaths = new CvtrNestPaths();
+	final private static int maxNestPaths = 65536;
+// The unit power difference of each category, which is only cleared for the categories used
+	private int[] unitPowerDiff = new int[0];
+// The limits of each calculation, and the state of the current calculation
+	private CvtrBudget budget = CvtrBudget.unlimited;
+	private long deadline;
+	private int budgetChecks;
+	private int budgetError = CvtrError.none;
+	private String budgetReason;
+// The error of a fixed point number divided by 0, which ends the calculation when it is reduced
+	private int zeroDivide = CvtrError.none;
+	private CvtrCancel cancelRequest = null;
+// The fixed point of decimal numbers, or null if they are doubles
+	private CvtrFixed fixedPoint = null;
+// The cache of results, which may be shared by several engines
+	private CvtrCache resultCache = null;
+	private CvtrDiskCache diskCache = null;
+// The catalog shared by all engines, which is read when the first engine is created
+	private static volatile CvtrCatalog sharedCatalog = null;
 /** The list of Unit names, in order of category. */
-	public ArrayList <String[]> UnitNames = new ArrayList<String[]>();
+	public List <String[]> UnitNames = null;
 /** The list of Unit conversion values, in order of category. */
-	public ArrayList <String[]> UnitValues = new ArrayList<String[]>();
+	public List <String[]> UnitValues = null;
 /** The list of Unit categories. */
-	public ArrayList <String> UnitCategories = new ArrayList<String>();
+	public List <String> UnitCategories = null;
 /** The list of Unit files, in order of category. */
-	public ArrayList <String> UnitFiles = new ArrayList<String>();
+	public List <String> UnitFiles = null;
 /** The list of Constant names, in order of category. */
-	public ArrayList <String[]> ConstantNames = new ArrayList<String[]>();
+	public List <String[]> ConstantNames = null;
 /** The list of Constant values, in order of category. */
-	public ArrayList <String[]> ConstantValues = new ArrayList<String[]>();
+	public List <String[]> ConstantValues = null;
 /** The list of Constant categories. */
-	public ArrayList <String> ConstantCategories = new ArrayList<String>();
+	public List <String> ConstantCategories = null;
 /** The list of Constant files, in order of category. */
-	public ArrayList <String> ConstantFiles = new ArrayList<String>();
+	public List <String> ConstantFiles = null;
 /** The list of Equation names, in order of category. */
-	public ArrayList <String[]> EquationNames = new ArrayList<String[]>();
+	public List <String[]> EquationNames = null;
 /** The list of Equation values, in order of category. */
-	public ArrayList <String[]> EquationValues = new ArrayList<String[]>();
+	public List <String[]> EquationValues = null;
 /** The list of Equation categories. */
-	public ArrayList <String> EquationCategories = new ArrayList<String>();
+	public List <String> EquationCategories = null;
 /** The list of Equation files, in order of category. */
-	public ArrayList <String> EquationFiles = new ArrayList<String>();
+	public List <String> EquationFiles = null;
 
 // Global values for calculations
 	private ArrayList <CvtrOperand> operandStack;
@@ -87,17 +182,20 @@ public class CvtrEngine
 	private int metaNest;
 	private int powerLevel;
 	private int maxNesting;
-// The maximum depth of nested parentheses
-	final private static int maxNestLevel = 64;
-	private int[] nestGroup = new int[maxNestLevel];
+// The group at each depth of nested parentheses, which grows to fit the deepest equation
+	final private static int nestLevels = 64;
+	private int[] nestGroup = new int[nestLevels];
+// The interned path of the groups up to each depth, which is the path of a new operand
+	private int[][] nestPath = new int[nestLevels][];
 	private ArrayList <ArrayList<String>> groupCount;
 	private String currentOperator;
 	private int currentBase;
 	private boolean powerOperator;
 	private int quoteLocation;
 	private boolean charEquation;
-	private String calcError;
-	private String calcProgress;
+	private final CvtrError calcError = new CvtrError();
+	private StringBuilder calcProgress = new StringBuilder();
+	private boolean recordWork = false;
 	
 /**
  * The Convertator Engine constructor sets the parent class, which must provide the
@@ -123,6 +221,17 @@ public class CvtrEngine
 		}
 	}
 
+/**
+ * The Convertator Engine constructor for an engine that uses an existing catalog.
+ * No files are read, so this is the fastest way to create more engines, for example
+ * one for each thread.  The engine has no file handler (cvtrFile is null).
+ * 
+ * @param cc	The catalog, which may be shared by any number of engines.
+ */
+	public CvtrEngine(CvtrCatalog cc) {
+		setCatalog(cc);
+	}
+
 /**
  * Initialize the data for the Engine.
  * 
@@ -137,84 +246,89 @@ public class CvtrEngine
 			errorMessage = "Error creating Convertator file handler:\n  " + err.getMessage();
 			return false;
 		}
-		if (!cvtrFile.getDataFiles(this)) {
-			errorMessage = cvtrFile.errorMessage;
+		try {
+			setCatalog(getSharedCatalog());
+		} catch (IllegalArgumentException err) {
+			errorMessage = err.getMessage();
 			return false;
-		} else if (cvtrFile.errorMessage != null) {
-			errorMessage = cvtrFile.errorMessage;
 		}
-
-		if (UnitCategories.size() == 0 || ConstantCategories.size() == 0 || EquationCategories.size() == 0)
-			setDefaults();
-		setUnits();
+		if (catalog.warning != null)
+			errorMessage = catalog.warning;
 
 		return true;
 	}
 
 /**
- * Setting the Convertator engine defaults simply puts placeholders in every array.
+ * Set the catalog of Units, Constants and Equations.  A calculation in progress
+ * continues to use the catalog that was current when it started.
+ * 
+ * @param cc	The new catalog.
  */
-	public void setDefaults() {
-		String[] names = {"NONE"}, values = {"NONE"};
-
-		if (UnitCategories.size() == 0) {
-			UnitNames.add(names);
-			UnitValues.add(values);
-			UnitCategories.add("NONE");
-		}
-		if (ConstantCategories.size() == 0) {
-			ConstantNames.add(names);
-			ConstantValues.add(values);
-			ConstantCategories.add("NONE");
-		}
-		if (EquationCategories.size() == 0) {
-			EquationNames.add(names);
-			EquationValues.add(values);
-			EquationCategories.add("NONE");
-		}
+	public void setCatalog(CvtrCatalog cc) {
+		cUnits = cc.cUnits;
+		UnitNames = cc.UnitNames;
+		UnitValues = cc.UnitValues;
+		UnitCategories = cc.UnitCategories;
+		UnitFiles = cc.UnitFiles;
+		ConstantNames = cc.ConstantNames;
+		ConstantValues = cc.ConstantValues;
+		ConstantCategories = cc.ConstantCategories;
+		ConstantFiles = cc.ConstantFiles;
+		EquationNames = cc.EquationNames;
+		EquationValues = cc.EquationValues;
+		EquationCategories = cc.EquationCategories;
+		EquationFiles = cc.EquationFiles;
+		if (calcCatalog == null)
+			calcCatalog = cc;
+		catalog = cc;
 	}
 
 /**
- * Set the Units for fast searches when parsing Equations.
+ * Get the catalog shared by all engines, reading the data files the first time.
  * 
- * @return boolean	True if successful.
- * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ * @return CvtrCatalog	The catalog.
+ * 
+ * @throws IllegalArgumentException	If the conversion data cannot be read from the
+ * 									application or user files (*.cvd).
  */
-	private boolean setUnits() {
-		int i = 0, j = 0, unitSize = 0, idx = 0;
-		String[] uName = null, uValue = null;
-
-		for (i=0; i < UnitCategories.size(); i++)
-			unitSize += UnitNames.get(i).length;
+	public static CvtrCatalog getSharedCatalog() throws IllegalArgumentException {
+		CvtrFile cf;
+		IllegalArgumentException exception;
 
-		try {
-			cUnits = new CvtrUnit[unitSize];
-			for (i=0; i < UnitCategories.size(); i++) {
-				j = 0;
-				uName = UnitNames.get(i);
-				uValue = UnitValues.get(i);
-				for (; j < UnitNames.get(i).length; j++) {
-					cUnits[idx++] = new CvtrUnit(uName[j], uValue[j], i, j, keyCodes);
+		if (sharedCatalog == null) {
+			synchronized (CvtrEngine.class) {
+				if (sharedCatalog == null) {
+					try {
+						cf = new CvtrFile();
+					} catch (Exception err) {
+						exception = new IllegalArgumentException("Error creating Convertator file handler:\n  " + err.getMessage());
+						throw exception;
+					}
+					sharedCatalog = CvtrCatalog.load(cf, keyCodes);
 				}
 			}
-		} catch (IllegalArgumentException err) {
-			String errData;
-			if (uName != null)
-				errData = uName[j] + ", ";
-			else
-				errData = "Unknown, ";
-			if (uValue != null)
-				errData += uValue[j];
-			else
-				errData += "Unknown";
-			errorMessage = "Error in Unit " + errData + ":\n\n  " + err.getMessage();
-			return false;
 		}
 
-		// Sort the Units by abbreviation
-		Arrays.sort(cUnits);
+		return sharedCatalog;
+	}
 
-		return true;
+/**
+ * Set the catalog shared by all engines, which is used by engines created later.
+ * Existing engines are not changed.
+ * 
+ * @param cc	The new catalog.
+ */
+	public static void setSharedCatalog(CvtrCatalog cc) {
+		sharedCatalog = cc;
+	}
+
+/**
+ * Get the current catalog of Units, Constants and Equations.
+ * 
+ * @return CvtrCatalog	The catalog.
+ */
+	public CvtrCatalog getCatalog() {
+		return catalog;
 	}
 
 /**
@@ -378,7 +492,7 @@ public class CvtrEngine
  * 
  * @return String	The abbreviation of the unit.
  */
-	public String getUnitAbbrev(String uName) {
+	public static String getUnitAbbrev(String uName) {
 		int i, j;
 
 		if ((i = uName.indexOf("(")) < 0 || (j = uName.indexOf(")")) < 0 || j < i) {
@@ -396,21 +510,231 @@ public class CvtrEngine
  * @return CvtrUnit	The unit information.  If the unit is not found, null is returned.
  */
 	public CvtrUnit getUnit(String uName) {
-		int i;
+		return findUnit(catalog, uName, -1);
+	}
+
+/**
+ * Get the CvtrUnit element from a catalog.
+ * 
+ * @param cc	The catalog to be searched.
+ * @param uName	The abbreviation of the unit.
+ * 
+ * @param offset	The location of the unit in the equation, or -1 if it is not known.
+ * 
+ * @return CvtrUnit	The unit information.  If the unit is not found, null is returned.
+ */
+	private CvtrUnit findUnit(CvtrCatalog cc, String uName, int offset) {
 		CvtrUnit cu;
 
-		try {
-			cu = new CvtrUnit("temp (" + uName + ")", "1", 0, 0, keyCodes);
-			if ((i = Arrays.binarySearch(cUnits, cu)) >= 0) {
-				return cUnits[i];
-			}
-		} catch (IllegalArgumentException err) {
-			calcError = "?? Unit " + uName;
-			return null;
+		if ((cu = cc.findUnit(uName)) == null)
+			calcError.set(CvtrError.unit, offset, uName);
+
+		return cu;
+	}
+
+/**
+ * Set the cache used by evaluate.
+ * 
+ * @param cache	The cache, which may be shared by several engines, or null for no cache.
+ */
+	public void setCache(CvtrCache cache) {
+		resultCache = cache;
+	}
+
+/**
+ * Set the file used by evaluate to save results after the program ends.
+ * 
+ * @param cache	The disk cache, which may be shared by several engines, or null for none.
+ */
+	public void setDiskCache(CvtrDiskCache cache) {
+		diskCache = cache;
+	}
+
+/**
+ * Set the limits of each calculation.
+ * 
+ * @param limits	The budget, or null for no limits.
+ */
+	public void setBudget(CvtrBudget limits) {
+		budget = (limits == null) ? CvtrBudget.unlimited : limits;
+	}
+
+/**
+ * Get the limits of each calculation.
+ * 
+ * @return CvtrBudget	The budget.
+ */
+	public CvtrBudget getBudget() {
+		return budget;
+	}
+
+/**
+ * Set the decimal separator of decimal numbers in equations and results, which is a
+ * period or, for locales that use one, a comma.  With a comma, a period in a decimal
+ * number is an error, like a second separator.  Dotted decimal numbers always use
+ * periods.
+ * 
+ * @param separator	The separator, which is '.' or ','.  Any other character is '.'.
+ */
+	public void setDecimalSeparator(char separator) {
+		decimalSeparator = (separator == ',') ? ',' : '.';
+		// A period is read as part of the number, so it is not an operand of its own
+		digitList[dec] = digitList[deg] = digitList[rad] = "0123456789.-" + ((decimalSeparator == ',') ? "," : "");
+	}
+
+/**
+ * Get the decimal separator of decimal numbers in equations.
+ * 
+ * @return char	The separator, which is '.' or ','.
+ */
+	public char getDecimalSeparator() {
+		return decimalSeparator;
+	}
+
+/**
+ * Set whether the steps of each calculation are recorded for showWork.  Recording
+ * displays the stack at every step, so it is off unless the steps are shown.
+ * 
+ * @param on	True to record the steps.
+ */
+	public void setShowWork(boolean on) {
+		recordWork = on;
+	}
+
+/**
+ * Set the fixed point of decimal numbers.  With a fixed point, decimal numbers are
+ * calculated as fixed point numbers with its scale and rounding, and any result that
+ * does not fit, or that is converted to another unit or is the result of a function
+ * other than NOT, is calculated as a double.
+ * 
+ * @param fp	The fixed point, or null to calculate decimal numbers as doubles.
+ */
+	public void setFixedPoint(CvtrFixed fp) {
+		fixedPoint = fp;
+	}
+
+/**
+ * Get the fixed point of decimal numbers.
+ * 
+ * @return CvtrFixed	The fixed point, or null if decimal numbers are doubles.
+ */
+	public CvtrFixed getFixedPoint() {
+		return fixedPoint;
+	}
+
+/**
+ * Set the Cancel of the following calculations, which another thread uses to stop
+ * them.  A request that uses an engine from a pool sets its own Cancel, and sets null
+ * before it returns the engine.
+ * 
+ * @param request	The Cancel of the request, or null if the calculations are not
+ * 					cancelled.
+ */
+	public void setCancel(CvtrCancel request) {
+		cancelRequest = request;
+	}
+
+/**
+ * Get the Cancel of the following calculations.
+ * 
+ * @return CvtrCancel	The Cancel, or null if the calculations are not cancelled.
+ */
+	public CvtrCancel getCancel() {
+		return cancelRequest;
+	}
+
+/**
+ * Calculate an equation and get the formatted result.  If a cache is set, the result
+ * is taken from the cache when the same equation was calculated with the same precision,
+ * notation, fixed point, decimal separator and format.  The memory cache is searched
+ * first, then the disk cache.  When the result is taken from a cache, the equation is
+ * not calculated, so getResultUnits and showWork do not apply to it.  A calculation
+ * stopped by its budget is not saved.
+ * 
+ * @param equation	The equation to be calculated.
+ * @param format	The base and units to be used for the answer, or null for the
+ * 					units of the equation.
+ * 
+ * @return String	The formatted result.  If there is an error, the error message is
+ * 					available from getCalcError and null is returned.
+ */
+	public String evaluate(final String equation, final CvtrResult[] format) {
+		int i;
+		String key;
+		CvtrDiskCache.Saved saved;
+		final CvtrCatalog cc = catalog;
+		CvtrCache.Entry entry;
+
+		if (resultCache == null && diskCache == null)
+			return calculateResult(equation, format);
+		// Only a calculation that is stopped by its budget sets this again
+		budgetError = CvtrError.none;
+
+		key = equation.trim() + "\n" + iPrecision + "\n" + scientificNotation + "\n";
+		if (fixedPoint != null)
+			key += "fixed " + fixedPoint + "\n";
+		if (decimalSeparator != '.')
+			key += "separator " + decimalSeparator + "\n";
+		if (format != null) {
+			for (i=0; i < format.length; i++)
+				key += (format[i].resultBase ? "b" : "u") + format[i].indexType + "." + format[i].indexUnit + "." + format[i].resultAbbrev + ";";
 		}
+		if (resultCache == null) {
+			saved = savedResult(key, cc, equation, format);
+			if (saved.result == null)
+				calcError.set(saved.error);
+			return saved.result;
+		}
+		final String cacheKey = key;
+		entry = resultCache.get(key, cc, () -> {
+			CvtrDiskCache.Saved s = savedResult(cacheKey, cc, equation, format);
+			return resultCache.newEntry(s.result, s.error, budgetError == CvtrError.none);
+		});
+		if (entry.result == null)
+			calcError.set(entry.error);
 
-		calcError = "?? Unit " + uName;
-		return null;
+		return entry.result;
+	} /* end evaluate */
+
+/**
+ * Get a result from the disk cache, or calculate it and save it in the disk cache.
+ * 
+ * @param key	The normalized equation and format options.
+ * @param cc	The catalog current when the request was made.
+ * @param equation	The equation to be calculated.
+ * @param format	The base and units to be used for the answer.
+ * 
+ * @return CvtrDiskCache.Saved	The formatted result or the error.
+ */
+	private CvtrDiskCache.Saved savedResult(String key, CvtrCatalog cc, String equation, CvtrResult[] format) {
+		String result;
+		CvtrDiskCache.Saved saved;
+
+		if (diskCache != null && (saved = diskCache.get(cc.fingerprint, key)) != null)
+			return saved;
+		result = calculateResult(equation, format);
+		saved = new CvtrDiskCache.Saved(result, (result == null) ? calcError : null);
+		// A result calculated after the catalog changed belongs to the new catalog, and
+		// a calculation that was stopped may succeed with another budget
+		if (diskCache != null && calcCatalog == cc && budgetError == CvtrError.none)
+			diskCache.put(cc.fingerprint, key, saved.result, saved.error);
+
+		return saved;
+	}
+
+/**
+ * Calculate an equation and get the formatted result.
+ * 
+ * @param equation	The equation to be calculated.
+ * @param format	The base and units to be used for the answer.
+ * 
+ * @return String	The formatted result, or null if there is an error.
+ */
+	private String calculateResult(String equation, CvtrResult[] format) {
+		if (calculate(equation, 0) < 0)
+			return null;
+
+		return getResult(format);
 	}
 
 /**
@@ -419,32 +743,105 @@ public class CvtrEngine
  * @return String	The error message.
  */
 	public String getCalcError() {
-		return calcError;
+		return calcError.getMessage();
 	}
 
 /**
- * Initialize the global values maintained for equations at the beginning of each calculation.
+ * Get the calculation error code if the return value from calculate is -1.  An error
+ * taken from the result cache by evaluate has the code and location of the calculation
+ * that saved it.
+ * 
+ * @return int	The error code of CvtrError.
+ */
+	public int getErrorCode() {
+		return calcError.getCode();
+	}
+
+/**
+ * Get the location in the equation of the calculation error if the return value from
+ * calculate is -1.  Errors found while reducing the equation have no location.
+ * 
+ * @return int	The offset of the character, or -1 if it is not known.
+ */
+	public int getErrorOffset() {
+		return calcError.getOffset();
+	}
+
+/**
+ * Initialize the result and the operand stack at the beginning of each calculation.
  */
 	private void initCalc() {
-		int i;
+		calcCatalog = catalog;
+		// Operands of the last calculation are reused
+		if (operandPool.size() > maxPoolSize)
+			operandPool.subList(maxPoolSize, operandPool.size()).clear();
+		poolNext = 0;
+		parseStack.clear();
+		operandStack = parseStack;
+		calcProgress.setLength(0);
+		calcError.set(CvtrError.internal, -1);
+		budgetError = CvtrError.none;
+		budgetChecks = 0;
+		zeroDivide = CvtrError.none;
+		if (budget.timeLimit > 0)
+			deadline = System.nanoTime() + budget.timeLimit * 1000000;
+		EquationResult = null;
+		finalForm = null;
+		quoteLocation = -1;
+		charEquation = false;
+	}
 
-		operandStack = new ArrayList<CvtrOperand>();
-		for (i=0; i < maxNestLevel; i++)
-			nestGroup[i] = 0;
+/**
+ * Initialize the global values used to parse an equation.
+ */
+	private void initParse() {
+		if (nestPaths.size() > maxNestPaths)
+			nestPaths.clear();
+		// Only the levels of the last equation were used
+		Arrays.fill(nestGroup, 0, Math.min(maxNesting + 1, nestGroup.length), 0);
+		nestPath[0] = nestPaths.zeros(1);
 		maxNesting = 0;
 		groupCount = new ArrayList<ArrayList<String>>();
 		groupCount.add(new ArrayList<String>());
 		groupCount.get(0).add("0");
-		calcError = "?? Internal";
 		currentOperator = "";
 		currentBase = -1;
 		nestLevel = 0;
 		metaNest = 0;
 		powerLevel = 0;
 		powerOperator = false;
-		EquationResult = null;
-		quoteLocation = -1;
-		charEquation = false;
+	}
+
+/**
+ * Get an operand for the current calculation.  The operands of the last calculation
+ * are reused, and new operands are only created when there are not enough of them.
+ * 
+ * @return CvtrOperand	The operand, with the initial settings of a new operand.
+ */
+	private CvtrOperand newOperand() {
+		CvtrOperand oper;
+
+		if (poolNext < operandPool.size()) {
+			oper = operandPool.get(poolNext++);
+			oper.reset();
+		} else {
+			oper = new CvtrOperand();
+			operandPool.add(oper);
+			poolNext++;
+		}
+
+		return oper;
+	}
+
+/**
+ * Duplicate an operand with an operand of the current calculation.
+ * 
+ * @param from	The operand to be duplicated.
+ * 
+ * @return CvtrOperand	The duplicated operand.
+ */
+	private CvtrOperand dupOperand(CvtrOperand from) {
+		return newOperand().copyFrom(from);
 	}
 
 /**
@@ -480,7 +877,7 @@ public class CvtrEngine
 				i = 0;
 			groupCount.get(x).set(y, "" + i);
 		} catch (IndexOutOfBoundsException err) {
-			calcError = "?? Internal";
+			calcError.set(CvtrError.internal, -1);
 			return false;
 		}
 
@@ -488,38 +885,106 @@ public class CvtrEngine
 	} /* end modifyGroupCount */
 
 /**
- * Perform calculations on the Equation string.  This routine is recursive as needed.
+ * Calculate an equation read from a stream, such as a generated equation that is too
+ * large to be a String.  The characters are read as they are parsed, and the parsed
+ * characters are dropped, so the whole equation is never in memory.
  * 
- * @param equation	The equation to be calculated.
- * @param index	The location in the equation to start parsing.  This is used for calling
- *				the method recursively and the original call should always use zero.
+ * @param input	The stream of the equation, which is not closed.
+ * 
+ * @return int	The length of the equation.  If -1, there was an error.
+ */
+	public int calculate(Reader input) {
+		int i;
+		CvtrStream stream = new CvtrStream(input);
+
+		i = calculate(stream, 0);
+		if (stream.getError() != null) {
+			calcError.set(CvtrError.readError, -1, stream.getError().getMessage());
+			return -1;
+		}
+
+		return i;
+	}
+
+/**
+ * Perform calculations on the Equation.  Each pair of parentheses is parsed in the same
+ * loop, with the depth of the open parentheses counted instead of a recursive call, so
+ * the nesting is only limited by memory.  The calculation is stopped if it exceeds
+ * its budget or is cancelled.
+ * 
+ * @param equation	The equation to be calculated, which may be any sequence of characters.
+ * @param index	The location in the equation to start parsing.  The original call should
+ *				always use zero.
  * 
  * @return int	The location in the equation left to parse.  If -1, there was an error.
  *				Success is indicated by a return value that equals the length of the equation.
  */
-	public int calculate(String equation, int index) {
-		int i, newIndex = index;
+	public int calculate(CharSequence equation, int index) {
+		int i = calculateEquation(equation, index);
+
+		// A calculation that was stopped may end with the error of an incomplete group
+		if (budgetError != CvtrError.none) {
+			if (calcError.getCode() != budgetError)
+				calcError.set(budgetError, -1, budgetReason);
+			return -1;
+		}
+		if (zeroDivide != CvtrError.none) {
+			calcError.set(zeroDivide, -1);
+			return -1;
+		}
+
+		return i;
+	}
+
+/**
+ * Parse and calculate the Equation for calculate.
+ * 
+ * @param equation	The equation to be calculated.
+ * @param index	The location in the equation to start parsing.
+ * 
+ * @return int	The location in the equation left to parse.  If -1, there was an error.
+ */
+	private int calculateEquation(CharSequence equation, int index) {
+		int i, newIndex = index, depth = 0, start, tokens = 0;
 		String temp;
-		CvtrOperand oper = new CvtrOperand();
+		CvtrOperand oper;
+		CvtrStream stream = (equation instanceof CvtrStream) ? (CvtrStream) equation : null;
 if (verbose)
-System.out.println("Calculate: " + equation.substring(index));
+System.out.println("Calculate: " + equation.subSequence(index, equation.length()));
 		// Initialize the operand stack and global calculation values
 		if (index == 0) {
 			initCalc();
-			calcProgress = equation + "\n";
+			// The characters of a stream are not all held, so they are not shown
+			if (recordWork && stream == null)
+				calcProgress.append(equation).append("\n");
+			// A request that was cancelled before it started is not calculated
+			if (overBudget())
+				return -1;
+			// Simple conversions are calculated without the parser
+			if ((i = quickCalculate(equation)) >= 0)
+				return i;
+			initParse();
 		}
 
 		while (newIndex < equation.length()) {
-			temp = equation.substring(newIndex, newIndex + 1);
+			start = newIndex;
+			// The characters before the token are not parsed again
+			if (stream != null)
+				stream.release(start);
+			temp = charString(equation, newIndex);
 			// Skip spaces
 			if (temp.equals(" ")) {
 				newIndex++;
 				continue;
 			}
+			if (budget.maxTokens > 0 && ++tokens > budget.maxTokens)
+				return parseError(overLimit("tokens", start));
+			if (overBudget())
+				return parseError(start);
 			// Parsing a string
 			if (newIndex < quoteLocation) {
 				if ((newIndex = parseValue(equation, newIndex)) == -1)
-					return -1;
+					return parseError(start);
 			// Open parentheses generates a recursive call to calculate
 			} else if (temp.equals("(")) {
 				newIndex++;
@@ -530,14 +995,14 @@ System.out.println("Calculate: " + equation.substring(index));
 				}
 				if (maxNesting < nestLevel)
 					maxNesting = nestLevel;
-				if (nestLevel > maxNestLevel) {
-					calcError = "?? Max ()";
-					return -1;
+				if (nestLevel >= nestGroup.length) {
+					nestGroup = Arrays.copyOf(nestGroup, nestLevel * 2);
+					nestPath = Arrays.copyOf(nestPath, nestLevel * 2);
 				}
+				nestPath[nestLevel] = nestPaths.extend(nestPath[nestLevel - 1], nestGroup[nestLevel]);
 if (verbose)
 System.out.println(" Open Paren level = " + nestLevel);
-				if ((newIndex = calculate(equation, newIndex)) == -1)
-					return -1;
+				depth++;
 			// Close parentheses must have a match with open parens
 			} else if (temp.equals(")")) {
 				currentOperator = "";
@@ -552,12 +1017,15 @@ System.out.println(" Open Paren level = " + nestLevel);
 					metaNest--;
 				}
 				if (nestLevel < 0) {
-					calcError = "?? )";
-					return -1;
+					calcError.set(CvtrError.closeParen, newIndex - 1);
+					return parseError(start);
 				}
 if (verbose)
 System.out.println(" Close Paren level = " + nestLevel + ", " + nestGroup[nestLevel]);
-				return newIndex;
+				// A close parenthesis without an open one ends the equation
+				if (depth == 0)
+					return newIndex;
+				depth--;
 			// Test for operators
 			} else if (temp.equals("+") || temp.equals("-") ||
 						temp.equals("*") || temp.equals("/") ||
@@ -568,11 +1036,11 @@ System.out.println(" Close Paren level = " + nestLevel + ", " + nestGroup[nestLe
 					// First number is negative
 					if (temp.equals("-")) {
 						if ((newIndex = parseValue(equation, newIndex)) == -1) {
-							return -1;
+							return parseError(start);
 						}
 					} else {
-						calcError = "?? " + temp;
-						return -1;
+						calcError.set(CvtrError.badCharacter, newIndex, temp);
+						return parseError(start);
 					}
 				} else {
 					i = operandStack.size() - 1;
@@ -584,7 +1052,7 @@ System.out.println(" Close Paren level = " + nestLevel + ", " + nestGroup[nestLe
 						// Check for new open parenthesis, function, or unary operator
 						i = operandStack.size() - 1;
 						// Space after minus sign, treat as operator
-						if (newIndex < (equation.length() - 1) && equation.substring(newIndex + 1, newIndex + 2).equals(" ")) {
+						if (newIndex < (equation.length() - 1) && charString(equation, newIndex + 1).equals(" ")) {
 							i = -1;
 							newIndex++;
 						// Normal processing
@@ -595,7 +1063,7 @@ System.out.println(" Close Paren level = " + nestLevel + ", " + nestGroup[nestLe
 						else
 							i = 1;
 						if (i >= 0 && (newIndex = parseValue(equation, newIndex)) == -1)
-							return -1;
+							return parseError(start);
 						// Operator is always valid after open parenthesis
 						if (i > 0) {
 							currentOperator = "";
@@ -604,14 +1072,14 @@ System.out.println(" Close Paren level = " + nestLevel + ", " + nestGroup[nestLe
 						}
 					// Test that operations are enclosed in parentheses
 					} else if (!currentOperator.equals(temp)) {
-						if (!verifyOperation(currentOperator, temp)) {
-							return -1;
+						if (!verifyOperation(CvtrOperand.getOpCode(currentOperator), CvtrOperand.getOpCode(temp))) {
+							return parseError(start);
 						}
 						currentOperator = temp;
 						newIndex++;
 					} else if (temp.equals("/") && currentOperator.equals("/")) {
-						calcError = "?? (//)";
-						return -1;
+						calcError.set(CvtrError.doubleDivide, -1);
+						return parseError(start);
 					} else {
 						newIndex++;
 					}
@@ -630,8 +1098,8 @@ System.out.println(" Power operator level: " + nestLevel);
 						temp.equals("L") || temp.equals("l") ||
 						temp.equals("\\") || temp.equals("!")) {
 				newIndex++;
-				oper = new CvtrOperand();
-				oper.operation = temp;
+				oper = newOperand();
+				oper.opCode = CvtrOperand.getOpCode(temp);
 				oper.function = true;
 				oper.sValue = temp;
 				// Create a function group
@@ -643,15 +1111,13 @@ System.out.println(" Power operator level: " + nestLevel);
 				}
 				if (maxNesting < nestLevel)
 					maxNesting = nestLevel;
-				if (nestLevel > maxNestLevel) {
-					calcError = "?? Max ()";
-					return -1;
+				if (nestLevel >= nestGroup.length) {
+					nestGroup = Arrays.copyOf(nestGroup, nestLevel * 2);
+					nestPath = Arrays.copyOf(nestPath, nestLevel * 2);
 				}
+				nestPath[nestLevel] = nestPaths.extend(nestPath[nestLevel - 1], nestGroup[nestLevel]);
 				oper.nestLevel = nestLevel;
-				oper.nestGroup = new int[nestLevel + 1];
-				for (i=0; i < (nestLevel + 1); i++) {
-					oper.nestGroup[i] = nestGroup[i];
-				}
+				oper.nestGroup = nestPath[nestLevel];
 				operandStack.add(oper);
 if (verbose)
 System.out.println(" Function: " + oper.sValue + ", Nesting: " + nestLevel + ", " + nestGroup[nestLevel]);
@@ -664,7 +1130,7 @@ System.out.println(" Function: " + oper.sValue + ", Nesting: " + nestLevel + ",
 				else
 					i = 1;
 				if ((newIndex = parseValue(equation, newIndex)) == -1)
-					return -1;
+					return parseError(start);
 				// Operator is always valid after open parenthesis
 				if (i == 1) {
 					currentOperator = "";
@@ -685,7 +1151,7 @@ if (verbose)
 System.out.println(" == Nest level: " + nestLevel + ", Meta nest: " + metaNest);
 	// if (newIndex == equation.length() && (metaNest == 0 && nestLevel > 0)) {
 		if (newIndex == equation.length() && metaNest != nestLevel) {
-			calcError = "?? (";
+			calcError.set(CvtrError.openParen, newIndex);
 			return -1;
 		}
 
@@ -699,22 +1165,25 @@ System.out.println(" == Nest level: " + nestLevel + ", Meta nest: " + metaNest);
 			return newIndex;
 		}
 		// Get greatest unit conversion factor (smallest unit) for each category
-		calcProgress += "  Unit conversion:\n";
+		if (recordWork)
+			calcProgress.append("  Unit conversion:\n");
 		if (!reduceUnits())
 			return -1;
 		// Test for operations or functions in equation
 		for (i=0; i < operandStack.size(); i++) {
-			if (operandStack.get(i).function || operandStack.get(i).operation.length() > 0)
+			if (operandStack.get(i).function || operandStack.get(i).opCode != CvtrOperand.opNone)
 				break;
 		}
 		// Equation includes operands
 		if (i < operandStack.size()) {
-			calcProgress += displayStack(operandStack) + "\n  Initial reduction:\n";
+			if (recordWork)
+				calcProgress.append(displayStack(operandStack)).append("\n  Initial reduction:\n");
 			// Calculate the result
-			calcError = "";
-			if ((operandStack = getEquationNesting(0, maxNesting, operandStack)) == null || calcError.length() > 0)
+			calcError.set(CvtrError.none, -1);
+			if ((operandStack = getEquationNesting(0, maxNesting, operandStack)) == null || calcError.isSet())
 				return -1;
-			calcProgress += displayStack(operandStack) + "\n  Group reduction:\n";
+			if (recordWork)
+				calcProgress.append(displayStack(operandStack)).append("\n  Group reduction:\n");
 			if (!finalEquation())
 				return -1;
 		}
@@ -724,7 +1193,257 @@ System.out.println(" == Nest level: " + nestLevel + ", Meta nest: " + metaNest);
 		}
 
 		return newIndex;
-	} /* end calculate */
+	} /* end calculateEquation */
+
+/**
+ * End the parsing of an equation with an error.  An error without a location is at
+ * the start of the operand or operator being parsed.
+ * 
+ * @param start	The location of the operand or operator.
+ * 
+ * @return int	Always -1.
+ */
+	private int parseError(int start) {
+		calcError.locate(start);
+
+		return -1;
+	}
+
+/**
+ * Stop the calculation because a limit of its budget is exceeded.
+ * 
+ * @param reason	The limit, which is shown in the error message.
+ * @param offset	The location in the equation, or -1 if it is not known.
+ * 
+ * @return int	The location.
+ */
+	private int overLimit(String reason, int offset) {
+		budgetError = CvtrError.limit;
+		budgetReason = reason;
+		calcError.set(budgetError, offset, reason);
+
+		return offset;
+	}
+
+/**
+ * Test whether the calculation was cancelled or has exceeded its budget of operands or
+ * time.  It is called by each step of the loops that parse and reduce an equation, and
+ * once it is true it stays true until the calculation ends.  The time is only read
+ * every few steps.
+ * 
+ * @return boolean	True if the calculation must stop, and the class error code is set.
+ */
+	private boolean overBudget() {
+		if (budgetError != CvtrError.none)
+			return true;
+		if (cancelRequest != null && cancelRequest.isCancelled()) {
+			budgetError = CvtrError.cancelled;
+			budgetReason = null;
+			calcError.set(budgetError, -1);
+			return true;
+		}
+		if (budget.maxOperands > 0 && poolNext > budget.maxOperands) {
+			overLimit("operands", -1);
+			return true;
+		}
+		if (budget.timeLimit > 0 && (++budgetChecks & 15) == 0 && System.nanoTime() - deadline > 0) {
+			overLimit("time", -1);
+			return true;
+		}
+
+		return false;
+	}
+
+/**
+ * Test whether a group expanded by multiplication would have more terms than the budget.
+ * 
+ * @param terms	The number of terms of the expanded group.
+ * 
+ * @return boolean	True if the calculation must stop, and the class error code is set.
+ */
+	private boolean overTerms(long terms) {
+		if (budget.maxTerms > 0 && terms > budget.maxTerms) {
+			overLimit("terms", -1);
+			return true;
+		}
+
+		return overBudget();
+	}
+
+/**
+ * Calculate an equation that is a decimal number with a unit, or with a unit divided
+ * by a unit of another category such as 60 mi/hr, without parsing it.  The operands,
+ * result units and calculation progress are the same as calculate creates, since the
+ * reduction of these equations does not change them.  Any other equation is left to
+ * calculate, including numbers with an exponent or a base and units that are the same
+ * category, which are converted.
+ * 
+ * @param equation	The equation to be calculated.
+ * 
+ * @return int	The length of the equation, or -1 if it is not one of these forms.
+ */
+	private int quickCalculate(CharSequence equation) {
+		int idx, start, first, end, length = equation.length();
+		String unit, divUnit = null, display;
+		CvtrUnit cu, divCu = null;
+		CvtrOperand oper;
+
+		// The number, which may be negative
+		idx = skipSpaces(equation, 0);
+		start = idx;
+		if (idx < length && equation.charAt(idx) == '-')
+			idx++;
+		if (!isDigit(equation, idx))
+			return -1;
+		while (isDigit(equation, idx))
+			idx++;
+		if (idx < length && equation.charAt(idx) == decimalSeparator) {
+			idx++;
+			while (isDigit(equation, idx))
+				idx++;
+		}
+		if (idx - start >= digitLen[dec] || (idx < length && digitList[dec].indexOf(equation.charAt(idx)) >= 0))
+			return -1;
+		first = start;
+		end = idx;
+
+		// The unit, which ends at an operator or space
+		start = skipSpaces(equation, idx);
+		idx = unitEnd(equation, start);
+		if (idx == start || (cu = calcCatalog.findUnit(unit = equation.subSequence(start, idx).toString())) == null)
+			return -1;
+		idx = skipSpaces(equation, idx);
+
+		// The unit divided by, which must not start as a base, a number or a function
+		if (idx < length && equation.charAt(idx) == '/') {
+			start = skipSpaces(equation, idx + 1);
+			idx = unitEnd(equation, start);
+			if (idx == start || "nomxgri0123456789.SOTLl".indexOf(equation.charAt(start)) >= 0 ||
+					indexOf(equation.subSequence(start, idx), '\'', 0) >= 0)
+				return -1;
+			if ((divCu = calcCatalog.findUnit(divUnit = equation.subSequence(start, idx).toString())) == null ||
+					divCu.indexType == cu.indexType)
+				return -1;
+			idx = skipSpaces(equation, idx);
+		}
+		// The length of a stream is only known once it has been read to the end
+		if (idx < (length = equation.length()))
+			return -1;
+if (verbose)
+System.out.println("Quick calculate: " + equation.subSequence(first, end) + " " + unit + ((divUnit == null) ? "" : "/" + divUnit));
+
+		oper = newOperand();
+		if (fixedPoint == null || !oper.setFixed(fixedPoint, fixedPoint.parse(equation, first, end, decimalSeparator)))
+			oper.value = CvtrNumber.parseDecimal(equation, first, end, decimalSeparator);
+		oper.base = dec;
+		oper.unit = unit;
+		oper.indexType = cu.indexType;
+		oper.indexUnit = cu.indexUnit;
+		oper.conversionFactor = cu.conversionFactor;
+		oper.nestGroup = nestPaths.zeros(1);
+		operandStack.add(oper);
+		if (divCu != null) {
+			oper = newOperand();
+			oper.opCode = CvtrOperand.opDiv;
+			oper.base = dec;
+			oper.unit = divUnit;
+			oper.indexType = divCu.indexType;
+			oper.indexUnit = divCu.indexUnit;
+			oper.conversionFactor = divCu.conversionFactor;
+			oper.nestGroup = nestPaths.zeros(1);
+			operandStack.add(oper);
+			// The stack is displayed by each step of the reduction
+			if (recordWork) {
+				display = displayStack(operandStack);
+				calcProgress.append("  Unit conversion:\n").append(display).append("\n  Initial reduction:\n");
+				calcProgress.append(display).append("\n").append(display).append("\n  Group reduction:\n");
+			}
+			calcError.set(CvtrError.none, -1);
+		}
+		getResultUnits();
+
+		return length;
+	} /* end quickCalculate */
+
+/**
+ * Test whether a character of an equation is a decimal digit.
+ * 
+ * @param equation	The equation.
+ * @param index	The location of the character, which may be the end of the equation.
+ * 
+ * @return boolean	True if the character is 0 to 9.
+ */
+	private static boolean isDigit(CharSequence equation, int index) {
+		return index < equation.length() && equation.charAt(index) >= '0' && equation.charAt(index) <= '9';
+	}
+
+/**
+ * Get the value of a part of a dotted decimal number, which is converted the same as
+ * Long.parseLong without its exception.  Only the range of a part is needed, so a value
+ * that is too large is returned as 256.
+ * 
+ * @param part	The characters of the part.
+ * 
+ * @return int	The value from 0 to 256, or -1 if it is negative, or -2 if it is not
+ * 				a number.
+ */
+	private static int dottedPart(String part) {
+		int i = 0, digit;
+		long value = 0, limit = -Long.MAX_VALUE;
+		boolean negative = false;
+
+		if (part.length() > 0 && (part.charAt(0) == '-' || part.charAt(0) == '+')) {
+			negative = (part.charAt(0) == '-');
+			if (negative)
+				limit = Long.MIN_VALUE;
+			i++;
+		}
+		if (i == part.length())
+			return -2;
+		// The value is accumulated as a negative number, which does not overflow
+		for (; i < part.length(); i++) {
+			if ((digit = Character.digit(part.charAt(i), 10)) < 0 || value < limit / 10)
+				return -2;
+			value *= 10;
+			if (value < limit + digit)
+				return -2;
+			value -= digit;
+		}
+		if (!negative)
+			value = -value;
+
+		return (value < 0) ? -1 : (value > 255) ? 256 : (int) value;
+	}
+
+/**
+ * Skip the spaces in an equation.
+ * 
+ * @param equation	The equation.
+ * @param index	The location to start skipping.
+ * 
+ * @return int	The location of the next character that is not a space.
+ */
+	private static int skipSpaces(CharSequence equation, int index) {
+		while (index < equation.length() && equation.charAt(index) == ' ')
+			index++;
+
+		return index;
+	}
+
+/**
+ * Find the end of a unit in an equation, which is the next operator or space.
+ * 
+ * @param equation	The equation.
+ * @param index	The location of the unit.
+ * 
+ * @return int	The location after the unit.
+ */
+	private int unitEnd(CharSequence equation, int index) {
+		while (index < equation.length() && opList.indexOf(equation.charAt(index)) < 0)
+			index++;
+
+		return index;
+	}
 
 /**
  * Parse the value of the operand and perform any operations based operands currently
@@ -735,9 +1454,9 @@ System.out.println(" == Nest level: " + nestLevel + ", Meta nest: " + metaNest);
  * 
  * @return int	The location in the equation left to parse.  If -1, there was an error.
  */
-	private int parseValue(String equation, int index) {
-		int i, j, idx, newIndex = index, pLen;
-		long l, l1;
+	private int parseValue(CharSequence equation, int index) {
+		int i, j, idx, newIndex = index, pLen, pStart, pEnd;
+		long l;
 		double d;
 		byte[] b;
 		boolean setPower = false;
@@ -745,149 +1464,136 @@ System.out.println(" == Nest level: " + nestLevel + ", Meta nest: " + metaNest);
 		CvtrOperand oper;
 		CvtrUnit cu;
 if (verbose)
-System.out.println("Parse value: " + equation.substring(index));
+System.out.println("Parse value: " + equation.subSequence(index, equation.length()));
 
-		if ((pLen = equation.substring(index).length()) == 0) {
+		if ((pLen = equation.length() - index) == 0) {
 			newIndex++;
 			return newIndex;
 		}
 
 		// Get the operand container
-		oper = new CvtrOperand();
-		oper.operation = currentOperator;
+		oper = newOperand();
+		oper.opCode = CvtrOperand.getOpCode(currentOperator);
 		oper.nestLevel = nestLevel;
-		oper.nestGroup = new int[nestLevel + 1];
-		for (i=0; i < (nestLevel + 1); i++) {
-			oper.nestGroup[i] = nestGroup[i];
-		}
+		oper.nestGroup = nestPath[nestLevel];
 // sBases = "Binary (n)", "Octal (o)", "Decimal (m)", "Hexadecimal (x)",
 //          "Degrees (g)", "Radians (r)",
 //          "DottedDec (i)", "ASCII (s')", "Unicode (u')"
 		if (pLen > 1 && newIndex > quoteLocation) {
-			if (equation.substring(newIndex, newIndex + 1).equals("n")) {
+			if (charString(equation, newIndex).equals("n")) {
 				if (pLen == 1) {
-					calcError = "?? n|";
+					calcError.set(CvtrError.basePrefix, newIndex, "n");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[bin].indexOf(temp) >= 0) {
 					oper.base = bin;
 					newIndex++;
 				} else {
-					calcError = "?? n|";
+					calcError.set(CvtrError.basePrefix, newIndex, "n");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("o")) {
+			} else if (charString(equation, newIndex).equals("o")) {
 				if (pLen == 1) {
-					calcError = "?? o|";
+					calcError.set(CvtrError.basePrefix, newIndex, "o");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[oct].indexOf(temp) >= 0) {
 					oper.base = oct;
 					newIndex++;
 				} else {
-					calcError = "?? o|";
+					calcError.set(CvtrError.basePrefix, newIndex, "o");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("m")) {
+			} else if (charString(equation, newIndex).equals("m")) {
 				if (pLen == 1) {
-					calcError = "?? m|";
+					calcError.set(CvtrError.basePrefix, newIndex, "m");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[oct].indexOf(temp) >= 0) {
 					oper.base = dec;
 					newIndex++;
 				} else {
-					calcError = "?? m|";
+					calcError.set(CvtrError.basePrefix, newIndex, "m");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("x")) {
+			} else if (charString(equation, newIndex).equals("x")) {
 				if (pLen == 1) {
-					calcError = "?? x|";
+					calcError.set(CvtrError.basePrefix, newIndex, "x");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[hex].indexOf(temp) >= 0) {
 					oper.base = hex;
 					newIndex++;
 				} else {
-					calcError = "?? x|";
+					calcError.set(CvtrError.basePrefix, newIndex, "x");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("g")) {
+			} else if (charString(equation, newIndex).equals("g")) {
 				if (pLen == 1) {
-					calcError = "?? g|";
+					calcError.set(CvtrError.basePrefix, newIndex, "g");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[deg].indexOf(temp) >= 0) {
 					oper.base = deg;
 					newIndex++;
 				} else {
-					calcError = "?? g|";
+					calcError.set(CvtrError.basePrefix, newIndex, "g");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("r")) {
+			} else if (charString(equation, newIndex).equals("r")) {
 				if (pLen == 1) {
-					calcError = "?? r|";
+					calcError.set(CvtrError.basePrefix, newIndex, "r");
 					return -1;
 				}
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[rad].indexOf(temp) >= 0) {
 					oper.base = rad;
 					newIndex++;
 				} else {
-					calcError = "?? r|";
+					calcError.set(CvtrError.basePrefix, newIndex, "r");
 					return -1;
 				}
-			} else if (equation.substring(newIndex, newIndex + 1).equals("i")) {
+			} else if (charString(equation, newIndex).equals("i")) {
 				if (pLen == 1) {
-					calcError = "?? i|";
+					calcError.set(CvtrError.basePrefix, newIndex, "i");
 					return -1;
 				}
 				oper.base = dot;
-				temp = equation.substring(newIndex + 1, newIndex + 2);
+				temp = charString(equation, newIndex + 1);
 				if (temp.equals(" ") || digitList[dot].indexOf(temp) >= 0) {
 					oper.base = dot;
 					newIndex++;
 				} else {
-					calcError = "?? i|";
+					calcError.set(CvtrError.basePrefix, newIndex, "i");
 					return -1;
 				}
-			} else if (pLen > 2 && equation.substring(newIndex, newIndex + 2).equals("s'")) {
+			} else if (pLen > 2 && matchAt(equation, newIndex, "s'")) {
 				if (pLen == 2) {
-					calcError = "?? s'|";
+					calcError.set(CvtrError.basePrefix, newIndex, "s'");
 					return -1;
 				}
 				oper.base = asc;
 				newIndex += 2;
-				quoteLocation = equation.substring(newIndex).indexOf("'");
-				if (quoteLocation < 0)
+				if ((quoteLocation = indexOf(equation, '\'', newIndex)) < 0)
 					quoteLocation = equation.length();
-				else
-					quoteLocation += newIndex;
-			} else if (pLen > 2 && equation.substring(newIndex, newIndex + 2).equals("u'")) {
+			} else if (pLen > 2 && matchAt(equation, newIndex, "u'")) {
 				if (pLen == 2) {
-					calcError = "?? u'|";
+					calcError.set(CvtrError.basePrefix, newIndex, "u'");
 					return -1;
 				}
 				oper.base = uni;
 				newIndex += 2;
-				quoteLocation = equation.substring(newIndex).indexOf("'");
-				if (quoteLocation < 0)
+				if ((quoteLocation = indexOf(equation, '\'', newIndex)) < 0)
 					quoteLocation = equation.length();
-				else
-					quoteLocation += newIndex;
 			} else {
 				if (currentBase < 0) {
-					temp = equation.substring(newIndex, newIndex + 1);
-					try {
-						if (!temp.equals("-"))
-							Integer.parseInt(temp);
-					} catch (NumberFormatException e) {
-						calcError = "?? " + temp;
+					if (equation.charAt(newIndex) != '-' && Character.digit(equation.charAt(newIndex), 10) < 0) {
+						calcError.set(CvtrError.badCharacter, newIndex, charString(equation, newIndex));
 						return -1;
 					}
 					currentBase = dec;
@@ -901,14 +1607,11 @@ System.out.println("Parse value: " + equation.substring(index));
 			}
 		} else {
 			if (currentBase < 0) {
-				temp = equation.substring(newIndex, newIndex + 1);
-				try {
-					Integer.parseInt(temp);
-					currentBase = dec;
-				} catch (NumberFormatException e) {
-					calcError = "?? " + temp;
+				if (Character.digit(equation.charAt(newIndex), 10) < 0) {
+					calcError.set(CvtrError.badCharacter, newIndex, charString(equation, newIndex));
 					return -1;
 				}
+				currentBase = dec;
 			}
 			oper.base = currentBase;
 		}
@@ -916,51 +1619,40 @@ System.out.println("Parse value: " + equation.substring(index));
 		// Get the operand value for numbers
 if (verbose)
 System.out.println("  Base: " + oper.base);
-		while (newIndex < equation.length() && equation.substring(newIndex, newIndex + 1).equals(" "))
+		while (newIndex < equation.length() && charString(equation, newIndex).equals(" "))
 			newIndex++;
 		if (oper.base < ddBase) {
+			// The number is the digits of its base, and a decimal number may start
+			// with '-'.  Only an integer's worth of digits (digitLen) is read per operand.
 			idx = newIndex;
-			boolean numberEnd = false;
-			while (idx < equation.length()) {
-				temp = equation.substring(idx, idx + 1);
-				// Special case negative decimal numbers
-				if ((oper.base == dec || oper.base == deg || oper.base == rad) &&
-						number.length() == 0 && temp.equals("-")) {
-					number += temp;
-					idx++;
-				// Character is not numeric
-				} else if (digitList[oper.base].indexOf(temp) < 0) {
-					numberEnd = true;
-				} else {
-					number += temp;
-					idx++;
-				}
-				// No number entered, assume value is 1
-				if (number.length() == 0)
-					break;
-				// Only read an integer's worth of digits (digitLen) per operand
-				if (numberEnd || number.length() == digitLen[oper.base] || idx == equation.length()) {
-					newIndex = idx;
-					try {
-						if (oper.base == bin) {
-							l = Long.parseLong(number, 2);
-							oper.value = l;
-						} else if (oper.base == oct) {
-							l = Long.parseLong(number, 8);
-							oper.value = l;
-						} else if (oper.base == dec) {
-							oper.value = new Double(number);
-						} else if (oper.base == hex) {
-							l = Long.parseLong(number, 16);
-							oper.value = l;
-						} else {
-							oper.value = new Double(number);
-						}
-					} catch (NumberFormatException err) {
-						calcError = "?? " + number;
+			pEnd = Math.min(equation.length(), idx + digitLen[oper.base]);
+			while (idx < pEnd && digitList[oper.base].indexOf(equation.charAt(idx)) >= 0)
+				idx++;
+			// No number entered, assume value is 1
+			if (idx > newIndex) {
+				pStart = newIndex;
+				newIndex = idx;
+				// The digits of an integer base fit in an unsigned long, except the
+				// largest octal digit, and a decimal number is tested before it is
+				// converted, so no conversion fails
+				if (oper.base == bin) {
+					oper.setLong(CvtrNumber.parseRadix(equation, pStart, idx, 2));
+				} else if (oper.base == oct) {
+					if (idx - pStart == digitLen[oct] && equation.charAt(pStart) > '1') {
+						calcError.set(CvtrError.badNumber, pStart, equation.subSequence(pStart, idx).toString());
 						return -1;
 					}
-					break;
+					oper.setLong(CvtrNumber.parseRadix(equation, pStart, idx, 8));
+				} else if (oper.base == hex) {
+					oper.setLong(CvtrNumber.parseRadix(equation, pStart, idx, 16));
+				} else if (CvtrNumber.isDecimal(equation, pStart, idx, decimalSeparator)) {
+					// A fixed point number that does not fit is a double
+					if (oper.base != dec || fixedPoint == null ||
+							!oper.setFixed(fixedPoint, fixedPoint.parse(equation, pStart, idx, decimalSeparator)))
+						oper.value = CvtrNumber.parseDecimal(equation, pStart, idx, decimalSeparator);
+				} else {
+					calcError.set(CvtrError.badNumber, pStart, equation.subSequence(pStart, idx).toString());
+					return -1;
 				}
 			}
 			if (oper.base == deg) {
@@ -975,45 +1667,42 @@ System.out.println("  Base: " + oper.base);
 			j = 0;
 			temp = "";
 			idx = newIndex;
-			try {
-				while (j < 4) {
-					if (idx < equation.length())
-						number = equation.substring(idx, idx + 1);
-					if (idx == equation.length() || number.equals(".") || number.equals(" ")) {
-						l <<= 8;
-						l1 = (long) Long.parseLong(temp);
-						if (l1 > 255) {
-							calcError = "?? dd>255";
-							return -1;
-						} else if (l1 < 0) {
-							calcError = "?? dd<0";
-							return -1;
-						}
-						l |= l1;
-						oper.sValue += temp;
-						if (idx == equation.length() || number.equals(" "))
-							break;
-						if (j < 3)
-							oper.sValue += number;
-						idx++;
-						temp = "";
-						j++;
-					} else {
-						temp += number;
-						idx++;
+			while (j < 4) {
+				if (idx < equation.length())
+					number = charString(equation, idx);
+				if (idx == equation.length() || number.equals(".") || number.equals(" ")) {
+					l <<= 8;
+					if ((i = dottedPart(temp)) < -1) {
+						calcError.set(CvtrError.dotted, idx - temp.length());
+						return -1;
+					} else if (i > 255) {
+						calcError.set(CvtrError.dottedLarge, idx - temp.length());
+						return -1;
+					} else if (i < 0) {
+						calcError.set(CvtrError.dottedNegative, idx - temp.length());
+						return -1;
 					}
+					l |= i;
+					oper.sValue += temp;
+					if (idx == equation.length() || number.equals(" "))
+						break;
+					if (j < 3)
+						oper.sValue += number;
+					idx++;
+					temp = "";
+					j++;
+				} else {
+					temp += number;
+					idx++;
 				}
-			} catch (NumberFormatException err) {
-				calcError = "?? #.#";
-				return -1;
 			}
-			oper.value = l;
+			oper.setLong(l);
 			newIndex = idx;
 			charEquation = true;
 if (verbose)
 System.out.println("  Dotted decimal: " + oper.sValue);
 			if (!operandStack.add(oper)) {
-				calcError = "?? Stack Err";
+				calcError.set(CvtrError.stack, -1);
 				return -1;
 			}
 			if (newIndex == index)
@@ -1024,11 +1713,11 @@ System.out.println("  Dotted decimal: " + oper.sValue);
 if (verbose)
 System.out.println(" == Index: " + newIndex + ", qLoc: " + quoteLocation);
 			if (newIndex < quoteLocation) {
-				if (equation.substring(newIndex, quoteLocation).length() > 4) {
-					oper.sValue = equation.substring(newIndex, newIndex + 4);
+				if (quoteLocation - newIndex > 4) {
+					oper.sValue = equation.subSequence(newIndex, newIndex + 4).toString();
 					newIndex += 4;
 				} else {
-					oper.sValue = equation.substring(newIndex, quoteLocation);
+					oper.sValue = equation.subSequence(newIndex, quoteLocation).toString();
 					newIndex = quoteLocation + 1;
 				}
 				try {
@@ -1037,11 +1726,11 @@ System.out.println(" == Index: " + newIndex + ", qLoc: " + quoteLocation);
 					} else if (oper.base == uni) {
 						b = oper.sValue.getBytes("UTF-16");
 					} else {
-						calcError = "?? Base";
+						calcError.set(CvtrError.base, -1);
 						return -1;
 					}
 				} catch (UnsupportedEncodingException err) {
-					calcError = "?? 'Char Code'";
+					calcError.set(CvtrError.charCode, -1);
 					return -1;
 				}
 				l = 0;
@@ -1049,7 +1738,7 @@ System.out.println(" == Index: " + newIndex + ", qLoc: " + quoteLocation);
 					l <<= 8;
 					l |= (long) b[i];
 				}
-				oper.value = l;
+				oper.setLong(l);
 			} else {
 				newIndex++;
 			}
@@ -1057,7 +1746,7 @@ System.out.println(" == Index: " + newIndex + ", qLoc: " + quoteLocation);
 if (verbose)
 System.out.println("  String: " + oper.sValue);
 			if (!operandStack.add(oper)) {
-				calcError = "?? Stack Err";
+				calcError.set(CvtrError.stack, -1);
 				return -1;
 			}
 			if (newIndex == index)
@@ -1072,12 +1761,12 @@ System.out.println("  Power nest level: " + nestLevel);
 			// No power operand
 			i = operandStack.size() - 1;
 			if (i < 0) {
-				calcError = "?? ^" + oper.value;
+				calcError.set(CvtrError.power, newIndex, oper.value);
 				return -1;
 			}
-			oper.operation = "^";
+			oper.opCode = CvtrOperand.opPower;
 			powerOperator = false;
-			while (newIndex < equation.length() && equation.substring(newIndex, newIndex + 1).equals(" "))
+			while (newIndex < equation.length() && charString(equation, newIndex).equals(" "))
 				newIndex++;
 			// Power operand is a group
 			if (powerLevel != operandStack.get(i).nestLevel ||
@@ -1100,30 +1789,28 @@ System.out.println("  Power operand is group");
 				}
 				if (maxNesting < nestLevel)
 					maxNesting = nestLevel;
-				if (nestLevel > maxNestLevel) {
-					calcError = "?? Max ()";
-					return -1;
+				if (nestLevel >= nestGroup.length) {
+					nestGroup = Arrays.copyOf(nestGroup, nestLevel * 2);
+					nestPath = Arrays.copyOf(nestPath, nestLevel * 2);
 				}
+				nestPath[nestLevel] = nestPaths.extend(nestPath[nestLevel - 1], nestGroup[nestLevel]);
 				while (i < operandStack.size() && operandStack.get(i).nestLevel >= idx &&
 						operandStack.get(i).nestGroup[operandStack.get(i).nestLevel] == nestGroup[idx]) {
 					operandStack.get(i).nestLevel = nestLevel;
-					operandStack.get(i).nestGroup = new int[nestLevel + 1];
+					operandStack.get(i).nestGroup = nestPaths.zeros(nestLevel + 1);
 					for (j=0; j < (nestLevel + 1); j++) {
-						operandStack.get(j).nestGroup[j] = nestGroup[j];
+						operandStack.get(j).nestGroup = nestPaths.set(operandStack.get(j).nestGroup, j, nestGroup[j]);
 					}
 					i++;
 				}
 				oper.nestLevel = nestLevel;
-				oper.nestGroup = new int[nestLevel + 1];
-				for (i=0; i < (nestLevel + 1); i++) {
-					oper.nestGroup[i] = nestGroup[i];
-				}
+				oper.nestGroup = nestPath[nestLevel];
 			}
 			// Power value is a group
 			if (powerLevel != oper.nestLevel) {
 if (verbose)
 System.out.println("  Power value is group");
-				if (!verifyOperation(currentOperator, "^")) {
+				if (!verifyOperation(CvtrOperand.getOpCode(currentOperator), CvtrOperand.opPower)) {
 					return -1;
 				}
 			} else {
@@ -1133,15 +1820,16 @@ System.out.println("  Power value is group");
 					nestLevel--;
 					metaNest--;
 					if (nestLevel < 0) {
-						calcError = "?? )";
+						calcError.set(CvtrError.closeParen, newIndex);
 						return -1;
 					}
 				} else {
 					setPower = true;
-					d = Math.pow(operandStack.get(i).value, oper.value);
 if (verbose)
-System.out.println("  Calculate power: " + operandStack.get(i).value + "^" + oper.value + " = " + d);
-					operandStack.get(i).value = d;
+System.out.print("  Calculate power: " + operandStack.get(i).value + "^" + oper.value);
+					raise(operandStack.get(i), oper);
+if (verbose)
+System.out.println(" = " + operandStack.get(i).value);
 					// Set the unit power to the integer value of the power because
 					// fractional powers of units is not supported
 					if (operandStack.get(i).indexType >= 0)
@@ -1151,22 +1839,22 @@ System.out.println("  Calculate power: " + operandStack.get(i).value + "^" + ope
 		}
 
 		// Get unit information
-		while (newIndex < equation.length() && equation.substring(newIndex, newIndex + 1).equals(" ")) {
+		while (newIndex < equation.length() && charString(equation, newIndex).equals(" ")) {
 			newIndex++;
 		}
 		idx = newIndex;
 		temp = "";
-		while (idx < equation.length() && opList.indexOf(equation.substring(idx, idx + 1)) < 0) {
-			temp += equation.substring(idx, idx + 1);
+		while (idx < equation.length() && opList.indexOf(charString(equation, idx)) < 0) {
+			temp += charString(equation, idx);
 			idx++;
 		}
 		if (temp.length() > 0) {
 if (verbose)
 System.out.println(" == Get unit: " + temp);
 			// Might not be units
-			if ((cu = getUnit(temp)) != null) {
+			if ((cu = findUnit(calcCatalog, temp, newIndex)) != null) {
 				if (setPower) {
-					calcError = "?? ^" + temp;
+					calcError.set(CvtrError.power, newIndex, temp);
 					return -1;
 				}
 				newIndex = idx;
@@ -1182,20 +1870,16 @@ System.out.println(" == Get unit: " + temp);
 		// Test for function to be calculated
 		if ((i = operandStack.size() - 1) >= 0) {
 			if (operandStack.get(i).function && operandStack.get(i).nestLevel == nestLevel) {
-				try {
-					currentOperator = "";
-					oper.value = calculateFunction(operandStack.get(i).sValue, oper);
-					operandStack.remove(i);
-					nestGroup[nestLevel]++;
-					groupCount.get(nestLevel).add("0");
-					nestLevel--;
-					metaNest--;
-					if (nestLevel < 0) {
-						calcError = "?? )";
-						return -1;
-					}
-				} catch (IllegalArgumentException err) {
-					calcError = "?? " + err.getMessage();
+				currentOperator = "";
+				if (!calculateFunction(operandStack.get(i).opCode, oper))
+					return -1;
+				operandStack.remove(i);
+				nestGroup[nestLevel]++;
+				groupCount.get(nestLevel).add("0");
+				nestLevel--;
+				metaNest--;
+				if (nestLevel < 0) {
+					calcError.set(CvtrError.closeParen, newIndex);
 					return -1;
 				}
 			}
@@ -1203,13 +1887,13 @@ System.out.println(" == Get unit: " + temp);
 
 		// Put the new operand on the stack
 if (verbose) {
-System.out.print("  Put value on stack: " + oper.value + oper.unit + "^" + oper.unitPower + ", " + oper.operation + " (" + oper.nestLevel + ", ");
+System.out.print("  Put value on stack: " + oper.value + oper.unit + "^" + oper.unitPower + ", " + oper.getOperation() + " (" + oper.nestLevel + ", ");
 for (i=oper.nestLevel; i >= 0; i--)
   System.out.print(">" + oper.nestGroup[i]);
 System.out.println(")");
 }
 		if (!operandStack.add(oper)) {
-			calcError = "?? Stack Err";
+			calcError.set(CvtrError.stack, -1);
 			return -1;
 		}
 		if (!modifyGroupCount(oper.nestLevel, oper.nestGroup[oper.nestLevel], true))
@@ -1220,6 +1904,80 @@ System.out.println(")");
 		return newIndex;
 	} /* end parseValue */
 
+/**
+ * Get a character of an equation as a String.  The Strings of ASCII characters are
+ * shared, so parsing a character does not create a String.
+ * 
+ * @param equation	The equation.
+ * @param index	The location of the character.
+ * 
+ * @return String	The character.
+ */
+	private static String charString(CharSequence equation, int index) {
+		char c = equation.charAt(index);
+
+		return (c < asciiStrings.length) ? asciiStrings[c] : String.valueOf(c);
+	}
+
+/**
+ * Create the Strings of the first characters.
+ * 
+ * @param count	The number of characters.
+ * 
+ * @return String[]	The String of each character.
+ */
+	private static String[] newCharStrings(int count) {
+		int i;
+		String[] strings = new String[count];
+
+		for (i=0; i < count; i++)
+			strings[i] = String.valueOf((char) i);
+
+		return strings;
+	}
+
+/**
+ * Test whether an equation has a text at a location.
+ * 
+ * @param equation	The equation.
+ * @param index	The location of the text.
+ * @param text	The text.
+ * 
+ * @return boolean	True if the text is at the location.
+ */
+	private static boolean matchAt(CharSequence equation, int index, String text) {
+		int i;
+
+		if (index + text.length() > equation.length())
+			return false;
+		for (i=0; i < text.length(); i++) {
+			if (equation.charAt(index + i) != text.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+/**
+ * Find a character in an equation.
+ * 
+ * @param equation	The equation.
+ * @param c	The character.
+ * @param index	The location to start searching.
+ * 
+ * @return int	The location of the character, or -1 if it is not found.
+ */
+	private static int indexOf(CharSequence equation, char c, int index) {
+		int i;
+
+		for (i=index; i < equation.length(); i++) {
+			if (equation.charAt(i) == c)
+				return i;
+		}
+
+		return -1;
+	}
+
 /**
  * Reduce the units of an equation operand stack to the smallest common unit.
  * 
@@ -1229,14 +1987,20 @@ System.out.println(")");
 
 		int i, idx;
 		int typeCount = 0;
-		int[] types = new int[UnitCategories.size()];
-		int[] units = new int[UnitCategories.size()];
-		String[] uAbbrev = new String[UnitCategories.size()];
-		double[] unitFactor = new double[UnitCategories.size()];
-		double c1, c2, d;
+		int[] types, units;
+		String[] uAbbrev;
+		double[] unitFactor;
+		double d;
 if (verbose)
 System.out.println("Reduce units");
 
+		// There is at most one category for each operand
+		growScratch(operandStack.size());
+		types = scratchTypes;
+		units = scratchUnits;
+		uAbbrev = scratchAbbrevs;
+		unitFactor = scratchFactors;
+
 		// Get greatest unit conversion factor (smallest unit) for each category
 		for (idx=0; idx < operandStack.size(); idx++) {
 			// Verify operand has a Unit Category
@@ -1276,15 +2040,7 @@ if (verbose)
 System.out.println("  Operand " + idx + ": " + operandStack.get(idx).unit + " ==> " + uAbbrev[i]);
 					if (operandStack.get(idx).indexUnit < units[i]) {
 						try {
-							// Handle units raised to a power
-							if (operandStack.get(idx).unitPower > 1) {
-								c1 = Math.pow(unitFactor[i], (double) operandStack.get(idx).unitPower);
-								c2 = Math.pow(operandStack.get(idx).conversionFactor, (double) operandStack.get(idx).unitPower);
-							} else {
-								c1 = unitFactor[i];
-								c2 = operandStack.get(idx).conversionFactor;
-							}
-							d = (operandStack.get(idx).value * c1) / c2;
+							d = convertValue(calcCatalog, operandStack.get(idx), units[i], unitFactor[i]);
 							operandStack.get(idx).value = d;
 							operandStack.get(idx).indexUnit = units[i];
 							operandStack.get(idx).unit = uAbbrev[i];
@@ -1292,7 +2048,7 @@ System.out.println("  Operand " + idx + ": " + operandStack.get(idx).unit + " ==
 if (verbose)
 System.out.println("   New value: " + d + uAbbrev[i] + " (" + unitFactor[i] + ")");
 						} catch (ArithmeticException err ) {
-							calcError = "?? Math Err";
+							calcError.set(CvtrError.math, -1);
 							return false;
 						}
 					}
@@ -1304,6 +2060,126 @@ System.out.println("   New value: " + d + uAbbrev[i] + " (" + unitFactor[i] + ")
 		return true;
 	} /* end reduceUnits */
 
+/**
+ * Convert the value of an operand to another unit of its category.  The ratio of the
+ * conversion factors is taken from the catalog when it is precalculated.
+ * 
+ * @param cc	The catalog of the units.
+ * @param oper	The operand.
+ * @param unit	The unit index of the new unit.
+ * @param factor	The conversion factor of the new unit.
+ * 
+ * @return double	The value in the new unit.
+ */
+	private static double convertValue(CvtrCatalog cc, CvtrOperand oper, int unit, double factor) {
+		int power = (oper.unitPower > 1) ? oper.unitPower : 1;
+		double c1, c2, ratio;
+
+		ratio = (cc == null) ? Double.NaN : cc.getRatio(oper.indexType, oper.indexUnit, unit, power);
+		if (!Double.isNaN(ratio))
+			return oper.value * ratio;
+		// Handle units raised to a power
+		if (power > 1) {
+			c1 = Math.pow(factor, (double) power);
+			c2 = Math.pow(oper.conversionFactor, (double) power);
+		} else {
+			c1 = factor;
+			c2 = oper.conversionFactor;
+		}
+
+		return (oper.value * c1) / c2;
+	}
+
+/**
+ * Raise a value to a power.  An integer value with a small integer power is multiplied
+ * by squaring while the result is exact, which is the result Math.pow returns.  Any
+ * other power uses Math.pow.
+ * 
+ * @param value	The value.
+ * @param power	The power.
+ * 
+ * @return double	The value raised to the power.
+ */
+	private static double powerOf(double value, double power) {
+		int n;
+		double result = 1, square = value;
+
+		if (power == 1)
+			return value;
+		if (power == 2)
+			return value * value;
+		if (power < 0 || power > 64 || power != (n = (int) power) || value != Math.rint(value))
+			return Math.pow(value, power);
+		while (n > 0) {
+			if ((n & 1) != 0)
+				result *= square;
+			if ((n >>= 1) > 0)
+				square *= square;
+			// Larger integers may not be exact
+			if (Math.abs(result) > maxExact || Math.abs(square) > maxExact)
+				return Math.pow(value, power);
+		}
+
+		return result;
+	}
+
+/**
+ * Divide an operand by another operand.  A fixed point number divided by 0 is divided
+ * as a double, so the reduction goes on, and the calculation ends with the error of a
+ * division by 0.
+ * 
+ * @param oper	The operand, which is set to the result.
+ * @param divisor	The divisor.
+ */
+	private void divide(CvtrOperand oper, CvtrOperand divisor) {
+		if (!oper.divide(divisor) && zeroDivide == CvtrError.none)
+			zeroDivide = (oper.value < 0) ? CvtrError.negativeDivideZero : CvtrError.divideZero;
+	}
+
+/**
+ * Raise an operand to the power of another operand.  An exact integer with a positive
+ * integer power wraps around like the product of exact integers, and a fixed point
+ * number with an integer power is raised in its fixed point.  Any other power uses
+ * powerOf.
+ * 
+ * @param oper	The operand, which is set to the result.
+ * @param power	The power.
+ */
+	private static void raise(CvtrOperand oper, CvtrOperand power) {
+		long n, result = 1, square;
+
+		if (oper.isExact() && power.value == Math.rint(power.value) && power.value >= 0 && power.value <= maxExact) {
+			// The low 64 bits of a power only depend on the low 64 bits of its factors
+			square = oper.bits;
+			for (n=(long) power.value; n > 0; n >>>= 1) {
+				if ((n & 1) != 0)
+					result *= square;
+				square *= square;
+			}
+			oper.setLong(result);
+			return;
+		}
+		if (oper.isFixed() && power.value == Math.rint(power.value) && Math.abs(power.value) <= maxExact &&
+				oper.setFixed(oper.fixed, oper.fixed.power(oper.bits, (long) power.value)))
+			return;
+		oper.value = powerOf(oper.value, power.value);
+	}
+
+/**
+ * Make the scratch arrays large enough for a number of categories.
+ * 
+ * @param size	The number of categories.
+ */
+	private void growScratch(int size) {
+		if (scratchTypes.length >= size)
+			return;
+		size = Math.max(size, scratchTypes.length * 2);
+		scratchTypes = new int[size];
+		scratchUnits = new int[size];
+		scratchAbbrevs = new String[size];
+		scratchFactors = new double[size];
+	}
+
 /**
  * Get the true size of an equation stack, accounting for operands that are group Units.
  * 
@@ -1321,54 +2197,33 @@ System.out.println("   New value: " + d + uAbbrev[i] + " (" + unitFactor[i] + ")
 	}
 
 /**
- * Collect groups of the operands and attempt to reduce them.  The method is called
- * recursively to the highest parse level to attempt to reduce every group to its
- * lowest form.
+ * Collect groups of the operands and attempt to reduce them.  Each group is reduced to
+ * its lowest form from the highest parse level down, with a stack of the levels that
+ * are being reduced instead of a recursive call for each level.
  * 
  * @param level	The current nesting level.
- * @param nesting	The number of nesting levels to be reduced, which is the number of
- * 				times the method is called recursively.
+ * @param nesting	The number of nesting levels to be reduced.
  * @param nestStack	The list of operands to be reduced.
  * 
- * @return ArrayList<CvtrOperand>	The resulting stack of the recursive call, which may be null.
- * 									If an error is found, then calcError is set.
+ * @return ArrayList<CvtrOperand>	The reduced stack, which may be null.  If an error is
+ * 									found, then calcError is set.
  */
 	private ArrayList<CvtrOperand> getEquationNesting(int level, int nesting, ArrayList<CvtrOperand> nestStack) {
-		int i, j;
-		ArrayList<CvtrOperand> newStack, tempStack;
-		CvtrGroup group;
-if (verbose) {
-System.out.println("Get Nesting (" + level + " < " + nesting + "): Stack size = " + nestStack.size());
-for (i=0; i < nestStack.size(); i++) {
-	System.out.print("  Nesting Operand " + i + ": " + nestStack.get(i).value + nestStack.get(i).unit + "^" +
-			nestStack.get(i).unitPower + ", " + nestStack.get(i).operation + " (" + nestStack.get(i).nestLevel + ", ");
-	for (j=nestStack.get(i).nestLevel; j >= 0; j--) {
-		if (nestStack.get(i).nestGroup == null)
-			System.out.print("-1");
-		else
-			System.out.print(">" + nestStack.get(i).nestGroup[j]);
-	}
-	System.out.println(")");
-}
-}
-
-		if (nestStack == null) {
-			return null;
-		} else if (level > nesting) {
-			return reduceEquation(nestStack);
-		}
-		newStack = new ArrayList<CvtrOperand>();
-		group = new CvtrGroup(nestStack, level);
-		if (group.groupList == null || group.groupList.size() == 0)
-			return reduceEquation(nestStack);
-		// Recursively reduce nested groups at each level
-		for (i=0; i < group.groupList.size(); i++) {
-			if (trueSize(group.groupList.get(i)) == 1) {
-				tempStack = group.groupList.get(i);
-			} else {
-				if ((tempStack = getEquationNesting(level + 1, nesting, group.groupList.get(i))) == null) {
+		int j;
+		ArrayList<CvtrOperand> result, tempStack;
+		ArrayList<NestFrame> frames = new ArrayList<NestFrame>();
+		NestFrame frame;
+
+		result = startNesting(level, nesting, nestStack, frames);
+		while (frames.size() > 0) {
+			if (overBudget())
+				return null;
+			frame = frames.get(frames.size() - 1);
+			// Put the reduced group of the next level on the new stack
+			if (frame.reducing) {
+				frame.reducing = false;
+				if ((tempStack = result) == null)
 					return null;
-				}
 				if (trueSize(tempStack) == 1) {
 					// Modify group count for current and new level/group
 					if (tempStack.get(0).nestLevel > 0) {
@@ -1378,30 +2233,99 @@ for (i=0; i < nestStack.size(); i++) {
 						modifyGroupCount(tempStack.get(0).nestLevel, tempStack.get(0).nestGroup[tempStack.get(0).nestLevel], true);
 					}
 				}
+				frame.newStack.addAll(tempStack);
+				tempStack.clear();
+				frame.index++;
 			}
-			// Put operation result on the new stack
-			while (tempStack.size() > 0) {
-				newStack.add(tempStack.get(0));
-				tempStack.remove(0);
+			// Single operands are not reduced
+			while (frame.index < frame.groupList.size() && trueSize(frame.groupList.get(frame.index)) == 1) {
+				tempStack = frame.groupList.get(frame.index++);
+				frame.newStack.addAll(tempStack);
+				tempStack.clear();
 			}
+			if (frame.index < frame.groupList.size()) {
+				frame.reducing = true;
+				result = startNesting(frame.level + 1, nesting, frame.groupList.get(frame.index), frames);
+			} else {
+				frames.remove(frames.size() - 1);
+				result = endNesting(frame.newStack, frame.nestStack);
+			}
+		}
+
+		return result;
+	} /* end getEquationNesting */
+
+/**
+ * Start reducing the groups of a nesting level.  If the level has groups to be reduced,
+ * a frame for the level is added to the stack of levels, otherwise the stack is reduced.
+ * 
+ * @param level	The current nesting level.
+ * @param nesting	The number of nesting levels to be reduced.
+ * @param nestStack	The list of operands to be reduced.
+ * @param frames	The stack of levels being reduced.
+ * 
+ * @return ArrayList<CvtrOperand>	The reduced stack if no frame was added, which may be null.
+ */
+	private ArrayList<CvtrOperand> startNesting(int level, int nesting, ArrayList<CvtrOperand> nestStack, ArrayList<NestFrame> frames) {
+		int i, j;
+		CvtrGroup group;
+if (verbose) {
+System.out.println("Get Nesting (" + level + " < " + nesting + "): Stack size = " + nestStack.size());
+for (i=0; i < nestStack.size(); i++) {
+	System.out.print("  Nesting Operand " + i + ": " + nestStack.get(i).value + nestStack.get(i).unit + "^" +
+			nestStack.get(i).unitPower + ", " + nestStack.get(i).getOperation() + " (" + nestStack.get(i).nestLevel + ", ");
+	for (j=nestStack.get(i).nestLevel; j >= 0; j--) {
+		if (nestStack.get(i).nestGroup == null)
+			System.out.print("-1");
+		else
+			System.out.print(">" + nestStack.get(i).nestGroup[j]);
+	}
+	System.out.println(")");
+}
+}
+
+		if (nestStack == null) {
+			return null;
+		} else if (level > nesting) {
+			return reduceEquation(nestStack);
 		}
+		group = new CvtrGroup(nestStack, level);
+		if (group.groupList == null || group.groupList.size() == 0)
+			return reduceEquation(nestStack);
+		// The operands are moved to the groups, as in reduceGroups
+		nestStack.clear();
+		frames.add(new NestFrame(level, nestStack, group.groupList));
+
+		return null;
+	} /* end startNesting */
+
+/**
+ * Reduce the new stack of a nesting level after each of its groups was reduced.
+ * 
+ * @param newStack	The reduced groups of the level.
+ * @param nestStack	The list of operands of the level, which is returned if there are
+ * 					no reduced groups.
+ * 
+ * @return ArrayList<CvtrOperand>	The reduced stack, which may be null.
+ */
+	private ArrayList<CvtrOperand> endNesting(ArrayList<CvtrOperand> newStack, ArrayList<CvtrOperand> nestStack) {
+		int i, j;
+
 		if (newStack.size() == 0) {
-			calcProgress += displayStack(nestStack) + "\n";
+			if (recordWork)
+				calcProgress.append(displayStack(nestStack)).append("\n");
 if (verbose)
 System.out.println(" !!! GN empty new stack");
 			return nestStack;
 		} else {
 			if (trueSize(newStack) == 2) {
 				if (newStack.get(0).function) {
-					try {
-						newStack.get(1).value = calculateFunction(newStack.get(0).sValue, newStack.get(1));
-						newStack.remove(0);
-						calcProgress += displayStack(newStack) + "\n";
-						return newStack;
-					} catch (IllegalArgumentException err) {
-						calcError = "?? " + err.getMessage();
+					if (!calculateFunction(newStack.get(0).opCode, newStack.get(1)))
 						return null;
-					}
+					newStack.remove(0);
+					if (recordWork)
+						calcProgress.append(displayStack(newStack)).append("\n");
+					return newStack;
 				// Reduce group of 2 to same nest level
 				} else {
 					i = maxNesting;
@@ -1414,7 +2338,8 @@ System.out.println(" !!! GN empty new stack");
 					}
 				}
 			}
-			calcProgress += displayStack(newStack) + "\n";
+			if (recordWork)
+				calcProgress.append(displayStack(newStack)).append("\n");
 if (verbose)
 System.out.println("GN: " + displayStack(newStack));
 			if (trueSize(newStack) == 1)
@@ -1422,7 +2347,7 @@ System.out.println("GN: " + displayStack(newStack));
 			return reduceEquation(newStack);
 		}
 
-	} /* end getEquationNesting */
+	} /* end endNesting */
 
 /**
  * Order groups of units by their category to make comparisons between
@@ -1432,7 +2357,7 @@ System.out.println("GN: " + displayStack(newStack));
  */
 	private void orderUnits(ArrayList<CvtrOperand> unitStack) {
 		int i, j, idx;
-		String op;
+		int op;
 		double d;
 		ArrayList<CvtrOperand> tStack;
 if (verbose)
@@ -1445,8 +2370,8 @@ System.out.println("Order units");
 			if ((idx + 1) < unitStack.size() && unitStack.get(idx + 1).groupUnit) {
 				d = unitStack.get(idx).value;
 				unitStack.get(idx).value = 1;
-				op = unitStack.get(idx).operation;
-				unitStack.get(idx).operation = unitStack.get(idx + 1).operation;
+				op = unitStack.get(idx).opCode;
+				unitStack.get(idx).opCode = unitStack.get(idx + 1).opCode;
 				unitStack.get(idx).groupUnit = true;
 				tStack = new ArrayList<CvtrOperand>();
 				tStack.add(unitStack.get(idx));
@@ -1478,7 +2403,7 @@ System.out.println("Order units");
 					tStack.remove(0);
 				}
 				unitStack.get(idx).value = d;
-				unitStack.get(idx).operation = op;
+				unitStack.get(idx).opCode = op;
 				unitStack.get(idx).groupUnit = false;
 				// Skip past group
 				idx = i;
@@ -1534,13 +2459,15 @@ System.out.println("  String operand");
 				continue;
 			}
 
-int debug2 = 50;
+int debug2 = 50 + 2 * reduceStack.size();
 			while ((idx == 0 || !reduceStack.get(idx).function) &&
 					idxNx < reduceStack.size()) {
 if (debug2-- < 0) {
-	calcError = "?? Loop";
+	calcError.set(CvtrError.loop, -1);
 	return null;
 }
+				if (overBudget())
+					return null;
 if (verbose) {
 if (reduceStack.get(idxNx).nestGroup == null)
 	i = -1;
@@ -1548,7 +2475,7 @@ else
 	i = reduceStack.get(idxNx).nestGroup[reduceStack.get(idxNx).nestLevel];
 System.out.println("  Operation(" + idx + "): " + reduceStack.get(idx).value + reduceStack.get(idx).unit + "^" + reduceStack.get(idx).unitPower + " (" +
 	reduceStack.get(idx).nestLevel + ", " + reduceStack.get(idx).nestGroup[reduceStack.get(idx).nestLevel] + ") " +
-	reduceStack.get(idxNx).operation + " " + reduceStack.get(idxNx).value + reduceStack.get(idxNx).unit + "^" + reduceStack.get(idxNx).unitPower + " (" +
+	reduceStack.get(idxNx).getOperation() + " " + reduceStack.get(idxNx).value + reduceStack.get(idxNx).unit + "^" + reduceStack.get(idxNx).unitPower + " (" +
 	reduceStack.get(idxNx).nestLevel + ", " + i + ") GroupUnit = " + reduceStack.get(idxNx).groupUnit);
 }
 				// New level of nesting, attempt to reduce it
@@ -1565,7 +2492,7 @@ System.out.println("  Operation(" + idx + "): " + reduceStack.get(idx).value + r
 					break;
 				}
 				// Cannot reduce 2 different units or same unit but different power
-				if (!reduceStack.get(idxNx).operation.equals("*") && (reduceStack.get(idx).indexType >= 0 && reduceStack.get(idxNx).indexType >= 0) &&
+				if (reduceStack.get(idxNx).opCode != CvtrOperand.opMult && (reduceStack.get(idx).indexType >= 0 && reduceStack.get(idxNx).indexType >= 0) &&
 						((reduceStack.get(idx).indexType != reduceStack.get(idxNx).indexType) ||
 						(reduceStack.get(idx).unitPower != reduceStack.get(idxNx).unitPower))) {
 if (verbose)
@@ -1577,23 +2504,23 @@ System.out.println("   Skip operand");
 					idx++;
 					break;
 				}
-				if (reduceStack.get(idxNx).operation.equals("/")) {
+				if (reduceStack.get(idxNx).opCode == CvtrOperand.opDiv) {
 					// Special case constant denominator
 					if (idxNx == (reduceStack.size() - 1) && reduceStack.get(idxNx).indexType < 0) {
-						reduceStack.get(idx).value /= reduceStack.get(idxNx).value;
+						divide(reduceStack.get(idx), reduceStack.get(idxNx));
 					// Division is handled during group reduction
 					} else {
 						idx = idxNx;
 						break;
 					}
 				// Perform operation on operands
-				} else if (reduceStack.get(idxNx).operation.equals("+")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opAdd) {
 					// Unit is placeholder, do not use in calculations
 					if (reduceStack.get(idxNx).groupUnit) {
 						idxNx++;
 						continue;
 					} else if (sameGroupUnits(reduceStack, idx, reduceStack, idxNx)) {
-						reduceStack.get(idx).value += reduceStack.get(idxNx).value;
+						reduceStack.get(idx).add(reduceStack.get(idxNx));
 						i = idxNx + 1;
 						while (i < reduceStack.size()) {
 							if (reduceStack.get(i).groupUnit)
@@ -1607,13 +2534,13 @@ System.out.println("   Skip operand");
 					} else {
 						break;
 					}
-				} else if (reduceStack.get(idxNx).operation.equals("-")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opSub) {
 					// Unit is placeholder, do not use in calculations
 					if (reduceStack.get(idxNx).groupUnit) {
 						idxNx++;
 						continue;
 					} else if (sameGroupUnits(reduceStack, idx, reduceStack, idxNx)) {
-						reduceStack.get(idx).value -= reduceStack.get(idxNx).value;
+						reduceStack.get(idx).subtract(reduceStack.get(idxNx));
 						i = idxNx + 1;
 						while (i < reduceStack.size()) {
 							if (reduceStack.get(i).groupUnit)
@@ -1627,14 +2554,14 @@ System.out.println("   Skip operand");
 					} else {
 						break;
 					}
-				} else if (reduceStack.get(idxNx).operation.equals("*")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opMult) {
 					// Do not multiply like units that have been consolidated
 					if (reduceStack.get(idxNx).groupUnit) {
 						idxNx++;
 						continue;
 					}
 					//Set the value
-					reduceStack.get(idx).value *= reduceStack.get(idxNx).value;
+					reduceStack.get(idx).multiply(reduceStack.get(idxNx));
 					// Current operand has no unit
 					if (reduceStack.get(idx).indexType < 0) {
 						reduceStack.get(idx).indexType = reduceStack.get(idxNx).indexType;
@@ -1669,25 +2596,25 @@ System.out.println("   Skip operand");
 						idxNx++;
 						continue;
 					}
-				} else if (reduceStack.get(idxNx).operation.equals("&") || reduceStack.get(idxNx).operation.equals("|") ||
-						reduceStack.get(idxNx).operation.equals("#")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opAnd || reduceStack.get(idxNx).opCode == CvtrOperand.opOr ||
+						reduceStack.get(idxNx).opCode == CvtrOperand.opXor) {
 					// Do not operate on like units that have been consolidated
 					if (reduceStack.get(idxNx).groupUnit) {
 						idxNx++;
 						continue;
 					}
-					if (reduceStack.get(idxNx).operation.equals("&")) {
-						l1 = (long) reduceStack.get(idxNx).value;
-						l2 = (long) reduceStack.get(idx).value;
-						reduceStack.get(idx).value = l1 & l2;
-					} else if (reduceStack.get(idxNx).operation.equals("|")) {
-						l1 = (long) reduceStack.get(idxNx).value;
-						l2 = (long) reduceStack.get(idx).value;
-						reduceStack.get(idx).value = l1 | l2;
-					} else if (reduceStack.get(idxNx).operation.equals("#")) {
-						l1 = (long) reduceStack.get(idxNx).value;
-						l2 = (long) reduceStack.get(idx).value;
-						reduceStack.get(idx).value = l1 ^ l2;
+					if (reduceStack.get(idxNx).opCode == CvtrOperand.opAnd) {
+						l1 = reduceStack.get(idxNx).getLong();
+						l2 = reduceStack.get(idx).getLong();
+						reduceStack.get(idx).setLong(l1 & l2);
+					} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opOr) {
+						l1 = reduceStack.get(idxNx).getLong();
+						l2 = reduceStack.get(idx).getLong();
+						reduceStack.get(idx).setLong(l1 | l2);
+					} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opXor) {
+						l1 = reduceStack.get(idxNx).getLong();
+						l2 = reduceStack.get(idx).getLong();
+						reduceStack.get(idx).setLong(l1 ^ l2);
 					}
 					// Unit groups may need to be updated
 					i = idxNx + 1;
@@ -1723,7 +2650,7 @@ System.out.println("   Skip operand");
 					}
 				// Modulo arithmetic is normally performed on integers, but Convertator requires
 				// the modulus to be an integer, and allows the operand to be a floating point number 
-				} else if (reduceStack.get(idxNx).operation.equals("%")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opMod) {
 					if (reduceStack.get(idxNx).indexType < 0)
 						i = 0;
 					else
@@ -1735,7 +2662,7 @@ System.out.println("   Skip operand");
 						l1 = (long) reduceStack.get(idxNx).value;
 						d = reduceStack.get(idxNx).value - l1;
 						if (d != 0) {
-							calcError = "?? N%" + reduceStack.get(idxNx).value;
+							calcError.set(CvtrError.numberModulo, -1, reduceStack.get(idxNx).value);
 							return null;
 						}
 						l1 = (long) reduceStack.get(idx).value;
@@ -1750,21 +2677,20 @@ System.out.println("   Skip operand");
 								break;
 						}
 					} else {
-						calcError = "?? Units%Units";
+						calcError.set(CvtrError.unitsModulo, -1);
 						return null;
 					}
-				} else if (reduceStack.get(idxNx).operation.equals("^")) {
+				} else if (reduceStack.get(idxNx).opCode == CvtrOperand.opPower) {
 					if (reduceStack.get(idxNx).indexType >= 0) {
-						calcError = "?? ^" + reduceStack.get(idxNx).unit;
+						calcError.set(CvtrError.power, -1, reduceStack.get(idxNx).unit);
 						return null;
 					}
-					d = Math.pow(reduceStack.get(idx).value, reduceStack.get(idxNx).value);
-					reduceStack.get(idx).value = d;
+					raise(reduceStack.get(idx), reduceStack.get(idxNx));
 					if (reduceStack.get(idx).indexType >= 0)
 						reduceStack.get(idx).unitPower = (int) reduceStack.get(idxNx).value;
 				}
 				// Maintain operand unit with value (except for division which is handled separately
-				if (reduceStack.get(idx).indexType < 0 && !reduceStack.get(idxNx).operation.equals("/")) {
+				if (reduceStack.get(idx).indexType < 0 && reduceStack.get(idxNx).opCode != CvtrOperand.opDiv) {
 					reduceStack.get(idx).indexType = reduceStack.get(idxNx).indexType;
 					reduceStack.get(idx).indexUnit = reduceStack.get(idxNx).indexUnit;
 					reduceStack.get(idx).conversionFactor = reduceStack.get(idxNx).conversionFactor;
@@ -1812,8 +2738,7 @@ System.out.println("Get final equation: " + " Stack size: " + operandStack.size(
 
 		// Clear the stack counters
 		nestLevel = 0;
-		for (idx=0; idx < maxNestLevel; idx++)
-			nestGroup[idx] = 0;
+		Arrays.fill(nestGroup, 0, Math.min(maxNesting + 1, nestGroup.length), 0);
 
 		// Reduce groups
 		if ((operandStack = reduceGroups(operandStack, 0)) == null)
@@ -1827,42 +2752,80 @@ System.out.println("Get final equation: " + " Stack size: " + operandStack.size(
 	} /* end finalEquation */
 
 /**
- * Reduce groups of operands.  This method is called recursively until all groups in the stack
- * have been reduced to their simplest form.  The types of groups are:
+ * Reduce groups of operands until all groups in the stack have been reduced to their
+ * simplest form.  Each group is reduced before the operations between the groups, with
+ * a stack of the groups that are being reduced instead of a recursive call for each
+ * group.  The types of groups are:
  * <ul>
  *   <li>Operands with different unit categories, such as distance (miles) and time (hour)</li>
  *   <li>Operands with the same unit categories but to different powers, such as feet and feet ^ 2</li>
  * </ul>
  * 
- * @param operandStack	The stack to be reduced.
- * @param nLevel	The nesting level to use for dividing operands into groups.  This is used for
- * 					recursion and should always be zero when called initially.
+ * @param groupStack	The stack to be reduced.
+ * @param nLevel	The nesting level to use for dividing operands into groups, which should
+ * 					always be zero when called initially.
  * 
  * @return ArrayList<CvtrOperand>	The resulting stack if calculation was successful, otherwise null.
  */
 	private ArrayList<CvtrOperand> reduceGroups(ArrayList<CvtrOperand> groupStack, int nLevel) {
+		ArrayList<CvtrOperand> result = null;
+		ArrayList<ReduceFrame> frames = new ArrayList<ReduceFrame>();
+		ReduceFrame frame;
+
+		frames.add(new ReduceFrame(groupStack, nLevel));
+		while (frames.size() > 0) {
+			if (overBudget())
+				return null;
+			frame = frames.get(frames.size() - 1);
+			// A group is added to be reduced before this group is continued
+			if (!stepReduce(frame, result, frames))
+				continue;
+			frames.remove(frames.size() - 1);
+			if ((result = frame.result) == null)
+				return null;
+		}
+
+		return result;
+	} /* end reduceGroups */
+
+/**
+ * Continue reducing a group of operands, until it is reduced or one of its groups must
+ * be reduced first.
+ * 
+ * @param frame	The group being reduced.
+ * @param reduced	The last group that was reduced, if this group was waiting for it.
+ * @param frames	The stack of groups being reduced, where a group to be reduced first
+ * 					is added.
+ * 
+ * @return boolean	True if the group is reduced and its result is set, false if a group
+ * 					was added to the stack.
+ */
+	private boolean stepReduce(ReduceFrame frame, ArrayList<CvtrOperand> reduced, ArrayList<ReduceFrame> frames) {
 		int i, idx;
-		int gLevel, sLevel;
-		boolean listRemove;
-		ArrayList <ArrayList<CvtrOperand>> groupList = new ArrayList <ArrayList<CvtrOperand>>();
-		ArrayList<CvtrOperand> newStack = new ArrayList<CvtrOperand>(), tempStack = new ArrayList<CvtrOperand>();
-
-		i = 0;
-		for (idx=0; idx < groupStack.size(); idx++) {
-			if (groupStack.get(idx).nestLevel >= nLevel) {
-				i = 1;
-				break;
+		int sLevel, nLevel = frame.nLevel;
+		int[] ends;
+		ArrayList<CvtrOperand> groupStack = frame.groupStack, newStack;
+		ArrayList <ArrayList<CvtrOperand>> groupList = frame.groupList;
+
+		if (frame.state == ReduceFrame.start) {
+			i = 0;
+			for (idx=0; idx < groupStack.size(); idx++) {
+				if (groupStack.get(idx).nestLevel >= nLevel) {
+					i = 1;
+					break;
+				}
+			}
+			// Group cannot be reduced
+			if (i == 0) {
+				frame.result = groupStack;
+				return true;
 			}
-		}
-		// Group cannot be reduced
-		if (i == 0)
-			return groupStack;
 
 if (verbose) {
 System.out.println("Reduce groups: " + " (" + groupStack.size() + "): " + nLevel);
 for (i=0; i < groupStack.size(); i++) {
 	System.out.print("  Reduce groups Operand " + i + ": " + groupStack.get(i).value + groupStack.get(i).unit + "^" +
-			groupStack.get(i).unitPower + ", " + groupStack.get(i).operation + " (" + groupStack.get(i).nestLevel + ", ");
+			groupStack.get(i).unitPower + ", " + groupStack.get(i).getOperation() + " (" + groupStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=groupStack.get(i).nestLevel; j >= 0; j--) {
 		if (groupStack.get(i).nestGroup == null)
@@ -1874,172 +2837,112 @@ for (i=0; i < groupStack.size(); i++) {
 }
 }
 
-		if (groupStack.size() == 0) {
-			calcError = "?? Null";
-			return null;
-		} else if (groupStack.size() == 1) {
-			return groupStack;
-		}
+			if (groupStack.size() == 0) {
+				calcError.set(CvtrError.nullValue, -1);
+				frame.result = null;
+				return true;
+			} else if (groupStack.size() == 1) {
+				frame.result = groupStack;
+				return true;
+			}
 
-		// Get groups to be reduced in groupList arrays
-		groupList.add(new ArrayList<CvtrOperand>());
-		idx = 0;
-		gLevel = sLevel = -1;
-		while (groupStack.size() > 0) {
-			// Get new subgroup if there is a difference in nesting at current nLevel
-			if (gLevel < 0 && groupStack.get(0).nestLevel >= nLevel && groupStack.get(0).nestGroup != null)
-				gLevel = groupStack.get(0).nestGroup[nLevel];
-			if (groupStack.get(0).nestGroup == null) {
-				sLevel = groupStack.get(0).nestLevel;
-				gLevel = maxNesting + 1;
-				if (groupList.get(idx).size() > 0) {
-if (verbose)
-System.out.println("  Group(" + idx + "): " + displayStack(groupList.get(idx)));
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")null: " + groupList.size());
-				}
-			// i.nestLevel < nLevel && (i.nestLevel != i+1.nestLevel || i.nestGroup != i+1.nestGroup)
-			} else if (sLevel >= 0) {
-				if (groupStack.get(0).nestLevel != sLevel || groupStack.get(0).nestGroup[sLevel] != gLevel) {
-if (verbose)
-System.out.println("  Group(" + idx + "): " + displayStack(groupList.get(idx)));
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")SL: " + groupList.size());
-					if (groupStack.get(0).nestLevel >= nLevel) {
-						sLevel = -1;
-						gLevel = groupStack.get(0).nestGroup[nLevel];
-					} else {
-						sLevel = groupStack.get(0).nestLevel;
-						gLevel = groupStack.get(0).nestGroup[sLevel];
-						
-					}
-				}
-			// i.nestLevel != i+1.nestLevel
-			} else if (groupStack.get(0).nestLevel < nLevel) {
-				sLevel = groupStack.get(0).nestLevel;
-				gLevel = groupStack.get(0).nestGroup[sLevel];
-				if (groupList.get(idx).size() > 0) {
-if (verbose)
-System.out.println("  Group(" + idx + "): " + displayStack(groupList.get(idx)));
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")NL: " + groupList.size());
-				}
-			// i.nestGroup != i+1.nestGroup
-			} else if (gLevel != groupStack.get(0).nestGroup[nLevel]) {
-				gLevel = groupStack.get(0).nestGroup[nLevel];
-				if (groupList.get(idx).size() > 0) {
+			// Get groups to be reduced in groupList arrays, copied from their ranges of the stack
+			ends = CvtrGroup.splitGroups(groupStack, nLevel, maxNesting + 1);
+			for (idx=0; idx < ends.length; idx++) {
+				groupList.add(new ArrayList<CvtrOperand>(groupStack.subList((idx == 0) ? 0 : ends[idx - 1], ends[idx])));
 if (verbose)
 System.out.println("  Group(" + idx + "): " + displayStack(groupList.get(idx)));
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")GL: " + groupList.size());
-				}
 			}
-			// Add the operand to the subgroup
-			groupList.get(idx).add(groupStack.get(0));
-			groupStack.remove(0);
+			// The operands are moved to the groups, so the unit order of operandStack
+			// is not changed while the groups are reduced
+			groupStack.clear();
+			frame.state = ReduceFrame.groups;
+		} else if (frame.state == ReduceFrame.groups) {
+			// Replace subgroup with reduced subgroup
+			groupList.set(frame.index, reduced);
 if (verbose)
-System.out.println("  Group size: " + groupList.get(idx).size());
+System.out.println(" <== Return from recursion(" + nLevel + "): (" + frame.index + " of " + groupList.size() + ") " + groupList.get(frame.index).size());
+			frame.index++;
+		} else {
+			// The function and its group are replaced by their result
+			groupList.set(++frame.first, reduced);
+			frame.tempStack = frame.newStack;
+			endOperation(frame, false);
 		}
-if (verbose)
-System.out.println("  Group(" + idx + "): " + displayStack(groupList.get(idx)));
-		// Recursively call reduceGroups for each subgroup
-		for (idx=0; idx < groupList.size(); idx++) {
+
+		// Reduce each subgroup first
+		if (frame.state == ReduceFrame.groups) {
+			for (idx=frame.index; idx < groupList.size(); idx++) {
 if (verbose)
 System.out.println("  Reduce next group: " + idx + " of " + groupList.size() + " = " + groupList.get(idx).size());
-			if (groupList.get(idx).size() > 1) {
-				if ((tempStack = reduceGroups(groupList.get(idx), nLevel + 1)) == null)
-					return null;
-				// Replace subgroup with reduced subgroup
-				groupList.remove(idx);
-				groupList.add(idx, tempStack);
-if (verbose)
-System.out.println(" <== Return from recursion(" + nLevel + "): (" + idx + " of " + groupList.size() + ") " + groupList.get(idx).size());
-			} else {
+				if (groupList.get(idx).size() > 1) {
+					frame.index = idx;
+					frames.add(new ReduceFrame(groupList.get(idx), nLevel + 1));
+					return false;
+				} else {
 if (verbose)
 System.out.println(" <== Skip recursion(" + nLevel + "): (" + idx + ") " + groupList.get(idx).size());
+				}
 			}
-		}
-		if (groupList.size() == 1) {
-			// Single group may need equation reduction
-			if (groupList.get(0).size() > 1) {
-				if ((newStack = reduceEquation(groupList.get(0))) == null)
-					return null;
-			} else
-				newStack = groupList.get(0);
-			return newStack;
+			if (groupList.size() == 1) {
+				// Single group may need equation reduction
+				if (groupList.get(0).size() > 1)
+					frame.result = reduceEquation(groupList.get(0));
+				else
+					frame.result = groupList.get(0);
+				return true;
+			}
+			frame.newStack = groupList.get(0);
+			frame.first = 1;
+			frame.state = ReduceFrame.operations;
 		}
 
 		// Perform operations on reduced groups
-		newStack = groupList.get(0);
-		groupList.remove(0);
-		while (groupList.size() > 0) {
-			listRemove = true;
+		while (frame.first < groupList.size()) {
+			newStack = frame.newStack;
 if (verbose)
-System.out.println("  Group operations: " + newStack.size() + ", " + groupList.get(0).size() +
-	", newop " + newStack.get(0).operation + ", glop " + groupList.get(0).get(0).operation);
-			calcProgress += displayStack(newStack) + " " + groupList.get(0).get(0).operation + " " + displayStack(groupList.get(0)) + "\n  ===> ";
-			if (groupList.get(0).get(0).operation.equals("^")) {
-				if ((tempStack = powerGroup(newStack, groupList.get(0))) == null)
-					return null;
+System.out.println("  Group operations: " + newStack.size() + ", " + groupList.get(frame.first).size() +
+	", newop " + newStack.get(0).getOperation() + ", glop " + groupList.get(frame.first).get(0).getOperation());
+			if (recordWork)
+				calcProgress.append(displayStack(newStack)).append(" ").append(groupList.get(frame.first).get(0).getOperation()).append(" ").append(displayStack(groupList.get(frame.first))).append("\n  ===> ");
+			if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opPower) {
+				frame.tempStack = powerGroup(newStack, groupList.get(frame.first));
 			} else if (newStack.get(0).function) {
-				if ((tempStack = calculateFunctionGroup(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).operation.equals("+") || groupList.get(0).get(0).operation.equals("-")) {
-				if ((tempStack = addsubGroups(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).operation.equals("*")) {
-				if ((tempStack = multiplyGroups(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).operation.equals("/")) {
-				if ((tempStack = divideGroups(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).operation.equals("%")) {
-				if ((tempStack = moduloGroup(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).operation.equals("&") || groupList.get(0).get(0).operation.equals("|") ||
-					groupList.get(0).get(0).operation.equals("#")) {
-				if ((tempStack = logicalGroups(newStack, groupList.get(0))) == null)
-					return null;
-			} else if (groupList.get(0).get(0).function && groupList.size() > 1) {
-				for (idx=0; idx < groupList.get(0).size(); idx++)
-					tempStack.add(groupList.get(0).get(idx));
-				for (idx=0; idx < groupList.get(1).size(); idx++)
-					tempStack.add(groupList.get(1).get(idx));
-				i = groupList.get(0).get(0).nestLevel;
-				groupList.remove(1);
-				groupList.remove(0);
-				if ((tempStack = reduceGroups(tempStack, i)) == null)
-					return null;
-				groupList.add(0, tempStack);
-				listRemove = false;
-				tempStack = newStack;
+				frame.tempStack = calculateFunctionGroup(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opAdd || groupList.get(frame.first).get(0).opCode == CvtrOperand.opSub) {
+				frame.tempStack = addsubGroups(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opMult) {
+				frame.tempStack = multiplyGroups(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opDiv) {
+				frame.tempStack = divideGroups(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opMod) {
+				frame.tempStack = moduloGroup(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).opCode == CvtrOperand.opAnd || groupList.get(frame.first).get(0).opCode == CvtrOperand.opOr ||
+					groupList.get(frame.first).get(0).opCode == CvtrOperand.opXor) {
+				frame.tempStack = logicalGroups(newStack, groupList.get(frame.first));
+			} else if (groupList.get(frame.first).get(0).function && (groupList.size() - frame.first) > 1) {
+				for (idx=0; idx < groupList.get(frame.first).size(); idx++)
+					frame.tempStack.add(groupList.get(frame.first).get(idx));
+				for (idx=0; idx < groupList.get(frame.first + 1).size(); idx++)
+					frame.tempStack.add(groupList.get(frame.first + 1).get(idx));
+				i = groupList.get(frame.first).get(0).nestLevel;
+				frame.state = ReduceFrame.function;
+				frames.add(new ReduceFrame(frame.tempStack, i));
+				return false;
 			} else {
 if (verbose)
-System.out.println(" == Err: " + groupList.get(0).get(0).operation + ", Func: " + newStack.get(0).function);
-				calcError = "?? ()" + groupList.get(0).get(0).operation + "()";
-				return null;
+System.out.println(" == Err: " + groupList.get(frame.first).get(0).getOperation() + ", Func: " + newStack.get(0).function);
+				calcError.set(CvtrError.groupOperation, -1, groupList.get(frame.first).get(0).getOperation());
+				frame.result = null;
+				return true;
 			}
-			// Put operation result on the new stack
-			newStack = new ArrayList<CvtrOperand>();
-			while (tempStack.size() > 0) {
-				newStack.add(tempStack.get(0));
-				tempStack.remove(0);
+			if (frame.tempStack == null) {
+				frame.result = null;
+				return true;
 			}
-			calcProgress += displayStack(newStack) + "\n";
-if (verbose)
-System.out.println("  New group(" + newStack.size() + "): " + displayStack(newStack));
-			// Get a new group at the head of the group list
-			if (listRemove)
-				groupList.remove(0);
+			endOperation(frame, true);
 		}
+		newStack = frame.newStack;
 
 		// Clear group counter 2D array
 		for (idx=0; idx < groupCount.size(); idx++) {
@@ -2059,15 +2962,16 @@ System.out.println("  New group(" + newStack.size() + "): " + displayStack(newSt
 		// Reduce equation further
 		if ((i = (sLevel - nLevel)) < 0)
 			i = 0;
-		calcError = "";
-		if ((newStack = getEquationNesting(0, i, newStack)) == null || calcError.length() > 0) {
-			return null;
+		calcError.set(CvtrError.none, -1);
+		if ((newStack = getEquationNesting(0, i, newStack)) == null || calcError.isSet()) {
+			frame.result = null;
+			return true;
 		}
 
 if (verbose) {
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End Reduce groups Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -2075,8 +2979,28 @@ for (i=0; i < newStack.size(); i++) {
 }
 }
 //		calcProgress += displayStack(newStack) + "\n";
-		return newStack;
-	} /* end reduceGroups */
+		frame.result = newStack;
+		return true;
+	} /* end stepReduce */
+
+/**
+ * Put the result of an operation between two groups on the new stack of a group.
+ * 
+ * @param frame	The group being reduced.
+ * @param listRemove	If true, the next group is the head of the group list.
+ */
+	private void endOperation(ReduceFrame frame, boolean listRemove) {
+		// Put operation result on the new stack
+		frame.newStack = new ArrayList<CvtrOperand>(frame.tempStack);
+		frame.tempStack.clear();
+		if (recordWork)
+			calcProgress.append(displayStack(frame.newStack)).append("\n");
+if (verbose)
+System.out.println("  New group(" + frame.newStack.size() + "): " + displayStack(frame.newStack));
+		// Get a new group at the head of the group list
+		if (listRemove)
+			frame.first++;
+	}
 
 /**
  * Put two operands in the same group by setting the nest level and group level
@@ -2086,19 +3010,13 @@ for (i=0; i < newStack.size(); i++) {
  * @param stackB	The second operand.
  */
 	private void syncOperands(CvtrOperand operA, CvtrOperand operB) {
-		int idx;
-		int[] nGroup;
 if (verbose)
 System.out.println("Sync: A " + operA.nestLevel + "(" + operA.nestGroup.length + "), B " +  operB.nestLevel);
 
 		if (operB.nestLevel < operA.nestLevel) {
-			nGroup = new int[operA.nestLevel + 1];
-			for (idx=0; idx < operA.nestLevel; idx++) {
-				nGroup[idx] = operA.nestGroup[idx];
-			}
-			operB.nestGroup = nGroup;
+			operB.nestGroup = nestPaths.extend(nestPaths.path(operA.nestGroup, operA.nestLevel), 0);
 		} else {
-			operB.nestGroup[operA.nestLevel] = operA.nestGroup[operA.nestLevel];
+			operB.nestGroup = nestPaths.set(operB.nestGroup, operA.nestLevel, operA.nestGroup[operA.nestLevel]);
 		}
 		operB.nestLevel = operA.nestLevel;
 
@@ -2113,26 +3031,48 @@ System.out.println("Sync: A " + operA.nestLevel + "(" + operA.nestGroup.length +
  * 
  * @return boolean	True if the operands are consistent, otherwise false.
  */
-	private boolean verifyOperation(String operation, String testOperation) {
-		String addList = "+-", logicList = "&|#";
+	private boolean verifyOperation(int operation, int testOperation) {
 if (verbose)
-System.out.println("Verify operation: " + operation + " ?= " + testOperation);
+System.out.println("Verify operation: " + CvtrOperand.getSymbol(operation) + " ?= " + CvtrOperand.getSymbol(testOperation));
 // TODO: Handle groups
-		if (operation.length() == 0) {
+		// An operand without an operation is consistent with addition and logic operations
+		if (operation == CvtrOperand.opNone) {
 			return true;
-		} else if (testOperation.equals(operation)) {
+		} else if (testOperation == operation) {
 			return true;
-		} else if (addList.indexOf(operation) >= 0 && addList.indexOf(testOperation) >= 0) {
+		} else if (isAddSub(operation) && (testOperation == CvtrOperand.opNone || isAddSub(testOperation))) {
 			return true;
-		} else if (logicList.indexOf(operation) >= 0 && logicList.indexOf(testOperation) >= 0) {
+		} else if (isLogic(operation) && (testOperation == CvtrOperand.opNone || isLogic(testOperation))) {
 			return true;
 		} else {
-			calcError ="?? !Op(" + operation + testOperation + ")";
+			calcError.set(CvtrError.mixedOperation, -1, CvtrOperand.getSymbol(operation), CvtrOperand.getSymbol(testOperation));
 			return false;
 		}
 
 	}
 
+/**
+ * Test whether an operation is addition or subtraction.
+ * 
+ * @param operation	The operation code.
+ * 
+ * @return boolean	True if the operation is addition or subtraction.
+ */
+	private static boolean isAddSub(int operation) {
+		return operation == CvtrOperand.opAdd || operation == CvtrOperand.opSub;
+	}
+
+/**
+ * Test whether an operation is a bitwise logic operation.
+ * 
+ * @param operation	The operation code.
+ * 
+ * @return boolean	True if the operation is AND, OR, or XOR.
+ */
+	private static boolean isLogic(int operation) {
+		return operation == CvtrOperand.opAnd || operation == CvtrOperand.opOr || operation == CvtrOperand.opXor;
+	}
+
 /**
  * Determine the overall type of a group, which is the primary operation.
  * The operations within the group (starting with the second operand) must be
@@ -2155,10 +3095,10 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
  */
 	private int groupType(ArrayList<CvtrOperand> groupStack) {
 		int idx, idxOp, opType, divCount = 0;
-		String operation = "";
+		int operation = CvtrOperand.opNone;
 		ArrayList<CvtrOperand> tempStack;
 		if (groupStack.size() == 0) {
-			calcError = "?? Null Group";
+			calcError.set(CvtrError.nullGroup, -1);
 			return -1;
 		} else if (groupStack.size() == 1) {
 			return none;
@@ -2174,19 +3114,19 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
 		}
 
 		// Test for fully reduced division
-		if (!groupStack.get(idxOp).operation.equals("/")) {
+		if (groupStack.get(idxOp).opCode != CvtrOperand.opDiv) {
 			for (idx=idxOp; idx < groupStack.size(); idx++) {
-				if (groupStack.get(idx).operation.equals("/"))
+				if (groupStack.get(idx).opCode == CvtrOperand.opDiv)
 					divCount++;
 			}
 			// Only one level of division allowed in a group
 			if (divCount > 1) {
-				calcError = "?? (//)";
+				calcError.set(CvtrError.doubleDivide, -1);
 				return -1;
 			} else if (divCount == 1) {
 				// Test numerator
 				tempStack = new ArrayList<CvtrOperand>();
-				for (idx=idxOp; idx < groupStack.size() && !groupStack.get(idx).operation.equals("/"); idx++) {
+				for (idx=idxOp; idx < groupStack.size() && groupStack.get(idx).opCode != CvtrOperand.opDiv; idx++) {
 					tempStack.add(groupStack.get(idx));
 				}
 				if ((opType = groupType(tempStack)) < 0) {
@@ -2206,14 +3146,14 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
 		}
 
 		// Test group for consistency
-		if (groupStack.get(idxOp).operation.equals("/")) {
+		if (groupStack.get(idxOp).opCode == CvtrOperand.opDiv) {
 			for (idx=idxOp; idx < groupStack.size(); idx++) {
 				if (!groupStack.get(idx).groupUnit) {
-					if (operation.length() == 0) {
-						operation = groupStack.get(idx).operation;
+					if (operation == CvtrOperand.opNone) {
+						operation = groupStack.get(idx).opCode;
 					// Only one level of division allowed in a group
-					} else if (groupStack.get(idx).operation.equals("/")) {
-						calcError = "?? (//)";
+					} else if (groupStack.get(idx).opCode == CvtrOperand.opDiv) {
+						calcError.set(CvtrError.doubleDivide, -1);
 						return -1;
 					// Test for fully reduced division
 					} else {
@@ -2225,7 +3165,7 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
 							return -1;
 						// Only one level of division allowed in a group
 						} else if (opType == div) {
-							calcError = "?? (//)";
+							calcError.set(CvtrError.doubleDivide, -1);
 							return -1;
 						} else {
 							return div;
@@ -2234,36 +3174,36 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
 				}
 			}
 			return div;
-		} else if (groupStack.get(idxOp).operation.equals("+") || groupStack.get(idxOp).operation.equals("-")) {
+		} else if (groupStack.get(idxOp).opCode == CvtrOperand.opAdd || groupStack.get(idxOp).opCode == CvtrOperand.opSub) {
 			for (idx=idxOp; idx < groupStack.size(); idx++) {
-				if (operation.length() == 0 && !groupStack.get(idx).groupUnit) {
-					operation = groupStack.get(idx).operation;
-				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).operation)) {
+				if (operation == CvtrOperand.opNone && !groupStack.get(idx).groupUnit) {
+					operation = groupStack.get(idx).opCode;
+				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).opCode)) {
 					return -1;
 				}
 			}
 			// If the group is subtracted, add the negated values
-			if (groupStack.get(0).operation.equals("-")) {
+			if (groupStack.get(0).opCode == CvtrOperand.opSub) {
 				if (!subtractUnits(groupStack)) {
 					return -1;
 				}
 			}
 			return addsub;
-		} else if (groupStack.get(idxOp).operation.equals("*")) {
+		} else if (groupStack.get(idxOp).opCode == CvtrOperand.opMult) {
 			for (idx=idxOp; idx < groupStack.size(); idx++) {
-				if (operation.length() == 0 && !groupStack.get(idx).groupUnit) {
-					operation = groupStack.get(idx).operation;
-				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).operation)) {
+				if (operation == CvtrOperand.opNone && !groupStack.get(idx).groupUnit) {
+					operation = groupStack.get(idx).opCode;
+				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).opCode)) {
 					return -1;
 				}
 			}
 			multiplyUnits(groupStack);
 			return none;
-		} else if (groupStack.get(idxOp).operation.equals("&") || groupStack.get(idxOp).operation.equals("|") || groupStack.get(idxOp).operation.equals("#")) {
+		} else if (groupStack.get(idxOp).opCode == CvtrOperand.opAnd || groupStack.get(idxOp).opCode == CvtrOperand.opOr || groupStack.get(idxOp).opCode == CvtrOperand.opXor) {
 			for (idx=idxOp; idx < groupStack.size(); idx++) {
-				if (operation.length() == 0 && !groupStack.get(idx).groupUnit) {
-					operation = groupStack.get(idx).operation;
-				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).operation)) {
+				if (operation == CvtrOperand.opNone && !groupStack.get(idx).groupUnit) {
+					operation = groupStack.get(idx).opCode;
+				} else if (!groupStack.get(idx).groupUnit && !verifyOperation(operation, groupStack.get(idx).opCode)) {
 					return -1;
 				}
 			}
@@ -2271,7 +3211,7 @@ System.out.println("Verify operation: " + operation + " ?= " + testOperation);
 			return none;
 		}
 
-		calcError = "?? Op(" + groupStack.get(idxOp).operation + ")";
+		calcError.set(CvtrError.operation, -1, groupStack.get(idxOp).getOperation());
 		return -1;
 	} /* end groupType */
 
@@ -2288,14 +3228,14 @@ if (verbose)
 System.out.println("Subtract units: " + unitStack.size());
 		
 		// If the second group is subtracted, multiply the values by -1
-		if (unitStack.get(0).operation.equals("-")) {
-			unitStack.get(0).value *= -1;
-			unitStack.get(0).operation = "+";
+		if (unitStack.get(0).opCode == CvtrOperand.opSub) {
+			unitStack.get(0).negate();
+			unitStack.get(0).opCode = CvtrOperand.opAdd;
 			for (idx=1; idx < unitStack.size(); idx++) {
-				if (unitStack.get(idx).operation.equals("+")) {
-					unitStack.get(idx).value *= -1;
-				} else if (unitStack.get(idx).operation.equals("-")) {
-					unitStack.get(idx).operation = "+";
+				if (unitStack.get(idx).opCode == CvtrOperand.opAdd) {
+					unitStack.get(idx).negate();
+				} else if (unitStack.get(idx).opCode == CvtrOperand.opSub) {
+					unitStack.get(idx).opCode = CvtrOperand.opAdd;
 				} else
 					return false;
 			}
@@ -2318,13 +3258,13 @@ System.out.println("Subtract units: " + unitStack.size());
 if (verbose)
 System.out.println("Multiply units: " + unitStack.size());
 		while (idx < unitStack.size()) {
-			if (!unitStack.get(idx).operation.equals("*")) {
+			if (unitStack.get(idx).opCode != CvtrOperand.opMult) {
 				head = idx;
 				idx++;
 				continue;
 			}
 			// Set the value
-			unitStack.get(head).value *= unitStack.get(idx).value;
+			unitStack.get(head).multiply(unitStack.get(idx));
 			// No unit in second value
 			if (unitStack.get(idx).indexType < 0) {
 				unitStack.remove(idx);
@@ -2365,26 +3305,25 @@ System.out.println("Multiply units: " + unitStack.size());
 	private void logicUnits(ArrayList<CvtrOperand> unitStack) {
 		int head = 0, idx = 1;
 		long l1, l2;
-		String logicList = "&|#";
 if (verbose)
 System.out.println("Logical units: " + unitStack.size());
 		
 		while (idx < unitStack.size()) {
-			if (logicList.indexOf(unitStack.get(idx).operation) < 0) {
+			if (!isLogic(unitStack.get(idx).opCode)) {
 				head = idx;
 				idx++;
 				continue;
 			}
-			l1 = (long) unitStack.get(head).value;
-			l2 = (long) unitStack.get(idx).value;
+			l1 = unitStack.get(head).getLong();
+			l2 = unitStack.get(idx).getLong();
 			// Check second operand units
 			if (unitStack.get(head).indexType >= 0) {
-				if (unitStack.get(idx).operation.equals("&")) {
-					unitStack.get(head).value = l1 & l2;
-				} else if (unitStack.get(idx).operation.equals("|")) {
-					unitStack.get(head).value = l1 | l2;
-				} else if (unitStack.get(idx).operation.equals("#")) {
-					unitStack.get(head).value = l1 ^ l2;
+				if (unitStack.get(idx).opCode == CvtrOperand.opAnd) {
+					unitStack.get(head).setLong(l1 & l2);
+				} else if (unitStack.get(idx).opCode == CvtrOperand.opOr) {
+					unitStack.get(head).setLong(l1 | l2);
+				} else if (unitStack.get(idx).opCode == CvtrOperand.opXor) {
+					unitStack.get(head).setLong(l1 ^ l2);
 				}
 				// Different units, set placeholder
 				if (unitStack.get(head).indexType != unitStack.get(idx).indexType) {
@@ -2397,12 +3336,12 @@ System.out.println("Logical units: " + unitStack.size());
 				}
 			// First operand has no units
 			} else {
-				if (unitStack.get(idx).operation.equals("&")) {
-					unitStack.get(head).value = l1 & l2;
-				} else if (unitStack.get(idx).operation.equals("|")) {
-					unitStack.get(head).value = l1 | l2;
-				} else if (unitStack.get(idx).operation.equals("#")) {
-					unitStack.get(head).value = l1 ^ l2;
+				if (unitStack.get(idx).opCode == CvtrOperand.opAnd) {
+					unitStack.get(head).setLong(l1 & l2);
+				} else if (unitStack.get(idx).opCode == CvtrOperand.opOr) {
+					unitStack.get(head).setLong(l1 | l2);
+				} else if (unitStack.get(idx).opCode == CvtrOperand.opXor) {
+					unitStack.get(head).setLong(l1 ^ l2);
 				}
 				unitStack.get(head).indexType = unitStack.get(idx).indexType;
 				unitStack.get(head).indexUnit = unitStack.get(idx).indexUnit;
@@ -2535,10 +3474,10 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			newStack = stackA;
 			// Units are the same and the value can be added or subtracted
 			if (sameGroupUnits(stackA, 0, stackB, 0)) {
-				if (stackB.get(0).operation.equals("+"))
-					newStack.get(0).value += stackB.get(0).value;
+				if (stackB.get(0).opCode == CvtrOperand.opAdd)
+					newStack.get(0).add(stackB.get(0));
 				else
-					newStack.get(0).value -= stackB.get(0).value;
+					newStack.get(0).subtract(stackB.get(0));
 			// Units are different, merge the two groups
 			} else {
 				while (stackB.size() > 0) {
@@ -2550,11 +3489,11 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 		} else if (opA == div || opB == div) {
 			// Get starting operand denominator for each group
 			for (iDA=1; iDA < stackA.size(); iDA++) {
-				if (stackA.get(iDA).operation.equals("/"))
+				if (stackA.get(iDA).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			for (iDB=1; iDB < stackB.size(); iDB++) {
-				if (stackB.get(iDB).operation.equals("/"))
+				if (stackB.get(iDB).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			// Check for matching denominator units in both groups
@@ -2593,15 +3532,15 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			tStackB = new ArrayList <CvtrOperand>();
 			for (idx=iDB; idx < stackB.size(); idx++) {
 				if (idx == iDB && iDA < stackA.size()) {
-					stackB.get(idx).operation = "*";
+					stackB.get(idx).opCode = CvtrOperand.opMult;
 				}
-				oper = stackB.get(idx).dupOperand();
+				oper = dupOperand(stackB.get(idx));
 				// Numerator/Denominator units cancel each other in addition/subtraction
 				if (unitsCancel)
 					oper.clearUnit();
 				// Multiply the group
 				if (idx == iDB) {
-					oper.operation = "*";
+					oper.opCode = CvtrOperand.opMult;
 				}
 				tStackB.add(oper);
 			}
@@ -2617,13 +3556,13 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			}
 			tStackA = new ArrayList <CvtrOperand>();
 			for (idx=iDA; idx < stackA.size(); idx++) {
-				oper = stackA.get(idx).dupOperand();
+				oper = dupOperand(stackA.get(idx));
 				// Numerator/Denominator units cancel each other in addition/subtraction
 				if (unitsCancel)
 					oper.clearUnit();
 				// Multiply the group
 				if (idx == iDA) {
-					oper.operation = "*";
+					oper.opCode = CvtrOperand.opMult;
 				}
 				tStackA.add(oper);
 			}
@@ -2664,7 +3603,8 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			// Make denominator a separate group
 			for (idx=0; idx < tStackA.size(); idx++) {
 				syncOperands(newStack.get(0), tStackA.get(idx));
-				tStackA.get(idx).nestGroup[tStackA.get(idx).nestLevel]++;
+				oper = tStackA.get(idx);
+				oper.nestGroup = nestPaths.set(oper.nestGroup, oper.nestLevel, oper.nestGroup[oper.nestLevel] + 1);
 				newStack.add(tStackA.get(idx));
 			}
 		// (+|-) +|- (*)
@@ -2701,7 +3641,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 if (verbose) {
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End addsubGroups Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -2723,6 +3663,7 @@ for (i=0; i < newStack.size(); i++) {
 		int i, j, idx, idxA, idxB;
 		int opA, opB, iDA, iDB;
 		CvtrOperand oper;
+		CvtrPolynomial terms;
 		ArrayList<CvtrOperand> newStack = new ArrayList<CvtrOperand>(), tStackA, tStackB, oStack;
 if (verbose)
 System.out.println("Multiply groups: " + stackA.size() + ", " + stackB.size());
@@ -2731,7 +3672,7 @@ System.out.println("Multiply groups: " + stackA.size() + ", " + stackB.size());
 		if (stackA.size() == 1 && stackB.size() == 1) {
 			syncOperands(stackA.get(0), stackB.get(0));
 			newStack = stackA;
-			newStack.get(0).value *= stackB.get(0).value;
+			newStack.get(0).multiply(stackB.get(0));
 			// Handle units
 			if (stackB.get(0).indexType >= 0) {
 				// First operand has no unit
@@ -2765,10 +3706,15 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 
 		// (+|-|N) * (+|-|N)
 		if (opA <= addsub && opB <= addsub) {
+			if (overTerms((long) trueSize(stackA) * trueSize(stackB)))
+				return null;
+			terms = new CvtrPolynomial();
 			tStackA = new ArrayList<CvtrOperand>();
 			oStack = new ArrayList<CvtrOperand>();
 			tStackB = new ArrayList<CvtrOperand>();
 			for (idxA=0; idxA < stackA.size(); idxA++) {
+				if (overBudget())
+					return null;
 				tStackA.add(stackA.get(idxA));
 				// Account for multi-unit operands
 				while ((idxA + 1) < stackA.size() && stackA.get(idxA + 1).groupUnit) {
@@ -2777,9 +3723,9 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 				}
 				// Multiply each operand in first group by all operands in second group
 				for (idxB=0; idxB < stackB.size(); idxB++) {
-					oper = stackB.get(idxB).dupOperand();
+					oper = dupOperand(stackB.get(idxB));
 					// Get sign of multiplier value
-					if (oper.operation.equals("-"))
+					if (oper.opCode == CvtrOperand.opSub)
 						iDB = -1;
 					else
 						iDB = 1;
@@ -2787,22 +3733,22 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 					tStackB.add(oper);
 					while ((idxB + 1) < stackB.size() && stackB.get(idxB + 1).groupUnit) {
 						idxB++;
-						oper = stackB.get(idxB).dupOperand();
+						oper = dupOperand(stackB.get(idxB));
 						syncOperands(tStackA.get(0), oper);
 						tStackB.add(oper);
 					}
 					// Get temporary group in case current group needs to be reused
 					for (i=0; i < tStackA.size(); i++) {
-						oStack.add(tStackA.get(i).dupOperand());
+						oStack.add(dupOperand(tStackA.get(i)));
 						// Set operation according to first group operands
 						if (i == 0) {
-							if (tStackA.get(i).operation.equals("-")) {
-								oStack.get(i).operation = "-";
+							if (tStackA.get(i).opCode == CvtrOperand.opSub) {
+								oStack.get(i).opCode = CvtrOperand.opSub;
 							} else {
-								oStack.get(i).operation = "+";
+								oStack.get(i).opCode = CvtrOperand.opAdd;
 							}
 						} else {
-							oStack.get(i).operation = "*";
+							oStack.get(i).opCode = CvtrOperand.opMult;
 						}
 					}
 					// Set operand operation and value
@@ -2820,7 +3766,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 								j--;
 								break;
 							// Add powers of duplicate units
-							} else if (oStack.get(i).unit.equals(tStackB.get(j).unit)) {
+							} else if (oStack.get(i).sameUnit(tStackB.get(j))) {
 								oStack.get(i).unitPower += tStackB.get(j).unitPower;
 								tStackB.remove(j);
 								j--;
@@ -2828,25 +3774,23 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 							}
 						}
 					}
-					// Add operands to result
-					while (oStack.size() > 0) {
-						newStack.add(oStack.get(0));
-						oStack.remove(0);
-					}
-					while (tStackB.size() > 0) {
-						if (tStackB.get(0).indexType >= 0) {
-							tStackB.get(0).groupUnit = true;
-							tStackB.get(0).value = 1;
-							tStackB.get(0).operation = "*";
-							newStack.add(tStackB.get(0));
+					// Add the term to the result, combined with any term with the same units
+					for (i=0; i < tStackB.size(); i++) {
+						if (tStackB.get(i).indexType >= 0) {
+							tStackB.get(i).groupUnit = true;
+							tStackB.get(i).value = 1;
+							tStackB.get(i).opCode = CvtrOperand.opMult;
+							oStack.add(tStackB.get(i));
 						}
-						tStackB.remove(0);
 					}
+					terms.add(oStack);
+					oStack = new ArrayList<CvtrOperand>();
+					tStackB.clear();
 				}
-				while (tStackA.size() > 0)
-					tStackA.remove(0);
+				tStackA.clear();
 			}
-			newStack.get(0).operation = stackA.get(0).operation;
+			terms.addTo(newStack);
+			newStack.get(0).opCode = stackA.get(0).opCode;
 		// (*) * (*)
 		} else if ((opA == none || opA == mult) && (opB == none || opB == mult)) {
 			newStack = stackA;
@@ -2866,11 +3810,11 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 		} else if ((opA == none || opA == div) && (opB == none || opB == div)) {
 			// Get starting operand denominator for each group
 			for (iDA=1; iDA < stackA.size(); iDA++) {
-				if (stackA.get(iDA).operation.equals("/"))
+				if (stackA.get(iDA).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			for (iDB=1; iDB < stackB.size(); iDB++) {
-				if (stackB.get(iDB).operation.equals("/"))
+				if (stackB.get(iDB).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			// Multiply numerators
@@ -2893,7 +3837,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 				tStackB = new ArrayList <CvtrOperand>();
 				for (idx=iDB; idx < stackB.size(); idx++) {
 					if (idx == iDB && opA == div) {
-						stackB.get(idx).operation = "*";
+						stackB.get(idx).opCode = CvtrOperand.opMult;
 					}
 					tStackB.add(stackB.get(idx));
 				}
@@ -2911,13 +3855,14 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			// Make denominator a separate group
 			for (idx=0; idx < tStackA.size(); idx++) {
 				syncOperands(newStack.get(0), tStackA.get(idx));
-				tStackA.get(idx).nestGroup[tStackA.get(idx).nestLevel]++;
+				oper = tStackA.get(idx);
+				oper.nestGroup = nestPaths.set(oper.nestGroup, oper.nestLevel, oper.nestGroup[oper.nestLevel] + 1);
 				newStack.add(tStackA.get(idx));
 			}
 			// (+|-) * (/)
 		} else if (opA == addsub && opB == div) {
 			for (iDB=1; iDB < stackB.size(); iDB++) {
-				if (stackB.get(iDB).operation.equals("/"))
+				if (stackB.get(iDB).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			tStackB = new ArrayList <CvtrOperand>();
@@ -2935,7 +3880,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			// (/) * (+|-)
 		} else if (opA == div && opB == addsub) {
 			for (iDA=1; iDA < stackB.size(); iDA++) {
-				if (stackA.get(iDA).operation.equals("/"))
+				if (stackA.get(iDA).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			tStackA = new ArrayList <CvtrOperand>();
@@ -2955,7 +3900,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 if (verbose) {
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End multiplyGroups Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
 	System.out.println(")");
@@ -2987,10 +3932,10 @@ System.out.println("Divide groups: " + stackA.size() + ", " + stackB.size());
 			newStack = stackA;
 			// No units in denominator
 			if (stackB.get(0).indexType == -1) {
-				newStack.get(0).value /= stackB.get(0).value;
+				divide(newStack.get(0), stackB.get(0));
 			// Numerator and denominator units are the same
 			} else if (stackB.get(0).indexType == newStack.get(0).indexType) {
-				newStack.get(0).value /= stackB.get(0).value;
+				divide(newStack.get(0), stackB.get(0));
 				// Unit power same, cancels units
 				if (newStack.get(0).unitPower == stackB.get(0).unitPower) {
 					newStack.get(0).clearUnit();
@@ -3025,7 +3970,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 		if (opA <= addsub && opB == none) {
 			for (idx=0; idx < stackA.size(); idx++) {
 				if (!stackA.get(idx).groupUnit)
-					stackA.get(idx).value /= stackB.get(0).value;
+					divide(stackA.get(idx), stackB.get(0));
 				newStack.add(stackA.get(idx));
 			}
 			stackB.get(0).value = 1;
@@ -3043,7 +3988,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			// Determine if group units are the same
 			for (idx=0; idx < stackA.size(); idx++) {
 				for (i=0; i < stackB.size(); i++) {
-					if (stackA.get(idx).unit.equals(stackB.get(i).unit))
+					if (stackA.get(idx).sameUnit(stackB.get(i)))
 						break;
 				}
 				if (i == stackB.size())
@@ -3052,7 +3997,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			newStack = stackA;
 			// Units are the same and the values can be divided
 			if (idx == stackA.size()) {
-					newStack.get(0).value /= stackB.get(0).value;
+					divide(newStack.get(0), stackB.get(0));
 			// Units are different, merge the two groups
 			} else {
 				while (stackB.size() > 0) {
@@ -3065,12 +4010,12 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 		} else if (opA == div && opB <= addsub) {
 			// Get first group numerator
 			tStackA = new ArrayList<CvtrOperand>();
-			while (stackA.size() > 0 && !stackA.get(0).operation.equals("/")) {
+			while (stackA.size() > 0 && stackA.get(0).opCode != CvtrOperand.opDiv) {
 				tStackA.add(stackA.get(0));
 				stackA.remove(0);
 			}
 			// Multiply first group denominator and second group
-			stackB.get(0).operation = "*";
+			stackB.get(0).opCode = CvtrOperand.opMult;
 			if ((tStackB = multiplyGroups(stackA, stackB)) == null)
 				return null;
 			// New denominator becomes new group denominator
@@ -3085,15 +4030,15 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 			tStackB = new ArrayList<CvtrOperand>();
 			tStackB.add(stackB.get(0));
 			stackB.remove(0);
-			while (stackB.size() > 0 && !stackB.get(0).operation.equals("/")) {
+			while (stackB.size() > 0 && stackB.get(0).opCode != CvtrOperand.opDiv) {
 				tStackB.add(stackB.get(0));
 				stackB.remove(0);
 			}
 			if (stackB.size() == 0 || tStackB.size() == 0) {
-				calcError = "?? / Null";
+				calcError.set(CvtrError.nullDivisor, -1);
 				return null;
 			}
-			stackB.get(0).operation = "*";
+			stackB.get(0).opCode = CvtrOperand.opMult;
 			// Multiply first group and second group denominator
 			if ((newStack = multiplyGroups(stackA, stackB)) == null)
 				return null;
@@ -3106,28 +4051,28 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 		} else if (opA <= div && opB == div) {
 			// Flip second group numerator and denominator
 			for (iDB=1; iDB < stackB.size(); iDB++) {
-				if (stackB.get(iDB).operation.equals("/"))
+				if (stackB.get(iDB).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			if (iDB == stackB.size()) {
-				calcError = "?? / Null";
+				calcError.set(CvtrError.nullDivisor, -1);
 				return null;
 			}
 			tStackB = new ArrayList<CvtrOperand>();
 			for (idx=iDB; idx < stackB.size(); idx++) {
-				oper = stackB.get(idx).dupOperand();
+				oper = dupOperand(stackB.get(idx));
 				if (tStackB.size() == 0) {
-					oper.operation = "*";
+					oper.opCode = CvtrOperand.opMult;
 				}
 				syncOperands(stackA.get(0), oper);
 				tStackB.add(oper);
 			}
 			for (iDA=0; iDA < stackB.size(); iDA++) {
-				if (stackA.get(iDA).operation.equals("/"))
+				if (stackA.get(iDA).opCode == CvtrOperand.opDiv)
 					break;
 			}
 			if (iDA == stackA.size()) {
-				calcError = "?? / Null";
+				calcError.set(CvtrError.nullDivisor, -1);
 				return null;
 			}
 			for (idx=0; idx < iDB; idx++) {
@@ -3142,7 +4087,7 @@ System.out.println(" == OpA :: OpB: " + opA + " :: " + opB);
 if (verbose) {
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End divideGroups Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -3174,7 +4119,7 @@ System.out.println("Logical groups: " + stackA.size() + ", " + stackB.size());
 
 		// At least one group must be single operand
 		if (stackA.size() > 1 && stackB.size() > 1) {
-			calcError = "?? ()L()";
+			calcError.set(CvtrError.groupLogic, -1);
 			return null;
 		}
 		// Do not allow logical operations on different units
@@ -3186,7 +4131,7 @@ System.out.println("Logical groups: " + stackA.size() + ", " + stackB.size());
 					type = stackA.get(i).indexType;
 					opUnit = stackA.get(i).unit;
 				} else {
-					calcError = "?? " + opUnit + " L " + stackA.get(i).unit;
+					calcError.set(CvtrError.unitLogic, -1, opUnit, stackA.get(i).unit);
 					return null;
 				}
 			}
@@ -3197,7 +4142,7 @@ System.out.println("Logical groups: " + stackA.size() + ", " + stackB.size());
 					type = stackB.get(i).indexType;
 					opUnit = stackB.get(i).unit;
 				} else {
-					calcError = "?? " + opUnit + " L " + stackB.get(i).unit;
+					calcError.set(CvtrError.unitLogic, -1, opUnit, stackB.get(i).unit);
 					return null;
 				}
 			}
@@ -3209,19 +4154,19 @@ System.out.println("Logical groups: " + stackA.size() + ", " + stackB.size());
 				return null;
 			}
 			newStack = stackB;
-			l1 = (long) stackA.get(0).value;
+			l1 = stackA.get(0).getLong();
 			for (i=0; i < newStack.size(); i++) {
 				if (!newStack.get(i).groupUnit) {
-					l2 = (long) newStack.get(i).value;
-					if (stackB.get(0).operation.equals("&")) {
-						newStack.get(i).value = l1 & l2;
-					} else if (stackB.get(0).operation.equals("|")) {
-						newStack.get(i).value = l1 | l2;
-					} else if (stackB.get(0).operation.equals("#")) {
-						newStack.get(i).value = l1 ^ l2;
+					l2 = newStack.get(i).getLong();
+					if (stackB.get(0).opCode == CvtrOperand.opAnd) {
+						newStack.get(i).setLong(l1 & l2);
+					} else if (stackB.get(0).opCode == CvtrOperand.opOr) {
+						newStack.get(i).setLong(l1 | l2);
+					} else if (stackB.get(0).opCode == CvtrOperand.opXor) {
+						newStack.get(i).setLong(l1 ^ l2);
 					}
 if (verbose)
-System.out.println(" == " + l1 + stackB.get(0).operation + l2 + " = " + newStack.get(i).value);
+System.out.println(" == " + l1 + stackB.get(0).getOperation() + l2 + " = " + newStack.get(i).value);
 				}
 			}
 		} else {
@@ -3229,19 +4174,19 @@ System.out.println(" == " + l1 + stackB.get(0).operation + l2 + " = " + newStack
 				return null;
 			}
 			newStack = stackA;
-			l2 = (long) stackB.get(0).value;
+			l2 = stackB.get(0).getLong();
 			for (i=0; i < newStack.size(); i++) {
 				if (!newStack.get(i).groupUnit) {
-					l1 = (long) newStack.get(i).value;
-					if (stackB.get(0).operation.equals("&")) {
-						newStack.get(i).value = l1 & l2;
-					} else if (stackB.get(0).operation.equals("|")) {
-						newStack.get(i).value = l1 | l2;
-					} else if (stackB.get(0).operation.equals("#")) {
-						newStack.get(i).value = l1 ^ l2;
+					l1 = newStack.get(i).getLong();
+					if (stackB.get(0).opCode == CvtrOperand.opAnd) {
+						newStack.get(i).setLong(l1 & l2);
+					} else if (stackB.get(0).opCode == CvtrOperand.opOr) {
+						newStack.get(i).setLong(l1 | l2);
+					} else if (stackB.get(0).opCode == CvtrOperand.opXor) {
+						newStack.get(i).setLong(l1 ^ l2);
 					}
 if (verbose)
-System.out.println(" == " + l1 + stackB.get(0).operation + l2 + " = " + newStack.get(i).value);
+System.out.println(" == " + l1 + stackB.get(0).getOperation() + l2 + " = " + newStack.get(i).value);
 				}
 			}
 		}
@@ -3250,7 +4195,7 @@ System.out.println(" == Single value L Op: " + opGroup);
 
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End logicalGroups Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -3285,13 +4230,13 @@ System.out.println("Modulo groups: " + stackA.size() + ", " + stackB.size());
 			// Attempt to reduce the modulo operand group
 			tStackB = new ArrayList<CvtrOperand>();
 			for (i=0; i < stackB.size(); i++) {
-				tStackB.add(stackB.get(i).dupOperand());
+				tStackB.add(dupOperand(stackB.get(i)));
 				tStackB.get(i).nestLevel = 0;
 				tStackB.get(i).function = false;
 			}
 			reduceEquation(tStackB);
 			if (tStackB.size() > 1) {
-				calcError = "?? ()%()";
+				calcError.set(CvtrError.groupModulo, -1);
 				return null;
 			}
 			tStackB.get(0).nestLevel = stackB.get(0).nestLevel;
@@ -3301,14 +4246,14 @@ System.out.println("Modulo groups: " + stackA.size() + ", " + stackB.size());
 		l1 = (long) stackB.get(0).value;
 		d = stackB.get(0).value - l1;
 		if (d != 0) {
-			calcError = "?? ()%" + stackB.get(0).value;
+			calcError.set(CvtrError.groupModuloValue, -1, stackB.get(0).value);
 			return null;
 		}
 
 		// Do not allow modulo operation on different units
 		for (i=0; i < stackA.size(); i++) {
 			if (stackB.get(0).indexType >= 0 && stackA.get(i).indexType != stackB.get(0).indexType) {
-				calcError = "?? " + stackA.get(i).unit + "%" + stackB.get(0).unit;
+				calcError.set(CvtrError.unitModulo, -1, stackA.get(i).unit, stackB.get(0).unit);
 				return null;
 			}
 		}
@@ -3319,14 +4264,14 @@ System.out.println("Modulo groups: " + stackA.size() + ", " + stackB.size());
 		// Handle division
 		if (groupType(stackA) == div) {
 			// Reduce division inline
-			if (stackA.size() == 2 && (stackA.get(0).unit.equals(stackB.get(0).unit) &&
+			if (stackA.size() == 2 && (stackA.get(0).sameUnit(stackB.get(0)) &&
 					stackA.get(0).unitPower == stackB.get(0).unitPower)) {
-				stackA.get(0).value = stackA.get(0).value / stackA.get(1).value;
+				divide(stackA.get(0), stackA.get(1));
 				stackA.remove(1);
 			// Attempt to reduce group division
 			} else {
 				for (op=1; op < stackA.size(); op++) {
-					if (stackA.get(op).operation.equals("/"))
+					if (stackA.get(op).opCode == CvtrOperand.opDiv)
 						break;
 				}
 				tStackA = new ArrayList<CvtrOperand>();
@@ -3342,7 +4287,7 @@ System.out.println("Modulo groups: " + stackA.size() + ", " + stackB.size());
 		l2 = (long) stackB.get(0).value;
 		for (i=0; i < newStack.size(); i++) {
 			if (!newStack.get(i).groupUnit) {
-				if (newStack.get(i).operation.equals("/"))
+				if (newStack.get(i).opCode == CvtrOperand.opDiv)
 					break;
 				l1 = (long) newStack.get(i).value;
 				d = newStack.get(i).value - l1;
@@ -3356,7 +4301,7 @@ System.out.println(" == Single value % Op: " + opGroup);
 
 for (i=0; i < newStack.size(); i++) {
 	System.out.print("   End moduloGroup Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-			newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+			newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=newStack.get(i).nestLevel; j >= 0; j--)
 		System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -3376,8 +4321,8 @@ for (i=0; i < newStack.size(); i++) {
  * @return ArrayList<CvtrOperand>	The resulting stack of operands.
  */
 	private ArrayList<CvtrOperand> powerGroup(ArrayList<CvtrOperand> stackA, ArrayList<CvtrOperand> stackB) {
-		int i, op;
-		long l1;
+		int i, op, size, terms;
+		long l1, bit;
 		double d;
 		ArrayList<CvtrOperand> newStack = new ArrayList<CvtrOperand>(), tStackA, tStackB;
 if (verbose)
@@ -3387,13 +4332,13 @@ System.out.println("Power group: " + stackA.size() + ", " + stackB.size());
 			// Attempt to reduce the power operand group
 			tStackB = new ArrayList<CvtrOperand>();
 			for (i=0; i < stackB.size(); i++) {
-				tStackB.add(stackB.get(i).dupOperand());
+				tStackB.add(dupOperand(stackB.get(i)));
 				tStackB.get(i).nestLevel = 0;
 				tStackB.get(i).function = false;
 			}
 			reduceEquation(tStackB);
 			if (tStackB.size() > 1) {
-				calcError = "?? ()^()";
+				calcError.set(CvtrError.groupPower, -1);
 				return null;
 			}
 			tStackB.get(0).nestLevel = stackB.get(0).nestLevel;
@@ -3401,7 +4346,7 @@ System.out.println("Power group: " + stackA.size() + ", " + stackB.size());
 		}
 		// Power may not have a unit
 		if (stackB.get(0).indexType >= 0) {
-			calcError = "?? ()^" + stackB.get(0).unit;
+			calcError.set(CvtrError.groupPowerUnit, -1, stackB.get(0).unit);
 			return null;
 		}
 
@@ -3412,14 +4357,14 @@ System.out.println("Power group: " + stackA.size() + ", " + stackB.size());
 		// Handle division
 		if (groupType(stackA) == div) {
 			// Reduce division inline
-			if (stackA.size() == 2 && (stackA.get(0).unit.equals(stackB.get(0).unit) &&
+			if (stackA.size() == 2 && (stackA.get(0).sameUnit(stackB.get(0)) &&
 					stackA.get(0).unitPower == stackB.get(0).unitPower)) {
-				stackA.get(0).value = stackA.get(0).value / stackA.get(1).value;
+				divide(stackA.get(0), stackA.get(1));
 				stackA.remove(1);
 			// Attempt to reduce group division
 			} else {
 				for (op=1; op < stackA.size(); op++) {
-					if (stackA.get(op).operation.equals("/"))
+					if (stackA.get(op).opCode == CvtrOperand.opDiv)
 						break;
 				}
 				tStackA = new ArrayList<CvtrOperand>();
@@ -3434,7 +4379,7 @@ System.out.println("Power group: " + stackA.size() + ", " + stackB.size());
 
 		if (stackA.size() == 1) {
 			newStack.add(stackA.get(0));
-			newStack.get(0).value = Math.pow(stackA.get(0).value, stackB.get(0).value);
+			raise(newStack.get(0), stackB.get(0));
 			if (newStack.get(0).indexType >= 0)
 				newStack.get(0).unitPower = (int) stackB.get(0).value;
 		// Power must be an integer for groups
@@ -3442,19 +4387,44 @@ System.out.println("Power group: " + stackA.size() + ", " + stackB.size());
 			l1 = (long) stackB.get(0).value;
 			d = stackB.get(0).value - l1;
 			if (d != 0) {
-				calcError = "?? ()^i.d";
+				calcError.set(CvtrError.groupPowerDecimal, -1);
 				return null;
 			}
 			newStack = stackA;
-			for (i=1; i < (int) stackB.get(0).value; i++) {
-				newStack = multiplyGroups(newStack, stackA);
+			if (l1 > 1 && groupType(stackA) == addsub) {
+				// Square the group for each bit of the power after the first,
+				// and multiply by the group for each bit that is set
+				terms = trueSize(stackA);
+				for (bit=Long.highestOneBit(l1) >> 1; bit > 0; bit >>= 1) {
+					size = trueSize(newStack);
+					if ((long) size * size > maxPowerTerms) {
+						calcError.set(CvtrError.groupPowerLarge, -1, l1);
+						return null;
+					}
+					if ((newStack = multiplyGroups(newStack, newStack)) == null)
+						return null;
+					if ((l1 & bit) != 0) {
+						if ((long) trueSize(newStack) * terms > maxPowerTerms) {
+							calcError.set(CvtrError.groupPowerLarge, -1, l1);
+							return null;
+						}
+						if ((newStack = multiplyGroups(newStack, stackA)) == null)
+							return null;
+					}
+				}
+			} else {
+				for (i=1; i < (int) stackB.get(0).value; i++) {
+					if (overBudget())
+						return null;
+					newStack = multiplyGroups(newStack, stackA);
+				}
 			}
 		}
 
 if (verbose) {
 for (i=0; i < newStack.size(); i++) {
 System.out.print("   End powerGroup Operand " + i + ": " + newStack.get(i).value + newStack.get(i).unit + "^" +
-	newStack.get(i).unitPower + ", " + newStack.get(i).operation + " (" + newStack.get(i).nestLevel + ", ");
+	newStack.get(i).unitPower + ", " + newStack.get(i).getOperation() + " (" + newStack.get(i).nestLevel + ", ");
 int j;
 for (j=newStack.get(i).nestLevel; j >= 0; j--)
 System.out.print(">" + newStack.get(i).nestGroup[j]);
@@ -3475,20 +4445,20 @@ System.out.println(")");
  * @return ArrayList <CvtrOperand>	The resulting group.
  */
 	private ArrayList <CvtrOperand> calculateFunctionGroup(ArrayList <CvtrOperand> functionStack, ArrayList<CvtrOperand> operStack) {
-		int idx;
+		int idx, function;
 		long l;
-		String function;
 		ArrayList <CvtrOperand> newStack = new ArrayList <CvtrOperand>();
 if (verbose)
 System.out.println("Calculate function group: " + functionStack.size());
 
 		// Verify first operand is function
 		if (!functionStack.get(0).function) {
-			calcError = "?? Function Group";
+			calcError.set(CvtrError.functionGroup, -1);
 			return null;
 		}
-		if ((function = functionStack.get(0).sValue) == null)
+		if (functionStack.get(0).sValue == null)
 			return operStack;
+		function = functionStack.get(0).opCode;
 
 		// Reduce operand group
 		if ((newStack = reduceEquation(operStack)) == null) {
@@ -3496,38 +4466,34 @@ System.out.println("Calculate function group: " + functionStack.size());
 		}
 		for (idx=1; idx < operStack.size(); idx++) {
 			// NOT each operand
-			if (function.equals("!")) {
+			if (function == CvtrOperand.opNot) {
 				if (!operStack.get(idx).groupUnit) {
-					l = (long) operStack.get(idx).value;
-					operStack.get(idx).value = ~l;
+					l = operStack.get(idx).getLong();
+					operStack.get(idx).setLong(~l);
 				}
 			// Do not allow square root group
-			} else if (function.equals("\\")) {
+			} else if (function == CvtrOperand.opSqRoot) {
 				if (!operStack.get(idx).groupUnit) {
-					calcError = "?? " + function + "(" + operStack.get(idx).value + operStack.get(idx).unit + "^" + operStack.get(idx).unitPower + ")";
+					calcError.set(CvtrError.functionRoot, -1, CvtrOperand.getSymbol(function), operStack.get(idx).value, operStack.get(idx).unit, operStack.get(idx).unitPower);
 					return null;
 				}
 			// Only single value allowed in function
 			} else {
 				if (trueSize(operStack) > 1) {
-					calcError = "?? " + function + "()";
+					calcError.set(CvtrError.functionArguments, -1, CvtrOperand.getSymbol(function));
 					return null;
 				}
 			}
 		}
 
-		try {
-			operStack.get(0).value = calculateFunction(function, operStack.get(0));
-		} catch (IllegalArgumentException err) {
-			calcError = "?? " + err.getMessage();
+		if (!calculateFunction(function, operStack.get(0)))
 			return null;
-		}
 
 		return newStack;
 	} /* end calculateFunction */
 
 /**
- * Calculate the function and return its value.
+ * Calculate the function and set the value of the operand to the result.
  * 
  * @param function	The Function code, where:
  * <ul>
@@ -3539,39 +4505,38 @@ System.out.println("Calculate function group: " + functionStack.size());
  *   <li>\ = Square root</li>
  *   <li>! = NOT</li>
  * </ul>
- * @param operand	The value to be used in the calculation.
+ * @param operand	The value to be used in the calculation, which is set to the result.
  * 
- * @return double	The calculated value.
- * 
- * @throws IllegalArgumentException	If the function or argument is invalid.  The text of
- *									the error can be used in the Convertator result field.
+ * @return boolean	True if successful.  If the function or argument is invalid, the
+ *					class error code is set and false is returned.
  */
-	private double calculateFunction(String function, CvtrOperand operand) throws IllegalArgumentException {
+	private boolean calculateFunction(int function, CvtrOperand operand) {
 		long l;
 		double d = 0, dRad;
-		IllegalArgumentException exception;
+		String symbol = CvtrOperand.getSymbol(function);
 if (verbose)
-System.out.println("Calculate function: " + function + " " + operand.value);
+System.out.println("Calculate function: " + symbol + " " + operand.value);
 
 		// Verify operand is numeric
 		if (operand.sValue != null) {
-			exception = new IllegalArgumentException(function + " " + operand.sValue);
-			throw exception;
+			calcError.set(CvtrError.functionString, -1, symbol, operand.sValue);
+			return false;
 		// Verify no units (except for unary operators)
-		} else if ((!function.equals("!") && !function.equals("\\")) && operand.indexType >= 0) {
-			exception = new IllegalArgumentException(function + "(" + operand.unit + ")");
-			throw exception;
+		} else if ((function != CvtrOperand.opNot && function != CvtrOperand.opSqRoot) && operand.indexType >= 0) {
+			calcError.set(CvtrError.functionUnit, -1, symbol, operand.unit);
+			return false;
 		}
 		// Verify base of operands
-		if ((function.equals("S") || function.equals("O") || function.equals("T")) &&
+		if ((function == CvtrOperand.opSine || function == CvtrOperand.opCosine || function == CvtrOperand.opTangent) &&
 				(operand.base != deg && operand.base != rad && operand.base != dec)) {
-			exception = new IllegalArgumentException(function + "(!g|r)");
-			throw exception;
+			calcError.set(CvtrError.functionBase, -1, symbol);
+			return false;
 		}
 
 // TODO: Add functionality for arc (sine/cosine/tangent)
+		switch (function) {
 		// Calculate arc sine for degrees and sine for radians or any other base
-		if (function.equals("S")) {
+		case CvtrOperand.opSine:
 			if (operand.base == rad) {
 				d = Math.sin(operand.value);
 			} else if (operand.base == deg) {
@@ -3581,8 +4546,9 @@ System.out.println("Calculate function: " + function + " " + operand.value);
 				d = Math.sin(operand.value);
 			}
 			operand.base = dec;
+			break;
 		// Calculate arc cosine for degrees and cosine for radians or any other base
-		} else if (function.equals("O")) {
+		case CvtrOperand.opCosine:
 			if (operand.base == rad) {
 				d = Math.cos(operand.value);
 			} else if (operand.base == deg) {
@@ -3592,25 +4558,26 @@ System.out.println("Calculate function: " + function + " " + operand.value);
 				d = Math.cos(operand.value);
 			}
 			operand.base = dec;
+			break;
 		// Calculate arc tangent for degrees and tangent for radians or any other base
-		} else if (function.equals("T")) {
+		case CvtrOperand.opTangent:
 			if (operand.base == rad) {
 				if (operand.value == Math.toRadians(90) || operand.value == Math.toRadians(-270)) {
-					exception = new IllegalArgumentException("1/0");
-					throw exception;
+					calcError.set(CvtrError.divideZero, -1);
+					return false;
 				} else if (operand.value == Math.toRadians(-90) || operand.value == Math.toRadians(270)) {
-					exception = new IllegalArgumentException("-1/0");
-					throw exception;
+					calcError.set(CvtrError.negativeDivideZero, -1);
+					return false;
 				}
 				d = Math.tan(operand.value);
 			} else if (operand.base == deg) {
 				d = operand.value % 360;
 				if (d == 90 || d == -270) {
-					exception = new IllegalArgumentException("1/0");
-					throw exception;
+					calcError.set(CvtrError.divideZero, -1);
+					return false;
 				} else if (d == -90 || d == 270) {
-					exception = new IllegalArgumentException("-1/0");
-					throw exception;
+					calcError.set(CvtrError.negativeDivideZero, -1);
+					return false;
 				}
 				dRad = Math.toRadians((operand.value % 360.0));
 				d = Math.tan(dRad);
@@ -3618,33 +4585,40 @@ System.out.println("Calculate function: " + function + " " + operand.value);
 				d = Math.tan(operand.value);
 			}
 			operand.base = dec;
+			break;
 		// Calculate the logarithm of a value
-		} else if (function.equals("L")) {
+		case CvtrOperand.opLog:
 			if (operand.value < 0) {
-				exception = new IllegalArgumentException("L(<0)");
-				throw exception;
+				calcError.set(CvtrError.logNegative, -1, symbol);
+				return false;
 			}
 			d = Math.log10(operand.value);
+			break;
 		// Calculate the natural logarithm of a value
-		} else if (function.equals("l")) {
+		case CvtrOperand.opNaturalLog:
 			if (operand.value < 0) {
-				exception = new IllegalArgumentException("l(<0)");
-				throw exception;
+				calcError.set(CvtrError.logNegative, -1, symbol);
+				return false;
 			}
 			d = Math.log(operand.value);
+			break;
 		// Get the operand square root
-		} else if (function.equals("\\")) {
+		case CvtrOperand.opSqRoot:
 			d = Math.sqrt(operand.value);
+			break;
 		// NOT the operand
-		} else if (function.equals("!")) {
-			l = (long) operand.value;
-			d = ~l;
-		} else {
-			exception = new IllegalArgumentException(function);
-			throw exception;
+		case CvtrOperand.opNot:
+			operand.setLong(~operand.getLong());
+			return true;
+		default:
+			calcError.set(CvtrError.function, -1, symbol);
+			return false;
 		}
+		// The result is rounded to the fixed point of the operand
+		if (!operand.isFixed() || !operand.setFixed(operand.fixed, operand.fixed.round(d)))
+			operand.value = d;
 
-		return d;
+		return true;
 	} /* end calculateFunction */
 
 /**
@@ -3657,16 +4631,16 @@ System.out.println("Calculate function: " + function + " " + operand.value);
  */
 	private boolean reduceFinal (ArrayList <CvtrOperand> finalStack) {
 		int i, j, k, idx, iD, groupCount;
-		int[] unitPowerDiff = new int[UnitCategories.size()];
 		long l1, l2;
 		double minD;
 		String unit;
+		CvtrOperand minOper;
 
 if (verbose) {
 System.out.println("Reduce final equation: " + finalStack.size());
 for (i=0; i < finalStack.size(); i++) {
 	System.out.print("   Final equation Operand " + i + ": " + finalStack.get(i).value + finalStack.get(i).unit + "^" +
-			finalStack.get(i).unitPower + ", " + finalStack.get(i).operation + " (" + finalStack.get(i).nestLevel + ", ");
+			finalStack.get(i).unitPower + ", " + finalStack.get(i).getOperation() + " (" + finalStack.get(i).nestLevel + ", ");
 	for (j=finalStack.get(i).nestLevel; j >= 0; j--) {
 		if (finalStack.get(i).nestGroup == null)
 			System.out.print("-1");
@@ -3679,30 +4653,37 @@ for (i=0; i < finalStack.size(); i++) {
 
 		// Find the denominator if one exists
 		for (iD=0; iD < finalStack.size(); iD++) {
-			if (finalStack.get(iD).operation.equals("/"))
+			if (finalStack.get(iD).opCode == CvtrOperand.opDiv)
 				break;
 		}
 if (verbose)
 System.out.println("  Denom index: " + iD);
 		// Equation includes division
 		if (iD < finalStack.size()) {
-			minD = finalStack.get(iD).value;
+			k = iD;
 			for (idx=iD + 1; idx < finalStack.size(); idx++) {
-				if (!finalStack.get(idx).groupUnit && minD > finalStack.get(idx).value)
-					minD = finalStack.get(idx).value;
+				if (!finalStack.get(idx).groupUnit && finalStack.get(k).value > finalStack.get(idx).value)
+					k = idx;
 			}
+			// The denominator is copied, since it is divided by itself
+			minOper = newOperand().copyFrom(finalStack.get(k));
+			minD = minOper.value;
 if (verbose)
 System.out.println("  Min common denom: " + minD);
-			finalStack.get(0).value /= minD;
+			divide(finalStack.get(0), minOper);
 			for (idx=1; idx < finalStack.size(); idx++) {
 				if (!finalStack.get(idx).groupUnit &&
-						(finalStack.get(idx).operation.length() == 0 || finalStack.get(idx).operation.endsWith("/") ||
-						finalStack.get(idx).operation.endsWith("+") || finalStack.get(idx).operation.equals("-")))
-					finalStack.get(idx).value /= minD;
+						(finalStack.get(idx).opCode == CvtrOperand.opNone || finalStack.get(idx).opCode == CvtrOperand.opDiv ||
+						finalStack.get(idx).opCode == CvtrOperand.opAdd || finalStack.get(idx).opCode == CvtrOperand.opSub))
+					divide(finalStack.get(idx), minOper);
+			}
+			// Initialize unit power difference of the categories in the equation
+			if (unitPowerDiff.length < calcCatalog.UnitCategories.size())
+				unitPowerDiff = new int[calcCatalog.UnitCategories.size()];
+			for (idx=0; idx < finalStack.size(); idx++) {
+				if (finalStack.get(idx).indexType >= 0)
+					unitPowerDiff[finalStack.get(idx).indexType] = 0;
 			}
-			// Initialize unit power difference array
-			for (i=0; i < UnitCategories.size(); i++)
-				unitPowerDiff[i] = 0;
 			// Get number of denominator groups
 			i = 0;
 			for (idx=iD; idx < finalStack.size(); idx++) {
@@ -3771,7 +4752,7 @@ System.out.println(" == Units cancel: " + finalStack.get(i).unit + "^" + finalSt
 										if (finalStack.get(i+1).groupUnit) {
 											finalStack.get(i+1).groupUnit = false;
 											finalStack.get(i+1).value = finalStack.get(i).value;
-											finalStack.get(i+1).operation = finalStack.get(i).operation;
+											finalStack.get(i+1).opCode = finalStack.get(i).opCode;
 											finalStack.remove(i);
 											idx--;
 											iD--;
@@ -3789,7 +4770,7 @@ System.out.println(" == Remove denom unit(" + idx + "): " + finalStack.get(idx).
 							if (!finalStack.get(idx).groupUnit && (idx + 1) < finalStack.size()) {
 								finalStack.get(idx+1).groupUnit = false;
 								finalStack.get(idx+1).value = finalStack.get(idx).value;
-								finalStack.get(idx+1).operation = finalStack.get(idx).operation;
+								finalStack.get(idx+1).opCode = finalStack.get(idx).opCode;
 							}
 							finalStack.remove(idx);
 						// Denominator unit power is reduced
@@ -3811,21 +4792,21 @@ System.out.println(" == Remove denom unit(" + idx + "): " + finalStack.get(idx).
 			// Primary operand has no unit
 			if (finalStack.get(idx).indexType < 0 && finalStack.get(idx + 1).groupUnit) {
 				// Set multiplication group value
-				if (finalStack.get(idx + 1).operation.equals("*"))
-					finalStack.get(idx + 1).value *= finalStack.get(idx).value;
+				if (finalStack.get(idx + 1).opCode == CvtrOperand.opMult)
+					finalStack.get(idx + 1).multiply(finalStack.get(idx));
 				// Set logical group value
 				else {
-					l1 = (long) finalStack.get(idx).value;
-					l2 = (long) finalStack.get(idx + 1).value;
-					if (finalStack.get(idx + 1).operation.equals("&")) 
-						 finalStack.get(idx + 1).value = l1 & l2;
-					else if (finalStack.get(idx + 1).operation.equals("|"))
-						 finalStack.get(idx + 1).value = l1 | l2;
-					else if (finalStack.get(idx + 1).operation.equals("#"))
-						 finalStack.get(idx + 1).value = l1 ^ l2;
+					l1 = finalStack.get(idx).getLong();
+					l2 = finalStack.get(idx + 1).getLong();
+					if (finalStack.get(idx + 1).opCode == CvtrOperand.opAnd) 
+						 finalStack.get(idx + 1).setLong(l1 & l2);
+					else if (finalStack.get(idx + 1).opCode == CvtrOperand.opOr)
+						 finalStack.get(idx + 1).setLong(l1 | l2);
+					else if (finalStack.get(idx + 1).opCode == CvtrOperand.opXor)
+						 finalStack.get(idx + 1).setLong(l1 ^ l2);
 				}
 				// Make second operand in group primary
-				finalStack.get(idx + 1).operation = finalStack.get(idx).operation;
+				finalStack.get(idx + 1).opCode = finalStack.get(idx).opCode;
 				finalStack.get(idx + 1).groupUnit = false;
 				finalStack.remove(idx);
 			// Clean up extraneous place holders
@@ -3836,7 +4817,7 @@ System.out.println(" == Remove denom unit(" + idx + "): " + finalStack.get(idx).
 		}
 		// Find the denominator if one exists
 		for (iD=0; iD < finalStack.size(); iD++) {
-			if (finalStack.get(iD).operation.equals("/"))
+			if (finalStack.get(iD).opCode == CvtrOperand.opDiv)
 				break;
 		}
 if (verbose)
@@ -3846,19 +4827,26 @@ System.out.println("  Final denom index: " + iD);
 			finalStack.get(idx).nestLevel = 0;
 			if (finalStack.get(idx).nestGroup != null) {
 				if (idx < iD)
-					finalStack.get(idx).nestGroup[0] = 0;
+					finalStack.get(idx).nestGroup = nestPaths.set(finalStack.get(idx).nestGroup, 0, 0);
 				else
-					finalStack.get(idx).nestGroup[0] = 1;
+					finalStack.get(idx).nestGroup = nestPaths.set(finalStack.get(idx).nestGroup, 0, 1);
 			}
 		}
 		// Reduce final equation
 		finalStack = reduceEquation(finalStack);
-		// Make a final consolidation of operand units
+		// Make a final consolidation of operand units, and show a negative term that is
+		// added or subtracted, such as a combined term whose value changed sign, with
+		// the opposite operation.  A value of -0 is negative.
 		for (idx=0; idx < finalStack.size(); idx++) {
 			if (!finalStack.get(idx).groupUnit && finalStack.get(idx).base < ddBase &&
-					finalStack.get(idx).operation.equals("+") && finalStack.get(idx).value < 0) {
-				finalStack.get(idx).operation = "-";
-				finalStack.get(idx).value *= -1;
+					finalStack.get(idx).opCode == CvtrOperand.opAdd && finalStack.get(idx).value < 0) {
+				finalStack.get(idx).opCode = CvtrOperand.opSub;
+				finalStack.get(idx).negate();
+			} else if (idx > 0 && !finalStack.get(idx).groupUnit && finalStack.get(idx).base < ddBase &&
+					(finalStack.get(idx).opCode == CvtrOperand.opAdd || finalStack.get(idx).opCode == CvtrOperand.opSub) &&
+					1 / finalStack.get(idx).value < 0) {
+				finalStack.get(idx).opCode = (finalStack.get(idx).opCode == CvtrOperand.opAdd) ? CvtrOperand.opSub : CvtrOperand.opAdd;
+				finalStack.get(idx).negate();
 			}
 			i = idx + 1;
 			while (i < finalStack.size() && finalStack.get(i).groupUnit) {
@@ -3878,10 +4866,10 @@ System.out.println("  Final denom index: " + iD);
 				if (i < 0) {
 					i = finalStack.get(idx).indexType;
 					unit = finalStack.get(idx).unit;
-				} else if (finalStack.get(idx).operation.equals("&") ||
-						finalStack.get(idx).operation.equals("|") ||
-						finalStack.get(idx).operation.equals("#")) {
-					calcError = "?? " + unit + finalStack.get(idx).operation + finalStack.get(idx).unit;
+				} else if (finalStack.get(idx).opCode == CvtrOperand.opAnd ||
+						finalStack.get(idx).opCode == CvtrOperand.opOr ||
+						finalStack.get(idx).opCode == CvtrOperand.opXor) {
+					calcError.set(CvtrError.unitOperation, -1, unit, finalStack.get(idx).getOperation(), finalStack.get(idx).unit);
 					return false;
 				}
 			}
@@ -3890,7 +4878,7 @@ System.out.println("  Final denom index: " + iD);
 if (verbose) {
 for (i=0; i < finalStack.size(); i++) {
 	System.out.print("   End final equation Operand " + i + ": " + finalStack.get(i).value + finalStack.get(i).unit + "^" +
-			finalStack.get(i).unitPower + ", " + finalStack.get(i).operation + " (" + finalStack.get(i).nestLevel + ", ");
+			finalStack.get(i).unitPower + ", " + finalStack.get(i).getOperation() + " (" + finalStack.get(i).nestLevel + ", ");
 	for (j=finalStack.get(i).nestLevel; j >= 0; j--) {
 		if (finalStack.get(i).nestGroup == null)
 			System.out.print("-1");
@@ -3921,29 +4909,37 @@ for (i=0; i < finalStack.size(); i++) {
  * @return CvtrResult[]	The list of base and units.
  */
 	public CvtrResult[] getResultUnits() {
-		int i, j, idx;
+		int i, j, idx, type, count;
+		int[] first;
 		String temp;
+		CvtrOperand oper;
 
 		if (EquationResult != null)
 			return EquationResult;
 		else if (operandStack == null)
 			return null;
 
-		// Get the result information
-		i = 1;
-		// Get number of different unit categories
-		for (idx=0; idx < UnitCategories.size(); idx++) {
-			for (j=0; j < operandStack.size(); j++) {
-				if (operandStack.get(j).indexType == idx) {
-					i++;
-					break;
-				}
-			}
+		// Get the first operand of each unit category, in the order of the categories
+		count = 0;
+		growScratch(operandStack.size());
+		first = scratchUnits;
+		for (j=0; j < operandStack.size(); j++) {
+			type = operandStack.get(j).indexType;
+			if (type < 0)
+				continue;
+			for (idx=count; idx > 0 && operandStack.get(first[idx - 1]).indexType > type; idx--)
+				;
+			if (idx > 0 && operandStack.get(first[idx - 1]).indexType == type)
+				continue;
+			for (i=count; i > idx; i--)
+				first[i] = first[i - 1];
+			first[idx] = j;
+			count++;
 		}
 		// Create list of base and units
 if (verbose)
-System.out.println("Get equation result units + base: " + i);
-		EquationResult = new CvtrResult[i];
+System.out.println("Get equation result units + base: " + (count + 1));
+		EquationResult = new CvtrResult[count + 1];
 		j = dec;
 		for (i=0; i < operandStack.size(); i++) {
 			if (operandStack.get(i).base >= 0) {
@@ -3957,20 +4953,9 @@ System.out.println("Get equation result units + base: " + i);
 		else
 			temp = sBases[j];
 		EquationResult[0] = new CvtrResult(true, temp, 0, j, 0);
-		i = 1;
-		for (idx=0; idx < UnitCategories.size(); idx++) {
-			for (j=0; j < operandStack.size(); j++) {
-				if (operandStack.get(j).indexType == idx) {
-					if (i < EquationResult.length) {
-						EquationResult[i++] = new CvtrResult(false, operandStack.get(j).unit, operandStack.get(j).conversionFactor,
-							operandStack.get(j).indexType, operandStack.get(j).indexUnit);
-					} else {
-						calcError = "?? No Unit";
-						return null;
-					}
-					break;
-				}
-			}
+		for (i=0; i < count; i++) {
+			oper = operandStack.get(first[i]);
+			EquationResult[i + 1] = new CvtrResult(false, oper.unit, oper.conversionFactor, oper.indexType, oper.indexUnit);
 		}
 if (verbose)
 System.out.println("Get equation result: " + EquationResult.length);
@@ -3985,64 +4970,152 @@ System.out.println("Get equation result: " + EquationResult.length);
  * @return String	The formatted result.
  */
 	public String getResult (CvtrResult[] format) {
+		String answer;
+if (verbose)
+System.out.println("Get Result");
+
+		if (getFinal() == null)
+			return "?? Null";
+		answer = project(finalForm, format, iPrecision, scientificNotation);
+		if (recordWork)
+			calcProgress.append(answer).append("\n");
+if (verbose)
+System.out.println("\n" + calcProgress + "\n");
+		return answer;
+	}
+
+/**
+ * Get the reduced form of the last calculation, which may be displayed in other
+ * formats with project.
+ * 
+ * @return CvtrFinal	The reduced form, or null if there is no calculation.
+ */
+	public CvtrFinal getFinal() {
+		if (finalForm == null) {
+			if (operandStack == null || operandStack.size() == 0 || getResultUnits() == null)
+				return null;
+			finalForm = new CvtrFinal(operandStack, EquationResult, calcCatalog, fixedPoint, decimalSeparator);
+		}
+
+		return finalForm;
+	}
+
+/**
+ * Display the reduced form of a calculation in a format.  The reduced form is not
+ * changed, so it may be displayed in any number of formats without calculating it
+ * again, and by any thread.
+ * 
+ * @param cf	The reduced form of the calculation.
+ * @param format	The base and units to be used for the answer, or null for the
+ * 					units of the equation.
+ * @param precision	The number of decimal places.
+ * @param scientific	If true, decimal values are displayed in scientific notation.
+ * 
+ * @return String	The formatted result.
+ */
+	public static String project(CvtrFinal cf, CvtrResult[] format, int precision, boolean scientific) {
+		return projectOperands(cf, cf.getOperands(), format, precision, scientific,
+				decimalFormat(precision, scientific, cf.decimalSeparator));
+	}
+
+/**
+ * Get the formatter of decimal values.
+ * 
+ * @param precision	The number of decimal places.
+ * @param scientific	If true, decimal values are displayed in scientific notation.
+ * @param separator	The decimal separator.
+ * 
+ * @return DecimalFormat	The formatter, or null if the precision is 0, which does
+ * 							not use one.
+ */
+	private static DecimalFormat decimalFormat(int precision, boolean scientific, char separator) {
+		int i;
+		String dPattern;
+		DecimalFormat df;
+		DecimalFormatSymbols symbols;
+
+		if (precision == 0)
+			return null;
+		df = (DecimalFormat) NumberFormat.getInstance();
+		// Handle scientific notation from preferences
+		if (scientific)
+			dPattern = "###0.";
+		else
+			dPattern = "#0.0";
+		for (i=1; i < precision; i++)
+			dPattern += "#";
+		if (scientific)
+			dPattern += "E0";
+		df.applyPattern(dPattern);
+		// The results use the separator of the equations, not of the locale
+		symbols = df.getDecimalFormatSymbols();
+		symbols.setDecimalSeparator(separator);
+		df.setDecimalFormatSymbols(symbols);
+
+		return df;
+	}
+
+/**
+ * Display a copy of the operands of a reduced form in a format.  The operands are
+ * converted to the units of the format, so they are changed.
+ * 
+ * @param cf	The reduced form of the calculation.
+ * @param stack	The copy of the operands of the reduced form.
+ * @param format	The base and units to be used for the answer, or null for the
+ * 					units of the equation.
+ * @param precision	The number of decimal places.
+ * @param scientific	If true, decimal values are displayed in scientific notation.
+ * @param df	The formatter of decimal values for the precision and notation.
+ * 
+ * @return String	The formatted result.
+ */
+	private static String projectOperands(CvtrFinal cf, ArrayList<CvtrOperand> stack, CvtrResult[] format,
+			int precision, boolean scientific, DecimalFormat df) {
 		int idx, i, j;
 		int resBase = dec;
 		long l;
-		double c1, c2, d, divOp;
+		double d, divOp;
 		boolean deg2rad = false, rad2deg = false;
 		String answer, decVal, stringVal, dotVal, unitVal;
-		String dPattern;
-		NumberFormat nf;
-		DecimalFormat df;
-if (verbose)
-System.out.println("Get Result");
 
-		if (operandStack.size() == 0) {
+		if (stack.size() == 0) {
 			return "?? Null";
 		}
 		// Parse result format
 		if (format == null) {
-			format = EquationResult;
+			format = cf.getResultUnits();
 		}
 		divOp = 1;
 		for (idx=0; idx < format.length; idx++) {
 			if (format[idx].resultBase) {
 				resBase = format[idx].indexType;
 			} else {
-				for (i=0; i < operandStack.size(); i++) {
-					if (operandStack.get(i).indexType == format[idx].indexType) {
+				for (i=0; i < stack.size(); i++) {
+					if (stack.get(i).indexType == format[idx].indexType) {
 						// Unit needs to be converted
-						if (operandStack.get(i).indexUnit != format[idx].indexUnit) {
+						if (stack.get(i).indexUnit != format[idx].indexUnit) {
 							try {
-								// Handle unit power
-								if (operandStack.get(i).unitPower > 1) {
-									c1 = Math.pow(format[idx].conversionFactor, (double) operandStack.get(i).unitPower);
-									c2 = Math.pow(operandStack.get(i).conversionFactor, (double) operandStack.get(i).unitPower);
-								} else {
-									c1 = format[idx].conversionFactor;
-									c2 = operandStack.get(i).conversionFactor;
-								}
-								d = (operandStack.get(i).value * c1) / c2;
-								if (operandStack.get(i).operation.equals("/"))
+								d = convertValue(cf.catalog, stack.get(i), format[idx].indexUnit, format[idx].conversionFactor);
+								if (stack.get(i).opCode == CvtrOperand.opDiv)
 									divOp = d;
 								// Unit is placeholder, update actual value
-								if (operandStack.get(i).groupUnit) {
+								if (stack.get(i).groupUnit) {
 									j = i;
-									while (j >= 0 && operandStack.get(j).groupUnit)
+									while (j >= 0 && stack.get(j).groupUnit)
 										j--;
 									if (j < 0) {
 										return "?? No Value";
 										}
-									operandStack.get(j).value *= d;
-									if (operandStack.get(j).operation.equals("/"))
+									stack.get(j).value *= d;
+									if (stack.get(j).opCode == CvtrOperand.opDiv)
 										divOp *= d;
 								// Operand is actual value
 								} else {
-									operandStack.get(i).value = d;
+									stack.get(i).value = d;
 								}
-								operandStack.get(i).indexUnit = format[idx].indexUnit;
-								operandStack.get(i).unit = format[idx].resultAbbrev;
-								operandStack.get(i).conversionFactor = format[idx].conversionFactor;
+								stack.get(i).indexUnit = format[idx].indexUnit;
+								stack.get(i).unit = format[idx].resultAbbrev;
+								stack.get(i).conversionFactor = format[idx].conversionFactor;
 							} catch (ArithmeticException err) {
 								return "?? Math Err";
 							}
@@ -4052,29 +5125,29 @@ System.out.println("Get Result");
 			}
 		}
 		if (divOp != 1) {
-			for (i=0; i < operandStack.size(); i++) {
-				if (!operandStack.get(i).groupUnit)
-					operandStack.get(i).value /= divOp;
+			for (i=0; i < stack.size(); i++) {
+				if (!stack.get(i).groupUnit)
+					stack.get(i).value /= divOp;
 			}
 		}
 
 		// Format the answer
 		answer = "";
-		for (idx=0; idx < operandStack.size(); idx++) {
+		for (idx=0; idx < stack.size(); idx++) {
 if (verbose) {
 if (resBase >= ddBase) {
-	if (operandStack.get(idx).sValue == null)
-		System.out.println("  Get operand: " + operandStack.get(idx).value);
+	if (stack.get(idx).sValue == null)
+		System.out.println("  Get operand: " + stack.get(idx).value);
 	else
-		System.out.println("  Get operand: " + operandStack.get(idx).sValue);
+		System.out.println("  Get operand: " + stack.get(idx).sValue);
 } else
-System.out.println("  Get operand: " + operandStack.get(idx).value + operandStack.get(idx).unit);
+System.out.println("  Get operand: " + stack.get(idx).value + stack.get(idx).unit);
 }
-			if (operandStack.get(idx).unit.length() > 0) {
-				if (operandStack.get(idx).unitPower > 1) {
-					unitVal = operandStack.get(idx).unit + "^" + operandStack.get(idx).unitPower;
+			if (stack.get(idx).unit.length() > 0) {
+				if (stack.get(idx).unitPower > 1) {
+					unitVal = stack.get(idx).unit + "^" + stack.get(idx).unitPower;
 				} else {
-					unitVal = operandStack.get(idx).unit;
+					unitVal = stack.get(idx).unit;
 				}
 			} else
 				unitVal = "";
@@ -4082,58 +5155,65 @@ System.out.println("  Get operand: " + operandStack.get(idx).value + operandStac
 				if (idx == 0)
 					answer += "n";
 				else {
-					if (!operandStack.get(idx).groupUnit)
+					if (!stack.get(idx).groupUnit)
 						answer += " ";
-					answer += operandStack.get(idx).operation;
+					answer += stack.get(idx).getOperation();
 				}
-				if (operandStack.get(idx).groupUnit) {
+				if (stack.get(idx).groupUnit) {
 					answer += unitVal;
+				} else if (!stack.get(idx).fitsLong()) {
+					return "?? Overflow";
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					answer += " " + Long.toBinaryString(l) + " " + unitVal;
 				}
 			} else if (resBase == oct) {
 				if (idx == 0)
 					answer += "o";
 				else {
-					if (!operandStack.get(idx).groupUnit)
+					if (!stack.get(idx).groupUnit)
 						answer += " ";
-					answer += operandStack.get(idx).operation;
+					answer += stack.get(idx).getOperation();
 				}
-				if (operandStack.get(idx).groupUnit) {
+				if (stack.get(idx).groupUnit) {
 					answer += unitVal;
+				} else if (!stack.get(idx).fitsLong()) {
+					return "?? Overflow";
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					answer += " " + Long.toOctalString(l) + " " + unitVal;
 				}
 			} else if (resBase == dec) {
 				if (idx > 0) {
-					if (!operandStack.get(idx).groupUnit)
+					if (!stack.get(idx).groupUnit)
 						answer += " ";
-					answer += operandStack.get(idx).operation;
+					answer += stack.get(idx).getOperation();
 				}
 				decVal = "1";
 				if (decVal.length() > 0) {
-					if (iPrecision == 0) {
-						l = (long) operandStack.get(idx).value;
+					if (precision == 0) {
+						l = stack.get(idx).getLong();
 						decVal = "" + l;
 					} else {
-						nf = NumberFormat.getInstance();
-						df = (DecimalFormat) nf;
-						// Handle scientific notation from preferences
-						if (scientificNotation)
-							dPattern = "###0.";
+						// A fixed point without rounding still has its digits rounded to the precision
+						if (cf.fixedPoint != null && cf.fixedPoint.rounding != RoundingMode.UNNECESSARY)
+							df.setRoundingMode(cf.fixedPoint.rounding);
 						else
-							dPattern = "#0.0";
-						for (i=1; i < iPrecision; i++)
-							dPattern += "#";
-						if (scientificNotation)
-							dPattern += "E0";
-						df.applyPattern(dPattern);
-						decVal = df.format(operandStack.get(idx).value);
+							df.setRoundingMode(RoundingMode.HALF_EVEN);
+						if (stack.get(idx).isExact()) {
+							decVal = df.format(stack.get(idx).bits);
+						} else if (stack.get(idx).isFixed()) {
+							decVal = df.format(stack.get(idx).fixed.toResult(stack.get(idx).bits));
+						// A fixed point number that did not fit is still rounded like a result
+						} else if (cf.fixedPoint != null && !Double.isNaN(stack.get(idx).value) &&
+								!Double.isInfinite(stack.get(idx).value)) {
+							decVal = df.format(cf.fixedPoint.toResult(stack.get(idx).value));
+						} else {
+							decVal = df.format(stack.get(idx).value);
+						}
 					}
 				}
-				if (decVal.length() == 0 || operandStack.get(idx).groupUnit) {
+				if (decVal.length() == 0 || stack.get(idx).groupUnit) {
 					answer += unitVal;
 				} else {
 					answer += " " + decVal + " " + unitVal;
@@ -4142,68 +5222,59 @@ System.out.println("  Get operand: " + operandStack.get(idx).value + operandStac
 				if (idx == 0)
 					answer += "x";
 				else {
-					if (!operandStack.get(idx).groupUnit)
+					if (!stack.get(idx).groupUnit)
 						answer += " ";
-					answer += operandStack.get(idx).operation;
+					answer += stack.get(idx).getOperation();
 				}
-				if (operandStack.get(idx).groupUnit) {
+				if (stack.get(idx).groupUnit) {
 					answer += unitVal;
+				} else if (!stack.get(idx).fitsLong()) {
+					return "?? Overflow";
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					answer += " " + Long.toHexString(l) + " " + unitVal;
 				}
 			} else if (resBase == deg || resBase == rad) {
 				if (idx == 0) {
 					if (resBase == deg) {
 						answer += "g";
-						if (operandStack.get(idx).base == rad ||
-							operandStack.get(idx).base == dec)
+						if (stack.get(idx).base == rad ||
+							stack.get(idx).base == dec)
 							rad2deg = true;
 					} else {
 						answer += "r";
-						if (operandStack.get(idx).base == deg)
+						if (stack.get(idx).base == deg)
 							deg2rad = true;
 					}
 				} else {
-					if (!operandStack.get(idx).groupUnit)
+					if (!stack.get(idx).groupUnit)
 						answer += " ";
-					answer += operandStack.get(idx).operation;
+					answer += stack.get(idx).getOperation();
 				}
 				if (deg2rad)
-					d = Math.toRadians(operandStack.get(idx).value);
+					d = Math.toRadians(stack.get(idx).value);
 				else if (rad2deg)
-					d = Math.toDegrees(operandStack.get(idx).value);
+					d = Math.toDegrees(stack.get(idx).value);
 				else
-					d = operandStack.get(idx).value;
-				if (iPrecision == 0) {
+					d = stack.get(idx).value;
+				if (precision == 0) {
 					l = (long) d;
 					decVal = "" + l;
 				} else {
-					nf = NumberFormat.getInstance();
-					df = (DecimalFormat) nf;
-					// Handle scientific notation from preferences
-					if (scientificNotation)
-						dPattern = "###0.";
-					else
-						dPattern = "#0.0";
-					for (i=1; i < iPrecision; i++)
-						dPattern += "#";
-					if (scientificNotation)
-						dPattern += "E0";
-					df.applyPattern(dPattern);
+					df.setRoundingMode(RoundingMode.HALF_EVEN);
 					decVal = df.format(d);
 				}
-				if (operandStack.get(idx).groupUnit) {
+				if (stack.get(idx).groupUnit) {
 					answer += unitVal;
 				} else {
 					answer += " " + decVal + " " + unitVal;
 				}
 			// Convert numeric value to dotted decimal string
 			} else if (resBase == dot) {
-				if (operandStack.get(idx).base == dot) {
-					answer += " " + operandStack.get(idx).sValue;
+				if (stack.get(idx).base == dot) {
+					answer += " " + stack.get(idx).sValue;
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					stringVal = decVal = dotVal = "";
 					for (i=0; i < 4; i++) {
 						stringVal = (l & 0xff) + dotVal + decVal;
@@ -4215,10 +5286,10 @@ System.out.println("  Get operand: " + operandStack.get(idx).value + operandStac
 				}
 			// Convert numeric value to ASCII string
 			} else if (resBase == asc) {
-				if (operandStack.get(idx).base == asc) {
-					answer += " " + operandStack.get(idx).sValue;
+				if (stack.get(idx).base == asc) {
+					answer += " " + stack.get(idx).sValue;
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					stringVal = decVal = "";
 					for (i=0; i < 4; i++) {
 						if ((l & 0xff) != 0) {
@@ -4231,10 +5302,10 @@ System.out.println("  Get operand: " + operandStack.get(idx).value + operandStac
 				}
 			// Convert numeric value to Unicode string
 			} else if (resBase == uni) {
-				if (operandStack.get(idx).base == uni) {
-					answer += " " + operandStack.get(idx).sValue;
+				if (stack.get(idx).base == uni) {
+					answer += " " + stack.get(idx).sValue;
 				} else {
-					l = (long) operandStack.get(idx).value;
+					l = stack.get(idx).getLong();
 					stringVal = decVal = "";
 					for (i=0; i < 2; i++) {
 						if ((l & 0xffff) != 0) {
@@ -4248,12 +5319,75 @@ System.out.println("  Get operand: " + operandStack.get(idx).value + operandStac
 			}
 		}
 
-
-		calcProgress += answer + "\n";
-if (verbose)
-System.out.println("\n" + calcProgress + "\n");
 		return answer;
-	} /* end getResult */
+	} /* end projectOperands */
+
+/**
+ * Get the result of the last calculation in every unit of each of its categories,
+ * and in each numeric base.
+ * 
+ * @return String[][]	The table, or null if there is no calculation.  See projectTable.
+ */
+	public String[][] getResultTable() {
+		if (getFinal() == null)
+			return null;
+
+		return projectTable(finalForm, iPrecision, scientificNotation);
+	}
+
+/**
+ * Display the reduced form of a calculation in every unit of each of its categories,
+ * and in each numeric base.  Only one unit or the base is changed in each row, and
+ * the other units and the base are those of the equation.  The operands are copied
+ * once, and are restored from the reduced form before each row.
+ * 
+ * @param cf	The reduced form of the calculation.
+ * @param precision	The number of decimal places.
+ * @param scientific	If true, decimal values are displayed in scientific notation.
+ * 
+ * @return String[][]	Each row is the base name or unit abbreviation, and the result.
+ * 						The bases are first, then the units of each category.
+ */
+	public static String[][] projectTable(CvtrFinal cf, int precision, boolean scientific) {
+		int idx, i;
+		int[] tableBases = {bin, oct, dec, hex};
+		String name;
+		CvtrResult[] format = cf.getResultUnits();
+		ArrayList <String[]> table = new ArrayList<String[]>();
+		ArrayList <CvtrOperand> stack = cf.getOperands();
+		DecimalFormat df = decimalFormat(precision, scientific, cf.decimalSeparator);
+
+		// Bases, if the result is a number
+		for (idx=0; idx < format.length && !format[idx].resultBase; idx++)
+			;
+		if (idx < format.length && format[idx].indexType <= hex) {
+			for (i=0; i < tableBases.length; i++) {
+				name = sBases[tableBases[i]];
+				if (name.indexOf(" (") > 2)
+					name = name.substring(0, name.indexOf(" ("));
+				format = cf.getResultUnits();
+				format[idx].setBase(tableBases[i], name);
+				cf.resetOperands(stack);
+				table.add(new String[] {name, projectOperands(cf, stack, format, precision, scientific, df)});
+			}
+		}
+
+		// Units of each category
+		for (idx=0; idx < format.length; idx++) {
+			if (format[idx].resultBase)
+				continue;
+			for (CvtrUnit cu : cf.catalog.getCategoryUnits(format[idx].indexType)) {
+				format = cf.getResultUnits();
+				format[idx].indexUnit = cu.indexUnit;
+				format[idx].resultAbbrev = cu.unitAbbrev;
+				format[idx].conversionFactor = cu.conversionFactor;
+				cf.resetOperands(stack);
+				table.add(new String[] {cu.unitAbbrev, projectOperands(cf, stack, format, precision, scientific, df)});
+			}
+		}
+
+		return table.toArray(new String[table.size()][]);
+	} /* end projectTable */
 
 /**
  * Build the string display of a list of Convertator operands.
@@ -4263,13 +5397,22 @@ System.out.println("\n" + calcProgress + "\n");
  * @return String	The string representation of the operands.
  */
 	private String displayStack(ArrayList<CvtrOperand> stack) {
-		int idx, nLevel, startLevel = 0;
-		int[] nGroup = new int[maxNestLevel];
-		String equation = "";
+		int idx, nLevel, startLevel = 0, maxLevel = 0;
+		int[] nGroup;
+		StringBuilder equation = new StringBuilder();
 
 		if (stack == null || stack.size() == 0)
 			return " =??=";
 
+		// Only the levels of the stack are cleared
+		for (idx=0; idx < stack.size(); idx++) {
+			if (maxLevel < stack.get(idx).nestLevel)
+				maxLevel = stack.get(idx).nestLevel;
+		}
+		if (displayGroup.length < maxLevel + 2)
+			displayGroup = new int[(maxLevel + 2) * 2];
+		nGroup = displayGroup;
+		Arrays.fill(nGroup, 0, maxLevel + 2, 0);
 		for (idx=0; idx < stack.get(0).nestLevel; idx++) {
 			if (stack.get(0).function)
 				nGroup[idx] = 0;
@@ -4288,7 +5431,7 @@ System.out.println("\n" + calcProgress + "\n");
 			// Add parentheses if needed
 			if (stack.get(idx).nestGroup != null) {
 				while (nLevel > stack.get(idx).nestLevel || nGroup[nLevel] < stack.get(idx).nestGroup[nLevel]) {
-					equation += ")";
+					equation.append(")");
 					if (nLevel > stack.get(idx).nestLevel) {
 						nLevel--;
 					} else {
@@ -4300,10 +5443,10 @@ System.out.println("\n" + calcProgress + "\n");
 				}
 				// Display operation for numeric equations
 				if (idx > 0 && stack.get(idx).sValue == null)
-					equation += " " + stack.get(idx).operation + " ";
+					equation.append(" ").append(stack.get(idx).getOperation()).append(" ");
 				// Add parentheses if needed
 				while (nLevel < stack.get(idx).nestLevel) {
-					equation += "(";
+					equation.append("(");
 					nGroup[nLevel] = stack.get(idx).nestGroup[nLevel];
 					nLevel++;
 					if (nGroup[nLevel] < stack.get(idx).nestGroup[nLevel])
@@ -4312,32 +5455,32 @@ System.out.println("\n" + calcProgress + "\n");
 			}
 			// Display base value and unit, as appropriate
 			if (stack.get(idx).base >= 0)
-				equation += getBaseSign(sBases[stack.get(idx).base], false);
+				equation.append(getBaseSign(sBases[stack.get(idx).base], false));
 			if (stack.get(idx).sValue != null) {
-				equation += "'" + stack.get(idx).sValue + "'";
+				equation.append("'").append(stack.get(idx).sValue).append("'");
 			} else {
 				if (stack.get(idx).groupUnit)
-					equation += stack.get(idx).unit;
+					equation.append(stack.get(idx).unit);
 				else
-					equation += stack.get(idx).value + stack.get(idx).unit;
+					equation.append(stack.get(idx).value).append(stack.get(idx).unit);
 			}
 		}
 		// Add parentheses if needed
 		while (nLevel > startLevel) {
-			equation += ")";
+			equation.append(")");
 			nLevel--;
 		}
 
-		return equation;
+		return equation.toString();
 	}
 
 /**
- * Show the steps taken to get the result.
+ * Show the steps taken to get the result, which are only recorded after setShowWork.
  * 
  * @return String	The list of start and end values of each step.
  */
 	public String showWork() {
-		return calcProgress;
+		return calcProgress.toString();
 	}
 
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+/**
+ * The Convertator Error is the error of a calculation, which is a code, the location
+ * in the equation where it was found, and the values that describe it.  The message
+ * shown to the user, such as '?? Unit xyz', is only built when it is requested, so an
+ * equation that fails costs no more than one that succeeds.
+ * <p/>
+ * Each code has a message pattern, where each '{}' is replaced by the next value.
+ * An engine keeps one error, which is set again by each calculation.
+ */
+public class CvtrError
+{
+/** The error codes, which are the index of the message pattern. */
+	public final static int none = 0, internal = 1, cached = 2, readError = 3, badCharacter = 4, badNumber = 5,
+			closeParen = 6, openParen = 7, doubleDivide = 8, stack = 9, nullDivisor = 10, nullValue = 11,
+			nullGroup = 12, functionGroup = 13, base = 14, math = 15, loop = 16, charCode = 17, dotted = 18,
+			dottedLarge = 19, dottedNegative = 20, basePrefix = 21, power = 22, unit = 23, operation = 24,
+			mixedOperation = 25, unitsModulo = 26, numberModulo = 27, unitModulo = 28, groupOperation = 29,
+			groupLogic = 30, unitLogic = 31, unitOperation = 32, groupModulo = 33, groupModuloValue = 34,
+			groupPower = 35, groupPowerUnit = 36, groupPowerDecimal = 37, groupPowerLarge = 38,
+			functionArguments = 39, functionRoot = 40, functionString = 41, functionUnit = 42, functionBase = 43,
+			divideZero = 44, negativeDivideZero = 45, logNegative = 46, function = 47, limit = 48, cancelled = 49;
+	// The message of each error code
+	private final static String[] patterns = {
+		"", "?? Internal", "{}", "?? {}", "?? {}", "?? {}",
+		"?? )", "?? (", "?? (//)", "?? Stack Err", "?? / Null", "?? Null",
+		"?? Null Group", "?? Function Group", "?? Base", "?? Math Err", "?? Loop", "?? 'Char Code'", "?? #.#",
+		"?? dd>255", "?? dd<0", "?? {}|", "?? ^{}", "?? Unit {}", "?? Op({})",
+		"?? !Op({}{})", "?? Units%Units", "?? N%{}", "?? {}%{}", "?? (){}()",
+		"?? ()L()", "?? {} L {}", "?? {}{}{}", "?? ()%()", "?? ()%{}",
+		"?? ()^()", "?? ()^{}", "?? ()^i.d", "?? ()^{} too large",
+		"?? {}()", "?? {}({}{}^{})", "?? {} {}", "?? {}({})", "?? {}(!g|r)",
+		"?? 1/0", "?? -1/0", "?? {}(<0)", "?? {}", "?? Limit {}", "?? Cancelled"
+	};
+	final private static Object[] noDetails = new Object[0];
+
+	private int code = none;
+	private int offset = -1;
+	private Object[] details = noDetails;
+	private String message = "";
+
+/**
+ * The Convertator Error constructor creates an error with no error.
+ */
+	public CvtrError() {
+
+	}
+
+/**
+ * Set an error that has no values.
+ *
+ * @param errorCode	The error code.
+ * @param location	The location in the equation, or -1 if it is not known.
+ */
+	public void set(int errorCode, int location) {
+		code = errorCode;
+		offset = location;
+		details = noDetails;
+		message = null;
+	}
+
+/**
+ * Set an error and the values of its message.  Values that change after the error is
+ * found, such as the value of an operand, must be copied, as a number or a String.
+ *
+ * @param errorCode	The error code.
+ * @param location	The location in the equation, or -1 if it is not known.
+ * @param values	The values of the message, in the order of the pattern.
+ */
+	public void set(int errorCode, int location, Object... values) {
+		code = errorCode;
+		offset = location;
+		details = values;
+		message = null;
+	}
+
+/**
+ * Set the error to the code, location and values of another error, such as an error
+ * saved with a result.  The values are shared, since they are never changed.
+ *
+ * @param error	The error to be copied.
+ */
+	public void set(CvtrError error) {
+		code = error.code;
+		offset = error.offset;
+		details = error.details;
+		message = error.message;
+	}
+
+/**
+ * Set the location of the error, if it is not known.  The location of an error found
+ * while parsing an operand is the start of the operand.
+ *
+ * @param location	The location in the equation.
+ */
+	public void locate(int location) {
+		if (offset < 0 && code != none)
+			offset = location;
+	}
+
+/**
+ * Get the error code.
+ *
+ * @return int	The error code, which is none if there is no error.
+ */
+	public int getCode() {
+		return code;
+	}
+
+/**
+ * Test whether an error is set.
+ *
+ * @return boolean	True if the code is not none.
+ */
+	public boolean isSet() {
+		return code != none;
+	}
+
+/**
+ * Get the location in the equation where the error was found.
+ *
+ * @return int	The offset of the character, or -1 if it is not known.
+ */
+	public int getOffset() {
+		return offset;
+	}
+
+/**
+ * Get the values of the message.
+ *
+ * @return Object[]	The values, in the order of the pattern.
+ */
+	public Object[] getValues() {
+		return details.clone();
+	}
+
+/**
+ * Get the error message, which is built the first time it is requested.
+ *
+ * @return String	The message, which is empty if there is no error.
+ */
+	public String getMessage() {
+		int i, j, next = 0;
+		String pattern;
+		StringBuilder text;
+
+		if (message != null)
+			return message;
+		pattern = patterns[code];
+		if (details.length == 0) {
+			message = pattern;
+			return message;
+		}
+		text = new StringBuilder(pattern.length() + 16);
+		for (i=0; (j = pattern.indexOf("{}", i)) >= 0; i=j+2)
+			text.append(pattern, i, j).append(next < details.length ? details[next++] : "");
+		message = text.append(pattern, i, pattern.length()).toString();
+
+		return message;
+	}
+
+}
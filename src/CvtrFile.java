@@ -24,6 +24,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 import javax.swing.JFrame;
@@ -258,122 +259,55 @@ public class CvtrFile
 	} /* end deleteFile */
 
 /**
- * Get all Convertator data files (extension of .cvd), starting in the home directory,
- * then in the application directory.  If files in the application directory duplicate
- * any from the home directory, a warning message is issued that they are ignored.
+ * Get the full path of all Convertator data files (extension of .cvd), starting in the
+ * home directory, then in the application directory, in the order they are loaded.  If
+ * files in the application directory duplicate any from the home directory, a warning
+ * message is issued that they are ignored.
  * 
- * @param ce	The Convertator engine where the data is stored.
- * 
- * @return boolean	True if successful.  If errorMessage is not null, there are warnings.
- * 					Otherwise, a message is saved in errorMessage and false is returned.
+ * @return ArrayList	The list of files.  If errorMessage is not null, there are warnings.
+ * 						If there is an invalid file in the home directory, a message is
+ * 						saved in errorMessage and null is returned.
  */
-	public boolean getDataFiles(CvtrEngine ce) {
+	public ArrayList<String> getDataPaths() {
 		int i, j;
-		String curDir = System.getProperty("user.dir"), warnings = "", dType;
-		String fType = "data" + File.separator + "Units";
-		File dir;
-		String[] children, allFiles = null;
-		CvtrData cf;
+		String curDir = System.getProperty("user.dir"), warnings = "";
+		String[] children, fTypes = {"Units", "Constants", "Equations"};
+		ArrayList <String> paths = new ArrayList<String>(), homeFiles = new ArrayList<String>();
 
 		// Get data files from home directory
 		// ~/Convertator/data/(Units | Constants | Equations)
-		dir = new File(homeDir + fType);
-		children = dir.list();
-		while (fType.length() > 0) {
-			if (children != null) {
-				Arrays.sort(children);
-				for (i=0; i < children.length; i++) {
-					if (children[i].indexOf(".cvd") > 0 && children[i].indexOf(".cvd") == (children[i].length() - 4) &&
-						(cf = getCvtrFile(homeDir + fType + File.separator + children[i])) != null) {
-						dType = cf.getDataType();
-						if (dType.equals("U")) {
-							ce.UnitFiles.add(children[i]);
-							ce.UnitCategories.add(cf.elementCategory);
-							ce.UnitNames.add(cf.elementNames);
-							ce.UnitValues.add(cf.elementValues);
-						} else if (dType.equals("C")) {
-							ce.ConstantFiles.add(children[i]);
-							ce.ConstantCategories.add(cf.elementCategory);
-							ce.ConstantNames.add(cf.elementNames);
-							ce.ConstantValues.add(cf.elementValues);
-						} else if (dType.equals("E")) {
-							ce.EquationFiles.add(children[i]);
-							ce.EquationCategories.add(cf.elementCategory);
-							ce.EquationNames.add(cf.elementNames);
-							ce.EquationValues.add(cf.elementValues);
-						}
-					} else {
-						errorMessage = "Invalid file in home data directory";
-						return false;
-					}
+		for (j=0; j < fTypes.length; j++) {
+			children = (new File(homeDir + "data" + File.separator + fTypes[j])).list();
+			if (children == null)
+				continue;
+			Arrays.sort(children);
+			for (i=0; i < children.length; i++) {
+				if (!isDataFile(children[i])) {
+					errorMessage = "Invalid file in home data directory";
+					return null;
 				}
-			}
-			if (fType.equals("data" + File.separator + "Units")) {
-				fType = "data" + File.separator + "Constants";
-				dir = new File(homeDir + fType);
-				children = dir.list();
-			} else if (fType.equals("data" + File.separator + "Constants")) {
-				fType = "data" + File.separator + "Equations";
-				dir = new File(homeDir + fType);
-				children = dir.list();
-			} else
-				fType = "";
-		}
-
-		// Get list of data files from home directory
-		allFiles = new String[ce.UnitFiles.size() + ce.ConstantFiles.size() + ce.EquationFiles.size()];
-		j = 0;
-		for (i=0; i < allFiles.length; i++) {
-			if (i < ce.UnitFiles.size()) {
-				allFiles[i] = ce.UnitFiles.get(j++);
-				if (j == ce.UnitFiles.size())
-					j = 0;
-			} else if (i < (ce.UnitFiles.size() + ce.ConstantFiles.size())) {
-				allFiles[i] = ce.ConstantFiles.get(j++);
-				if (j == ce.ConstantFiles.size())
-					j = 0;
-			} else {
-				allFiles[i] = ce.EquationFiles.get(j++);
+				paths.add(homeDir + "data" + File.separator + fTypes[j] + File.separator + children[i]);
+				homeFiles.add(children[i]);
 			}
 		}
 
 		// Get data files from application directory
 		// ./Convertator/data/(Units | Constants | Equations)
-		dir = new File(curDir + File.separator + "data");
-		children = dir.list();
+		children = (new File(curDir + File.separator + "data")).list();
 		if (children != null) {
 			Arrays.sort(children);
 			for (i=0; i < children.length; i++) {
-				if (children[i].indexOf(".cvd") > 0 && children[i].indexOf(".cvd") == (children[i].length() - 4)) {
-					// Do not load duplicate files
-					for (j=0; j < allFiles.length; j++) {
-						if (allFiles[j].equalsIgnoreCase(children[i]))
-							break;
-					}
-					if (j < allFiles.length) {
-						warnings += "  " + children[i];
-					} else if ((cf = getCvtrFile("data" + File.separator + children[i])) != null) {
-						if (cf.getDataType().equals("U")) {
-							ce.UnitFiles.add(children[i]);
-							ce.UnitCategories.add(cf.elementCategory);
-							ce.UnitNames.add(cf.elementNames);
-							ce.UnitValues.add(cf.elementValues);
-						} else if (cf.getDataType().equals("C")) {
-							ce.ConstantFiles.add(children[i]);
-							ce.ConstantCategories.add(cf.elementCategory);
-							ce.ConstantNames.add(cf.elementNames);
-							ce.ConstantValues.add(cf.elementValues);
-						} else if (cf.getDataType().equals("E")) {
-							ce.EquationFiles.add(children[i]);
-							ce.EquationCategories.add(cf.elementCategory);
-							ce.EquationNames.add(cf.elementNames);
-							ce.EquationValues.add(cf.elementValues);
-						}
-					} else {
-						errorMessage = "Invalid file in application data directory";
-						return false;
-					}
+				if (!isDataFile(children[i]))
+					continue;
+				// Do not load duplicate files
+				for (j=0; j < homeFiles.size(); j++) {
+					if (homeFiles.get(j).equalsIgnoreCase(children[i]))
+						break;
 				}
+				if (j < homeFiles.size())
+					warnings += "  " + children[i];
+				else
+					paths.add(curDir + File.separator + "data" + File.separator + children[i]);
 			}
 		}
 
@@ -384,8 +318,19 @@ public class CvtrFile
 		} else
 			errorMessage = null;
 
-		return true;
-	} /* end getDataFiles */
+		return paths;
+	} /* end getDataPaths */
+
+/**
+ * Check the name of a Convertator data file.
+ * 
+ * @param filename	The name of the file.
+ * 
+ * @return boolean	True if the file has the extension .cvd.
+ */
+	public boolean isDataFile(String filename) {
+		return (filename.indexOf(".cvd") > 0 && filename.indexOf(".cvd") == (filename.length() - 4));
+	}
 
 /**
  * Read a Convertator format file.  The format is:
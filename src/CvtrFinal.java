@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Convertator Final class is the reduced form of a calculated equation.  It is
+ * never changed after it is created, so it may be displayed in any number of formats,
+ * with other units, bases and precisions, without calculating the equation again.
+ * Each format only converts and formats the operands of the reduced form.
+ */
+public class CvtrFinal
+{
+	// The operands of the reduced equation
+	private final CvtrOperand[] operands;
+	// The base and units of the equation
+	private final CvtrResult[] equationResult;
+/** The catalog used for the calculation. */
+	public final CvtrCatalog catalog;
+/** The fixed point of the results, or null if they are doubles. */
+	public final CvtrFixed fixedPoint;
+/** The decimal separator of the results. */
+	public final char decimalSeparator;
+
+/**
+ * The Convertator Final constructor copies the reduced equation.
+ *
+ * @param stack	The operands of the reduced equation.
+ * @param result	The base and units of the equation.
+ * @param cc	The catalog used for the calculation.
+ * @param fp	The fixed point of the calculation, or null if it used doubles.
+ * @param separator	The decimal separator of the equation.
+ */
+	public CvtrFinal(List<CvtrOperand> stack, CvtrResult[] result, CvtrCatalog cc, CvtrFixed fp,
+			char separator) {
+		int i;
+
+		operands = new CvtrOperand[stack.size()];
+		for (i=0; i < operands.length; i++)
+			operands[i] = copyOperand(stack.get(i), new CvtrOperand());
+		equationResult = copyResult(result);
+		catalog = cc;
+		fixedPoint = fp;
+		decimalSeparator = separator;
+	}
+
+/**
+ * Get a copy of the operands, which may be changed while a format is applied.
+ *
+ * @return ArrayList	The operands.
+ */
+	public ArrayList<CvtrOperand> getOperands() {
+		int i;
+		ArrayList <CvtrOperand> stack = new ArrayList<CvtrOperand>(operands.length);
+
+		for (i=0; i < operands.length; i++)
+			stack.add(copyOperand(operands[i], new CvtrOperand()));
+
+		return stack;
+	}
+
+/**
+ * Restore a copy of the operands from getOperands after a format has changed it, so
+ * it can be used for another format.
+ *
+ * @param stack	The copy of the operands.
+ */
+	public void resetOperands(List<CvtrOperand> stack) {
+		int i;
+
+		for (i=0; i < operands.length; i++)
+			copyOperand(operands[i], stack.get(i));
+	}
+
+/**
+ * Get a copy of the base and units of the equation, which may be changed and used as
+ * a format.
+ *
+ * @return CvtrResult[]	The base and units.
+ */
+	public CvtrResult[] getResultUnits() {
+		return copyResult(equationResult);
+	}
+
+/**
+ * Copy the fields of an operand that are used to display it.
+ *
+ * @param from	The operand.
+ * @param oper	The operand whose fields are set.
+ *
+ * @return CvtrOperand	The copy, which is oper.
+ */
+	private static CvtrOperand copyOperand(CvtrOperand from, CvtrOperand oper) {
+		oper.value = from.value;
+		oper.sValue = from.sValue;
+		oper.base = from.base;
+		oper.unit = from.unit;
+		oper.conversionFactor = from.conversionFactor;
+		oper.indexType = from.indexType;
+		oper.indexUnit = from.indexUnit;
+		oper.unitPower = from.unitPower;
+		oper.opCode = from.opCode;
+		oper.groupUnit = from.groupUnit;
+		oper.function = from.function;
+		oper.bits = from.bits;
+		oper.exact = from.exact;
+		oper.fixed = from.fixed;
+
+		return oper;
+	}
+
+/**
+ * Copy a list of base and units.
+ *
+ * @param from	The list, or null.
+ *
+ * @return CvtrResult[]	The copy, or null.
+ */
+	private static CvtrResult[] copyResult(CvtrResult[] from) {
+		int i;
+		CvtrResult[] result;
+
+		if (from == null)
+			return null;
+		result = new CvtrResult[from.length];
+		for (i=0; i < from.length; i++)
+			result[i] = new CvtrResult(from[i].resultBase, from[i].resultAbbrev, from[i].conversionFactor,
+				from[i].indexType, from[i].indexUnit);
+
+		return result;
+	}
+
+}
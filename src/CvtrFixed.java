@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The Convertator Fixed Point is the digits and rounding of decimal results that are
+ * calculated as a 64 bit integer count of a fixed fraction instead of as a double, so
+ * money is calculated the same way every time and at nearly the speed of a double.
+ * <p/>
+ * The values are calculated with guard digits past the digits of the result, so that
+ * a rate such as 5.25/1200 is not rounded to cents before it is used.  Addition and
+ * subtraction are exact, and each multiplication, division and integer power is rounded
+ * to the scale of the values with the rounding mode.  Only the result is rounded to its
+ * digits, when it is displayed.
+ * <p/>
+ * A value is the integer that is the number times 10^scale.  Each operation returns
+ * overflow instead of a value that does not fit in 64 bits, and the engine calculates
+ * that operation with doubles, whose result is still rounded to the digits of a result.
+ * A fixed point is never changed after it is created, so
+ * it may be shared by any number of engines.
+ */
+public class CvtrFixed
+{
+/** The value returned by an operation whose result does not fit in 64 bits. */
+	public final static long overflow = Long.MIN_VALUE;
+/** The largest scale, for which 10^scale still fits in a long. */
+	public final static int maxScale = 18;
+	// The digits of values past the digits of the result
+	final private static int guardDigits = 8;
+
+	final private static long[] powers = new long[maxScale + 1];
+
+/** The number of decimal digits of the fraction of a result. */
+	public final int places;
+/** The number of decimal digits of the fraction of a value, which includes the guard
+ *  digits. */
+	public final int scale;
+/** The rounding of each result to the scale. */
+	public final RoundingMode rounding;
+/** The value of 1, which is 10^scale. */
+	public final long one;
+
+	static {
+		int i;
+
+		powers[0] = 1;
+		for (i=1; i <= maxScale; i++)
+			powers[i] = powers[i-1] * 10;
+	}
+
+/**
+ * The Convertator Fixed Point constructor.
+ *
+ * @param digits	The number of decimal digits of the fraction of a result, from 0
+ * 				to maxScale.
+ * @param mode	The rounding of results, or null for HALF_EVEN.
+ */
+	public CvtrFixed(int digits, RoundingMode mode) {
+		places = Math.min(Math.max(0, digits), maxScale);
+		scale = Math.min(places + guardDigits, maxScale);
+		rounding = (mode == null) ? RoundingMode.HALF_EVEN : mode;
+		one = powers[scale];
+	}
+
+/**
+ * Get a fixed point from its description, which is the scale and an optional rounding
+ * mode separated by a comma, such as "4" or "2,HALF_UP".
+ *
+ * @param text	The description.
+ *
+ * @return CvtrFixed	The fixed point, or null if the description is not valid.
+ */
+	public static CvtrFixed valueOf(String text) {
+		int i, digits = 0;
+		RoundingMode mode = null;
+		String sScale = text.trim();
+
+		if ((i = sScale.indexOf(',')) >= 0) {
+			for (RoundingMode m : RoundingMode.values()) {
+				if (m.name().equalsIgnoreCase(sScale.substring(i + 1).trim()))
+					mode = m;
+			}
+			if (mode == null)
+				return null;
+			sScale = sScale.substring(0, i).trim();
+		}
+		if (sScale.length() == 0 || sScale.length() > 2)
+			return null;
+		for (i=0; i < sScale.length(); i++) {
+			if (!Character.isDigit(sScale.charAt(i)))
+				return null;
+			digits = digits * 10 + (sScale.charAt(i) - '0');
+		}
+		if (digits > maxScale)
+			return null;
+
+		return new CvtrFixed(digits, mode);
+	}
+
+/**
+ * Get the value of a decimal number, such as "-12.345".  Digits past the scale are
+ * rounded.
+ *
+ * @param number	The number, which is an optional '-', digits, and an optional
+ * 					'.' followed by digits.
+ *
+ * @return long	The value, or overflow if it does not fit or the number is not valid.
+ */
+	public long parse(String number) {
+		return parse(number, 0, number.length(), '.');
+	}
+
+/**
+ * Get the value of the characters of a decimal number.  Digits past the scale are
+ * rounded.
+ *
+ * @param text	The characters.
+ * @param start	The first character of the number.
+ * @param end	The character after the number.
+ * @param point	The decimal separator.
+ *
+ * @return long	The value, or overflow if it does not fit or the number is not valid.
+ */
+	public long parse(CharSequence text, int start, int end, char point) {
+		int i = start, digits = -1, first = -1;
+		long whole = 0;
+		boolean negative = false, rest = false;
+		char c;
+
+		if (i < end && text.charAt(i) == '-') {
+			negative = true;
+			i++;
+		}
+		if (i == end)
+			return overflow;
+		for (; i < end; i++) {
+			c = text.charAt(i);
+			if (c == point) {
+				if (digits >= 0)
+					return overflow;
+				digits = 0;
+			} else if (c < '0' || c > '9') {
+				return overflow;
+			} else if (digits < scale) {
+				if (whole > (Long.MAX_VALUE - (c - '0')) / 10)
+					return overflow;
+				whole = whole * 10 + (c - '0');
+				if (digits >= 0)
+					digits++;
+			// The first dropped digit is compared with a half, and the others only
+			// decide a tie
+			} else if (first < 0) {
+				first = c - '0';
+			} else if (c != '0') {
+				rest = true;
+			}
+		}
+		for (digits = Math.max(digits, 0); digits < scale; digits++) {
+			if (whole > Long.MAX_VALUE / 10)
+				return overflow;
+			whole *= 10;
+		}
+		if (first > 0 || rest) {
+			if (rounding == RoundingMode.UNNECESSARY)
+				return overflow;
+			if (roundUp(whole, (first == 5) ? (rest ? 1 : 0) : Integer.compare(first, 5), negative) && whole++ == Long.MAX_VALUE)
+				return overflow;
+		}
+
+		return negative ? -whole : whole;
+	} /* end parse */
+
+/**
+ * Get the value of an integer.
+ *
+ * @param l	The integer.
+ *
+ * @return long	The value, or overflow if it does not fit.
+ */
+	public long fromLong(long l) {
+		if (l == overflow || Math.abs(l) > Long.MAX_VALUE / one)
+			return overflow;
+
+		return l * one;
+	}
+
+/**
+ * Get the value of a double, which is rounded to the scale.  This is used for the
+ * results of functions, such as Sine, which are not calculated as fixed point.
+ *
+ * @param d	The number.
+ *
+ * @return long	The value, or overflow if it does not fit.
+ */
+	public long round(double d) {
+		if (Double.isNaN(d) || Double.isInfinite(d) || Math.abs(d) * one >= 9.0e18)
+			return overflow;
+		try {
+			return BigDecimal.valueOf(d).setScale(scale, rounding).unscaledValue().longValue();
+		} catch (ArithmeticException err) {
+			// The rounding mode is UNNECESSARY and the number has more digits
+			return overflow;
+		}
+	}
+
+/**
+ * Get a value as a double.
+ *
+ * @param value	The value.
+ *
+ * @return double	The number.
+ */
+	public double toDouble(long value) {
+		return (double) value / one;
+	}
+
+/**
+ * Get a value as a BigDecimal, which is exact.
+ *
+ * @param value	The value.
+ *
+ * @return BigDecimal	The number.
+ */
+	public BigDecimal toBigDecimal(long value) {
+		return BigDecimal.valueOf(value, scale);
+	}
+
+/**
+ * Get a value as a result, which is rounded to the digits of a result, for formatting.
+ *
+ * @param value	The value.
+ *
+ * @return BigDecimal	The number, which has all of the digits of the value if the
+ * 						rounding mode is UNNECESSARY and they are needed.
+ */
+	public BigDecimal toResult(long value) {
+		try {
+			return BigDecimal.valueOf(value, scale).setScale(places, rounding);
+		} catch (ArithmeticException err) {
+			return BigDecimal.valueOf(value, scale);
+		}
+	}
+
+/**
+ * Get a double as a result, which is rounded to the digits of a result like a value,
+ * for formatting a number that was calculated as a double because it did not fit.
+ *
+ * @param value	The number, which is finite.
+ *
+ * @return BigDecimal	The number, which has all of its digits if the rounding mode is
+ * 						UNNECESSARY and they are needed.
+ */
+	public BigDecimal toResult(double value) {
+		try {
+			return BigDecimal.valueOf(value).setScale(places, rounding);
+		} catch (ArithmeticException err) {
+			return BigDecimal.valueOf(value);
+		}
+	}
+
+/**
+ * Add two values.
+ *
+ * @param a	The first value.
+ * @param b	The second value.
+ *
+ * @return long	The sum, or overflow if it does not fit.
+ */
+	public static long add(long a, long b) {
+		long sum = a + b;
+
+		if (a == overflow || b == overflow || ((a ^ sum) & (b ^ sum)) < 0)
+			return overflow;
+
+		return sum;
+	}
+
+/**
+ * Subtract two values.
+ *
+ * @param a	The first value.
+ * @param b	The value subtracted from it.
+ *
+ * @return long	The difference, or overflow if it does not fit.
+ */
+	public static long subtract(long a, long b) {
+		long difference = a - b;
+
+		if (a == overflow || b == overflow || ((a ^ b) & (a ^ difference)) < 0)
+			return overflow;
+
+		return difference;
+	}
+
+/**
+ * Multiply two values and round the product to the scale.
+ *
+ * @param a	The first value.
+ * @param b	The second value.
+ *
+ * @return long	The product, or overflow if it does not fit.
+ */
+	public long multiply(long a, long b) {
+		if (a == overflow || b == overflow)
+			return overflow;
+
+		return divide(Math.multiplyHigh(Math.abs(a), Math.abs(b)), Math.abs(a) * Math.abs(b), one, (a < 0) != (b < 0));
+	}
+
+/**
+ * Divide two values and round the quotient to the scale.
+ *
+ * @param a	The dividend.
+ * @param b	The divisor, which must not be 0.
+ *
+ * @return long	The quotient, or overflow if it does not fit.
+ */
+	public long divide(long a, long b) {
+		if (a == overflow || b == overflow || b == 0)
+			return overflow;
+
+		return divide(Math.multiplyHigh(Math.abs(a), one), Math.abs(a) * one, Math.abs(b), (a < 0) != (b < 0));
+	}
+
+/**
+ * Raise a value to an integer power.  Each product is rounded, and a negative power
+ * is 1 divided by the positive power.
+ *
+ * @param a	The value.
+ * @param n	The power.
+ *
+ * @return long	The value raised to the power, or overflow if it does not fit.
+ */
+	public long power(long a, long n) {
+		long result = one, square = a, count = Math.abs(n);
+
+		if (a == overflow || n == Long.MIN_VALUE)
+			return overflow;
+		while (count > 0 && result != overflow) {
+			if ((count & 1) != 0)
+				result = multiply(result, square);
+			if ((count >>= 1) > 0 && (square = multiply(square, square)) == overflow)
+				return overflow;
+		}
+		if (n < 0 && result != overflow)
+			return (result == 0) ? overflow : divide(one, result);
+
+		return result;
+	}
+
+/**
+ * Divide the 128 bit magnitude high:low by a divisor and round the quotient.
+ *
+ * @param high	The high 64 bits of the dividend, which is not negative.
+ * @param low	The low 64 bits of the dividend.
+ * @param divisor	The divisor, which is greater than 0.
+ * @param negative	The quotient is negative.
+ *
+ * @return long	The quotient, or overflow if it does not fit.
+ */
+	private long divide(long high, long low, long divisor, boolean negative) {
+		long quotient, remainder;
+
+		// The quotient only fits in 64 bits when the high bits are less than the divisor
+		if (high >= divisor)
+			return overflow;
+		if (high == 0) {
+			quotient = Long.divideUnsigned(low, divisor);
+			remainder = Long.remainderUnsigned(low, divisor);
+		} else {
+			quotient = divideLong(high, low, divisor);
+			remainder = low - quotient * divisor;
+		}
+		if (quotient < 0 || (remainder != 0 && rounding == RoundingMode.UNNECESSARY))
+			return overflow;
+		if (remainder != 0 && roundUp(quotient, Long.compare(remainder, divisor - remainder), negative)) {
+			if (quotient++ == Long.MAX_VALUE)
+				return overflow;
+		}
+
+		return negative ? -quotient : quotient;
+	}
+
+/**
+ * Divide a 128 bit unsigned number by a 64 bit number, when the high bits are less
+ * than the divisor, which is long division with 32 bit digits (Hacker's Delight,
+ * divlu).
+ *
+ * @param high	The high 64 bits of the dividend.
+ * @param low	The low 64 bits of the dividend.
+ * @param divisor	The divisor.
+ *
+ * @return long	The unsigned quotient.
+ */
+	private static long divideLong(long high, long low, long divisor) {
+		final long base = 1L << 32, mask = base - 1;
+		int shift = Long.numberOfLeadingZeros(divisor);
+		long d1, d0, n32, n10, n1, n0, q1, q0, rhat, n21;
+
+		// Normalize so the divisor has its high bit set
+		divisor <<= shift;
+		d1 = divisor >>> 32;
+		d0 = divisor & mask;
+		n32 = (shift == 0) ? high : (high << shift) | (low >>> (64 - shift));
+		n10 = low << shift;
+		n1 = n10 >>> 32;
+		n0 = n10 & mask;
+
+		q1 = Long.divideUnsigned(n32, d1);
+		rhat = n32 - q1 * d1;
+		while (q1 >= base || Long.compareUnsigned(q1 * d0, (rhat << 32) | n1) > 0) {
+			q1--;
+			rhat += d1;
+			if (rhat >= base)
+				break;
+		}
+		n21 = (n32 << 32) + n1 - q1 * divisor;
+
+		q0 = Long.divideUnsigned(n21, d1);
+		rhat = n21 - q0 * d1;
+		while (q0 >= base || Long.compareUnsigned(q0 * d0, (rhat << 32) | n0) > 0) {
+			q0--;
+			rhat += d1;
+			if (rhat >= base)
+				break;
+		}
+
+		return (q1 << 32) + q0;
+	} /* end divideLong */
+
+/**
+ * Decide whether a magnitude that had a fraction dropped is rounded away from 0.
+ *
+ * @param magnitude	The magnitude without the fraction.
+ * @param half	The fraction compared with a half: less than, equal to or more than 0.
+ * @param negative	The number is negative.
+ *
+ * @return boolean	True if the magnitude is incremented.
+ */
+	private boolean roundUp(long magnitude, int half, boolean negative) {
+		switch (rounding) {
+		case UP:
+			return true;
+		case DOWN:
+			return false;
+		case CEILING:
+			return !negative;
+		case FLOOR:
+			return negative;
+		case HALF_UP:
+			return half >= 0;
+		case HALF_DOWN:
+			return half > 0;
+		case HALF_EVEN:
+			return half > 0 || (half == 0 && (magnitude & 1) != 0);
+		default:
+			return false;
+		}
+	}
+
+/**
+ * Get the scale and rounding, which is the description read by valueOf.
+ *
+ * @return String	The description.
+ */
+	public String toString() {
+		return places + "," + rounding;
+	}
+
+}
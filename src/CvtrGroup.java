@@ -17,6 +17,8 @@
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The Convertator Group class parses an equation stack to separate it into
@@ -70,7 +72,7 @@ public class CvtrGroup
  */
 	private void initGroup() {
 		int i, idx;
-		int gLevel, sLevel;
+		int[] ends;
 
 		for (idx=0; idx < groupStack.size(); idx++) {
 			if (groupStack.get(idx).nestLevel >= nLevel) {
@@ -87,7 +89,7 @@ if (verbose) {
 System.out.println("Get groups: " + " (" + groupStack.size() + "): " + nLevel);
 for (i=0; i < groupStack.size(); i++) {
 	System.out.print("  Get groups Operand " + i + ": " + groupStack.get(i).value + groupStack.get(i).unit + "^" +
-			groupStack.get(i).unitPower + ", " + groupStack.get(i).operation + " (" + groupStack.get(i).nestLevel + ", ");
+			groupStack.get(i).unitPower + ", " + groupStack.get(i).getOperation() + " (" + groupStack.get(i).nestLevel + ", ");
 	int j;
 	for (j=groupStack.get(i).nestLevel; j >= 0; j--) {
 		if (groupStack.get(i).nestGroup == null)
@@ -106,67 +108,81 @@ for (i=0; i < groupStack.size(); i++) {
 			return;
 		}
 
-		// Get groups to be reduced in groupList arrays
-		groupList.add(new ArrayList<CvtrOperand>());
-		idx = 0;
-		gLevel = sLevel = -1;
-		while (groupStack.size() > 0) {
-			// Get new subgroup if there is a difference in nesting at current nLevel
-			if (gLevel < 0 && groupStack.get(0).nestLevel >= nLevel && groupStack.get(0).nestGroup != null)
-				gLevel = groupStack.get(0).nestGroup[nLevel];
-			if (groupStack.get(0).nestGroup == null) {
-				sLevel = groupStack.get(0).nestLevel;
-				gLevel = maxNesting;
-				if (groupList.get(idx).size() > 0) {
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
+		// Copy each group from its range of the stack, which is not changed
+		ends = splitGroups(groupStack, nLevel, maxNesting);
+		for (idx=0; idx < ends.length; idx++) {
+			groupList.add(new ArrayList<CvtrOperand>(groupStack.subList((idx == 0) ? 0 : ends[idx - 1], ends[idx])));
 if (verbose)
-System.out.println("  Add group list(" + idx + ")null: " + groupList.size());
+System.out.println("  Group size(" + idx + "): " + groupList.get(idx).size());
+		}
+
+		return;
+	} /* end initGroup */
+
+/**
+ * Find the groups of operands at a nesting level in one pass over an operand stack.
+ * A new group starts where the nesting level or group changes, and each operand
+ * without a nest group is a separate group.  The stack is not changed.
+ *
+ * @param stack	The operands to be divided into groups.
+ * @param level	The nesting level used to divide the operands.
+ * @param nullGroup	The group number used for an operand without a nest group.
+ *
+ * @return int[]	The index after the last operand of each group.  The first group starts
+ * 					at index 0 and each other group starts at the end of the one before it.
+ */
+	public static int[] splitGroups(List<CvtrOperand> stack, int level, int nullGroup) {
+		int idx, start = 0, count = 0;
+		int gLevel = -1, sLevel = -1;
+		int[] ends = new int[stack.size()];
+		CvtrOperand oper;
+
+		for (idx=0; idx < stack.size(); idx++) {
+			oper = stack.get(idx);
+			// Get new subgroup if there is a difference in nesting at current level
+			if (gLevel < 0 && oper.nestLevel >= level && oper.nestGroup != null)
+				gLevel = oper.nestGroup[level];
+			if (oper.nestGroup == null) {
+				sLevel = oper.nestLevel;
+				gLevel = nullGroup;
+				if (idx > start) {
+					ends[count++] = idx;
+					start = idx;
 				}
-			// i.nestLevel < nLevel && (i.nestLevel != i+1.nestLevel || i.nestGroup != i+1.nestGroup)
+			// i.nestLevel < level && (i.nestLevel != i+1.nestLevel || i.nestGroup != i+1.nestGroup)
 			} else if (sLevel >= 0) {
-				if (groupStack.get(0).nestLevel != sLevel || groupStack.get(0).nestGroup[sLevel] != gLevel) {
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")SL: " + groupList.size());
-					if (groupStack.get(0).nestLevel >= nLevel) {
+				if (oper.nestLevel != sLevel || oper.nestGroup[sLevel] != gLevel) {
+					ends[count++] = idx;
+					start = idx;
+					if (oper.nestLevel >= level) {
 						sLevel = -1;
-						gLevel = groupStack.get(0).nestGroup[nLevel];
+						gLevel = oper.nestGroup[level];
 					} else {
-						sLevel = groupStack.get(0).nestLevel;
-						gLevel = groupStack.get(0).nestGroup[sLevel];
-						
+						sLevel = oper.nestLevel;
+						gLevel = oper.nestGroup[sLevel];
 					}
 				}
 			// i.nestLevel != i+1.nestLevel
-			} else if (groupStack.get(0).nestLevel < nLevel) {
-				sLevel = groupStack.get(0).nestLevel;
-				gLevel = groupStack.get(0).nestGroup[sLevel];
-				if (groupList.get(idx).size() > 0) {
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")NL: " + groupList.size());
+			} else if (oper.nestLevel < level) {
+				sLevel = oper.nestLevel;
+				gLevel = oper.nestGroup[sLevel];
+				if (idx > start) {
+					ends[count++] = idx;
+					start = idx;
 				}
 			// i.nestGroup != i+1.nestGroup
-			} else if (gLevel != groupStack.get(0).nestGroup[nLevel]) {
-				gLevel = groupStack.get(0).nestGroup[nLevel];
-				if (groupList.get(idx).size() > 0) {
-					groupList.add(new ArrayList<CvtrOperand>());
-					idx++;
-if (verbose)
-System.out.println("  Add group list(" + idx + ")GL: " + groupList.size());
+			} else if (gLevel != oper.nestGroup[level]) {
+				gLevel = oper.nestGroup[level];
+				if (idx > start) {
+					ends[count++] = idx;
+					start = idx;
 				}
 			}
-			// Add the operand to the subgroup
-			groupList.get(idx).add(groupStack.get(0));
-			groupStack.remove(0);
-if (verbose)
-System.out.println("  Group size: " + groupList.get(idx).size());
 		}
+		if (stack.size() > start)
+			ends[count++] = stack.size();
 
-		return;
-	} /* end reduceGroups */
+		return Arrays.copyOf(ends, count);
+	} /* end splitGroups */
 
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Convertator JSON class reads and writes the small JSON documents used by the
+ * Convertator server.  Objects are read as LinkedHashMap, arrays as ArrayList,
+ * numbers as Double, and true, false and null as Boolean and null.
+ */
+public class CvtrJson
+{
+	// The most arrays and objects nested in each other, so a document cannot use
+	// up the stack
+	final private static int maxDepth = 512;
+
+	private String json;
+	private int index;
+	private int depth;
+
+/**
+ * Parse a JSON document.
+ *
+ * @param text	The JSON text.
+ *
+ * @return Object	The value of the document.
+ *
+ * @throws IllegalArgumentException	If the text is not valid JSON.
+ */
+	public static Object parse(String text) throws IllegalArgumentException {
+		Object value;
+		CvtrJson cj = new CvtrJson();
+
+		cj.json = text;
+		cj.index = 0;
+		cj.depth = 0;
+		value = cj.parseValue();
+		cj.skipSpaces();
+		if (cj.index < cj.json.length())
+			cj.invalid();
+
+		return value;
+	}
+
+/**
+ * Format a value as JSON.  Maps, lists, strings, numbers, booleans and null are supported.
+ *
+ * @param value	The value.
+ *
+ * @return String	The JSON text.
+ */
+	public static String format(Object value) {
+		StringBuilder sb = new StringBuilder();
+
+		formatValue(sb, value);
+
+		return sb.toString();
+	}
+
+/**
+ * Format a value and add it to a JSON string.
+ *
+ * @param sb	The JSON string.
+ * @param value	The value.
+ */
+	public static void formatValue(StringBuilder sb, Object value) {
+		int i;
+		double d;
+		boolean first = true;
+
+		if (value == null) {
+			sb.append("null");
+		} else if (value instanceof String) {
+			formatString(sb, (String) value);
+		} else if (value instanceof Number) {
+			d = ((Number) value).doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d))
+				sb.append("null");
+			else if (d == Math.rint(d) && Math.abs(d) < 1e15)
+				sb.append((long) d);
+			else
+				sb.append(d);
+		} else if (value instanceof Boolean) {
+			sb.append(value.toString());
+		} else if (value instanceof Map) {
+			sb.append('{');
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (!first)
+					sb.append(',');
+				first = false;
+				formatString(sb, entry.getKey().toString());
+				sb.append(':');
+				formatValue(sb, entry.getValue());
+			}
+			sb.append('}');
+		} else if (value instanceof List) {
+			sb.append('[');
+			for (i=0; i < ((List<?>) value).size(); i++) {
+				if (i > 0)
+					sb.append(',');
+				formatValue(sb, ((List<?>) value).get(i));
+			}
+			sb.append(']');
+		} else {
+			formatString(sb, value.toString());
+		}
+	} /* end formatValue */
+
+/**
+ * Add a quoted string to a JSON string.
+ *
+ * @param sb	The JSON string.
+ * @param s	The string.
+ */
+	private static void formatString(StringBuilder sb, String s) {
+		int i;
+		char c;
+
+		sb.append('"');
+		for (i=0; i < s.length(); i++) {
+			c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c == '\n') {
+				sb.append("\\n");
+			} else if (c == '\r') {
+				sb.append("\\r");
+			} else if (c == '\t') {
+				sb.append("\\t");
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+
+/**
+ * Parse the value at the current location.
+ *
+ * @return Object	The value.
+ *
+ * @throws IllegalArgumentException	If the text is not valid JSON.
+ */
+	private Object parseValue() throws IllegalArgumentException {
+		char c;
+		String key;
+		LinkedHashMap <String, Object> map;
+		ArrayList <Object> list;
+
+		skipSpaces();
+		if (index >= json.length())
+			invalid();
+		c = json.charAt(index);
+		if ((c == '{' || c == '[') && ++depth > maxDepth)
+			throw new IllegalArgumentException("Invalid JSON: nesting too deep");
+		if (c == '{') {
+			map = new LinkedHashMap<String, Object>();
+			index++;
+			skipSpaces();
+			if (index < json.length() && json.charAt(index) == '}') {
+				index++;
+				depth--;
+				return map;
+			}
+			while (true) {
+				skipSpaces();
+				if (index >= json.length() || json.charAt(index) != '"')
+					invalid();
+				key = parseString();
+				skipSpaces();
+				if (index >= json.length() || json.charAt(index++) != ':')
+					invalid();
+				map.put(key, parseValue());
+				skipSpaces();
+				if (index >= json.length())
+					invalid();
+				c = json.charAt(index++);
+				if (c == '}') {
+					depth--;
+					return map;
+				}
+				if (c != ',')
+					invalid();
+			}
+		} else if (c == '[') {
+			list = new ArrayList<Object>();
+			index++;
+			skipSpaces();
+			if (index < json.length() && json.charAt(index) == ']') {
+				index++;
+				depth--;
+				return list;
+			}
+			while (true) {
+				list.add(parseValue());
+				skipSpaces();
+				if (index >= json.length())
+					invalid();
+				c = json.charAt(index++);
+				if (c == ']') {
+					depth--;
+					return list;
+				}
+				if (c != ',')
+					invalid();
+			}
+		} else if (c == '"') {
+			return parseString();
+		} else if (json.startsWith("true", index)) {
+			index += 4;
+			return Boolean.TRUE;
+		} else if (json.startsWith("false", index)) {
+			index += 5;
+			return Boolean.FALSE;
+		} else if (json.startsWith("null", index)) {
+			index += 4;
+			return null;
+		}
+
+		return parseNumber();
+	} /* end parseValue */
+
+/**
+ * Parse the string at the current location, which is the opening quote.
+ *
+ * @return String	The string.
+ *
+ * @throws IllegalArgumentException	If the string is not valid.
+ */
+	private String parseString() throws IllegalArgumentException {
+		char c;
+		StringBuilder sb = new StringBuilder();
+
+		index++;
+		while (index < json.length()) {
+			c = json.charAt(index++);
+			if (c == '"')
+				return sb.toString();
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			if (index >= json.length())
+				invalid();
+			c = json.charAt(index++);
+			switch (c) {
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 't': sb.append('\t'); break;
+				case 'b': sb.append('\b'); break;
+				case 'f': sb.append('\f'); break;
+				case 'u':
+					if (index + 4 > json.length())
+						invalid();
+					try {
+						sb.append((char) Integer.parseInt(json.substring(index, index + 4), 16));
+					} catch (NumberFormatException err) {
+						invalid();
+					}
+					index += 4;
+					break;
+				default: sb.append(c); break;
+			}
+		}
+		invalid();
+		return null;
+	}
+
+/**
+ * Parse the number at the current location.
+ *
+ * @return Double	The number.
+ *
+ * @throws IllegalArgumentException	If the number is not valid.
+ */
+	private Double parseNumber() throws IllegalArgumentException {
+		int start = index;
+		char c;
+
+		while (index < json.length()) {
+			c = json.charAt(index);
+			if ((c < '0' || c > '9') && "+-.eE".indexOf(c) < 0)
+				break;
+			index++;
+		}
+		try {
+			return Double.valueOf(json.substring(start, index));
+		} catch (NumberFormatException err) {
+			invalid();
+		}
+		return null;
+	}
+
+/**
+ * Skip spaces at the current location.
+ */
+	private void skipSpaces() {
+		while (index < json.length() && Character.isWhitespace(json.charAt(index)))
+			index++;
+	}
+
+/**
+ * Report invalid JSON at the current location.
+ *
+ * @throws IllegalArgumentException	Always.
+ */
+	private void invalid() throws IllegalArgumentException {
+		IllegalArgumentException exception;
+
+		exception = new IllegalArgumentException("Invalid JSON at offset " + index);
+		throw exception;
+	}
+
+}
@@ -241,7 +241,7 @@ public class CvtrModifyResult
 		CvtrUnit cu;
 
 		mrResult[unitIndex].indexUnit = cbUnits.getSelectedIndex();
-		if ((cu = mrEngine.getUnit(mrEngine.getUnitAbbrev(uName))) != null) {
+		if ((cu = mrEngine.getUnit(CvtrEngine.getUnitAbbrev(uName))) != null) {
 			mrResult[unitIndex].indexUnit = cu.indexUnit;
 			mrResult[unitIndex].resultAbbrev = cu.unitAbbrev;
 			mrResult[unitIndex].conversionFactor = cu.conversionFactor;
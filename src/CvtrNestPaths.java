@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * The Convertator Nest Paths are the nest groups of operands, which are the parsing
+ * group of an operand at each nesting level.  Each path is interned in a tree, where
+ * the children of a path are the paths one level deeper, so every operand in the same
+ * groups shares one array and two operands have the same path when they have the same
+ * array.
+ * <p/>
+ * A path is never changed after it is created.  Changing the group of an operand at a
+ * level replaces its path with the interned path that has the new group, so copying an
+ * operand only copies the reference to its path, however deep the nesting is.
+ */
+public class CvtrNestPaths
+{
+	// Groups past this are not interned, so that a table is never too large
+	final private static int maxGroup = 4096;
+
+	// The paths of the first level, by group
+	private int[][] roots = new int[0][];
+	// The paths one level deeper than each path, by group
+	private final IdentityHashMap <int[], int[][]> children = new IdentityHashMap<int[], int[][]>();
+	private int count = 0;
+
+/**
+ * The Convertator Nest Paths constructor creates a tree with no paths.
+ */
+	public CvtrNestPaths() {
+
+	}
+
+/**
+ * Get the path one level deeper than another path.
+ *
+ * @param parent	The path, or null for the first level.
+ * @param group	The group at the new level.
+ *
+ * @return int[]	The interned path.
+ */
+	public int[] extend(int[] parent, int group) {
+		int length = (parent == null) ? 0 : parent.length;
+		int[][] table = (parent == null) ? roots : children.get(parent);
+		int[] path;
+
+		if (group < 0 || group >= maxGroup) {
+			path = (parent == null) ? new int[1] : Arrays.copyOf(parent, length + 1);
+			path[length] = group;
+			return path;
+		}
+		if (table == null || table.length <= group) {
+			table = (table == null) ? new int[group + 4][] : Arrays.copyOf(table, Math.max(group + 1, table.length * 2));
+			if (parent == null)
+				roots = table;
+			else
+				children.put(parent, table);
+		}
+		if ((path = table[group]) == null) {
+			path = (parent == null) ? new int[1] : Arrays.copyOf(parent, length + 1);
+			path[length] = group;
+			table[group] = path;
+			count++;
+		}
+
+		return path;
+	}
+
+/**
+ * Get the path of the first levels of a list of groups.
+ *
+ * @param groups	The group at each level.
+ * @param length	The number of levels, which is the nest level plus 1.
+ *
+ * @return int[]	The interned path, or null if there are no levels.
+ */
+	public int[] path(int[] groups, int length) {
+		int i;
+		int[] path = null;
+
+		for (i=0; i < length; i++)
+			path = extend(path, groups[i]);
+
+		return path;
+	}
+
+/**
+ * Get a path in group 0 at every level.
+ *
+ * @param length	The number of levels, which is the nest level plus 1.
+ *
+ * @return int[]	The interned path.
+ */
+	public int[] zeros(int length) {
+		int i;
+		int[] path = null;
+
+		for (i=0; i < length; i++)
+			path = extend(path, 0);
+
+		return path;
+	}
+
+/**
+ * Get a path with a different group at one level.
+ *
+ * @param path	The path.
+ * @param level	The level, which must be in the path.
+ * @param group	The group at the level.
+ *
+ * @return int[]	The interned path.
+ */
+	public int[] set(int[] path, int level, int group) {
+		int i;
+		int[] newPath;
+
+		if (path[level] == group)
+			return path;
+		newPath = extend(path(path, level), group);
+		for (i=level+1; i < path.length; i++)
+			newPath = extend(newPath, path[i]);
+
+		return newPath;
+	}
+
+/**
+ * Get the number of interned paths.
+ *
+ * @return int	The number of paths.
+ */
+	public int size() {
+		return count;
+	}
+
+/**
+ * Remove all the paths.  The paths of existing operands are not changed, but they
+ * are no longer shared with new paths.
+ */
+	public void clear() {
+		roots = new int[0][];
+		children.clear();
+		count = 0;
+	}
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.math.BigInteger;
+
+/**
+ * The Convertator Number parses the numbers of an equation from its characters, without
+ * copying them to a String.  A decimal number is the same double that Double.parseDouble
+ * returns for the same characters.  Most numbers are exact in a double and are multiplied
+ * or divided by an exact power of 10 (Clinger), and the others with up to 19 digits are
+ * rounded from a 128 bit product with a power of 5 (Eisel-Lemire).  A number with more
+ * digits is parsed by Double.parseDouble.
+ */
+public class CvtrNumber
+{
+	// The most digits of a decimal number that fit in a long
+	final private static int maxDigits = 19;
+	// The powers of 10 that are exact in a double
+	final private static double[] exactPowers = new double[23];
+	// The powers of 5 of the Eisel-Lemire product, as the high and low 64 bits of a
+	// 128 bit number whose high bit is set.  The product is exact for these powers.
+	final private static int minPower = -27, maxPower = 27;
+	final private static long[] fiveHigh = new long[maxPower - minPower + 1];
+	final private static long[] fiveLow = new long[maxPower - minPower + 1];
+
+	static {
+		int i, q;
+		BigInteger five, power;
+
+		exactPowers[0] = 1;
+		for (i=1; i < exactPowers.length; i++)
+			exactPowers[i] = exactPowers[i-1] * 10;
+		for (q=minPower; q <= maxPower; q++) {
+			five = BigInteger.valueOf(5).pow(Math.abs(q));
+			// A negative power is the reciprocal, rounded up
+			if (q < 0)
+				power = BigInteger.ONE.shiftLeft(five.bitLength() + 127).divide(five).add(BigInteger.ONE);
+			else
+				power = five.shiftLeft(128 - five.bitLength());
+			fiveHigh[q - minPower] = power.shiftRight(64).longValue();
+			fiveLow[q - minPower] = power.longValue();
+		}
+	}
+
+/**
+ * Test whether characters are a decimal number, which is an optional '-' and digits
+ * with an optional decimal separator.  This is the same test as Double.parseDouble
+ * without its exception.
+ *
+ * @param text	The characters.
+ * @param start	The first character of the number.
+ * @param end	The character after the number.
+ * @param point	The decimal separator.
+ *
+ * @return boolean	True if the characters are a decimal number.
+ */
+	public static boolean isDecimal(CharSequence text, int start, int end, char point) {
+		int i = start, digits = 0;
+		boolean separator = false;
+		char c;
+
+		if (i < end && text.charAt(i) == '-')
+			i++;
+		for (; i < end; i++) {
+			c = text.charAt(i);
+			if (c >= '0' && c <= '9')
+				digits++;
+			else if (c == point && !separator)
+				separator = true;
+			else
+				return false;
+		}
+
+		return digits > 0;
+	}
+
+/**
+ * Get the value of the digits of an integer base.  The digits must fit in 64 bits,
+ * which are unsigned.
+ *
+ * @param text	The characters.
+ * @param start	The first digit.
+ * @param end	The character after the digits.
+ * @param radix	The base of the digits, which is 2, 8 or 16.
+ *
+ * @return long	The value.
+ */
+	public static long parseRadix(CharSequence text, int start, int end, int radix) {
+		int i;
+		long value = 0;
+
+		for (i=start; i < end; i++)
+			value = value * radix + Character.digit(text.charAt(i), radix);
+
+		return value;
+	}
+
+/**
+ * Get the value of a decimal number, which must be tested by isDecimal.
+ *
+ * @param text	The characters.
+ * @param start	The first character of the number.
+ * @param end	The character after the number.
+ * @param point	The decimal separator.
+ *
+ * @return double	The value.
+ */
+	public static double parseDecimal(CharSequence text, int start, int end, char point) {
+		int i = start, digits = 0, q = 0;
+		long w = 0;
+		boolean negative = false, fraction = false, truncated = false;
+		double d;
+		char c;
+
+		if (text.charAt(i) == '-') {
+			negative = true;
+			i++;
+		}
+		// The significant digits are w, and the number is w * 10^q
+		for (; i < end; i++) {
+			c = text.charAt(i);
+			if (c == point) {
+				fraction = true;
+			} else if (digits < maxDigits) {
+				if (digits > 0 || c != '0') {
+					w = w * 10 + (c - '0');
+					digits++;
+				}
+				if (fraction)
+					q--;
+			} else {
+				if (!fraction)
+					q++;
+				if (c != '0')
+					truncated = true;
+			}
+		}
+		if (w == 0)
+			return negative ? -0.0 : 0.0;
+
+		if (!truncated) {
+			// Nineteen digits may be more than a signed long, so w is unsigned
+			if (Long.compareUnsigned(w, 1L << 53) <= 0 && q >= -22 && q <= 22) {
+				d = (q < 0) ? w / exactPowers[-q] : w * exactPowers[q];
+				return negative ? -d : d;
+			}
+			if (!Double.isNaN(d = eiselLemire(w, q, negative)))
+				return d;
+		}
+
+		return Double.parseDouble(text.subSequence(start, end).toString().replace(point, '.'));
+	} /* end parseDecimal */
+
+/**
+ * Get the double nearest to w * 10^q, which is the rounded product of w and a 128 bit
+ * power of 5 (Eisel-Lemire, as in fast_float).
+ *
+ * @param w	The significant digits, which are not 0.
+ * @param q	The power of 10.
+ * @param negative	The number is negative.
+ *
+ * @return double	The value, or NaN if it cannot be calculated this way.
+ */
+	private static double eiselLemire(long w, int q, boolean negative) {
+		int lz, upper;
+		long high, low, second, mantissa, power2;
+
+		if (q < minPower || q > maxPower)
+			return Double.NaN;
+		lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+		high = unsignedMultiplyHigh(w, fiveHigh[q - minPower]);
+		low = w * fiveHigh[q - minPower];
+		// The low bits of the power are only needed when the rounding bits are all set
+		if ((high & 0x1ff) == 0x1ff) {
+			second = unsignedMultiplyHigh(w, fiveLow[q - minPower]);
+			low += second;
+			if (Long.compareUnsigned(second, low) > 0)
+				high++;
+		}
+		upper = (int) (high >>> 63);
+		mantissa = high >>> (upper + 9);
+		power2 = (((152170 + 65536) * q) >> 16) + 63 + upper - lz + 1023;
+		// Subnormal numbers are left to Double.parseDouble
+		if (power2 <= 0)
+			return Double.NaN;
+		// A number exactly half way between two doubles is rounded to even
+		if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1 &&
+				(mantissa << (upper + 9)) == high)
+			mantissa &= ~1L;
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= (2L << 52)) {
+			mantissa = 1L << 52;
+			power2++;
+		}
+		mantissa &= ~(1L << 52);
+		if (power2 >= 0x7ff)
+			return Double.NaN;
+
+		return Double.longBitsToDouble(mantissa | (power2 << 52) | (negative ? Long.MIN_VALUE : 0));
+	} /* end eiselLemire */
+
+/**
+ * Get the high 64 bits of the unsigned 128 bit product of two longs.
+ *
+ * @param a	The first number.
+ * @param b	The second number.
+ *
+ * @return long	The high bits of the product.
+ */
+	private static long unsignedMultiplyHigh(long a, long b) {
+		return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+	}
+
+}
@@ -21,6 +21,13 @@
  */
 public class CvtrOperand
 {
+/** The operation codes, which are the index of the operation in the list of symbols. */
+	public final static int opNone = 0, opAdd = 1, opSub = 2, opMult = 3, opDiv = 4, opMod = 5, opPower = 6,
+			opAnd = 7, opOr = 8, opXor = 9, opSine = 10, opCosine = 11, opTangent = 12, opLog = 13,
+			opNaturalLog = 14, opSqRoot = 15, opNot = 16;
+	// The symbol of each operation code, where no operation has no symbol
+	private final static String opSymbols = " +-*/%^&|#SOTLl\\!";
+
 /** The value of the operand.  The default is 1 which is the case of a unit without a numeric value. */
 	public double value = 1;
 /** The String value of the operand if dotted decimal, ASCII, or Unicode. */
@@ -37,16 +44,24 @@ public class CvtrOperand
 	public int indexUnit = -1;
 /** The number of time same units are multiplied. */
 	public int unitPower = 1;
-/** The operation to be performed with the previous operand. */
-	public String operation = "";
+/** The code of the operation to be performed with the previous operand, or of the function. */
+	public int opCode = opNone;
 /** The level of parsing parentheses pairs. */
 	public int nestLevel = 0;
-/** The parsing groups to which the operand belongs at each parsing level up to the equation original level. */
+/** The parsing groups to which the operand belongs at each parsing level up to the equation original level.
+ *  The array is an interned path of CvtrNestPaths, which is shared and never changed. */
 	public int[] nestGroup = null;
 /** The operand is place holder for two units multiplied together */ 
 	public boolean groupUnit = false;
 /** The operand is a function (ie. Sine). */
 	public boolean function = false;
+/** The exact 64 bit value of an integer, such as a binary, octal or hexadecimal number or
+ *  the result of a logical operation, which is used while the value is the same number. */
+	public long bits = 0;
+/** The value has exact bits. */
+	public boolean exact = false;
+/** The fixed point of the bits, or null if the bits are an integer. */
+	public CvtrFixed fixed = null;
 /** The level of parsing division. */
 //	public int divLevel = 0;
 
@@ -71,27 +86,304 @@ public class CvtrOperand
  * @return CvtrOperand	The duplicated operand.
  */
 	public CvtrOperand dupOperand() {
-		int i;
-		CvtrOperand oper = new CvtrOperand();
-		
-		oper.value = value;
-		oper.sValue = sValue;
-		oper.base = base;
-		oper.unit = unit;
-		oper.conversionFactor = conversionFactor;
-		oper.indexType = indexType;
-		oper.indexUnit = indexUnit;
-		oper.unitPower = unitPower;
-		oper.operation = operation;
-		oper.function = function;
-		oper.nestLevel = nestLevel;
-		oper.nestGroup = new int[nestLevel + 1];
-		for (i=0; i <= nestLevel; i++)
-			oper.nestGroup[i] = nestGroup[i];
-		oper.groupUnit = groupUnit;
-//		oper.divLevel = divLevel;
-		
-		return oper;
+		return new CvtrOperand().copyFrom(this);
+	}
+
+/**
+ * Copy another operand to this one.  The nest group is shared with the other operand.
+ * 
+ * @param from	The operand to be copied.
+ * 
+ * @return CvtrOperand	This operand.
+ */
+	public CvtrOperand copyFrom(CvtrOperand from) {
+		value = from.value;
+		sValue = from.sValue;
+		base = from.base;
+		unit = from.unit;
+		conversionFactor = from.conversionFactor;
+		indexType = from.indexType;
+		indexUnit = from.indexUnit;
+		unitPower = from.unitPower;
+		opCode = from.opCode;
+		function = from.function;
+		nestLevel = from.nestLevel;
+		nestGroup = from.nestGroup;
+		groupUnit = from.groupUnit;
+		bits = from.bits;
+		exact = from.exact;
+		fixed = from.fixed;
+//		divLevel = from.divLevel;
+
+		return this;
+	}
+
+/**
+ * Set the operand to the initial settings of a new operand, so that it may be reused.
+ */
+	public void reset() {
+		value = 1;
+		sValue = null;
+		base = -1;
+		unit = "";
+		conversionFactor = 0;
+		indexType = -1;
+		indexUnit = -1;
+		unitPower = 1;
+		opCode = opNone;
+		nestLevel = 0;
+		nestGroup = null;
+		groupUnit = false;
+		function = false;
+		bits = 0;
+		exact = false;
+		fixed = null;
+	}
+
+/**
+ * Test whether the value is an exact 64 bit integer.  The bits are only used while the
+ * value is the same number, so a calculation that changes the value without the bits,
+ * such as a unit conversion, ends the exact value.
+ * 
+ * @return boolean	True if the bits are the value.
+ */
+	public boolean isExact() {
+		return exact && fixed == null && (double) bits == value;
+	}
+
+/**
+ * Test whether the value is a fixed point number.  Like an exact integer, the bits are
+ * only used while the value is the same number.
+ * 
+ * @return boolean	True if the bits are the value in the fixed point.
+ */
+	public boolean isFixed() {
+		return exact && fixed != null && fixed.toDouble(bits) == value;
+	}
+
+/**
+ * Get the value as a 64 bit integer.
+ * 
+ * @return long	The exact bits, or the value without its fraction.
+ */
+	public long getLong() {
+		if (isExact())
+			return bits;
+		if (isFixed())
+			return bits / fixed.one;
+
+		return (long) value;
+	}
+
+/**
+ * Get the value in a fixed point.  An exact integer is converted to the fixed point.
+ * 
+ * @param fp	The fixed point.
+ * 
+ * @return long	The value, or CvtrFixed.overflow if it is not a number of the fixed
+ * 				point.
+ */
+	public long getFixed(CvtrFixed fp) {
+		if (fixed == fp && isFixed())
+			return bits;
+		if (isExact())
+			return fp.fromLong(bits);
+
+		return CvtrFixed.overflow;
+	}
+
+/**
+ * Set the value to an exact 64 bit integer.
+ * 
+ * @param l	The integer.
+ */
+	public void setLong(long l) {
+		bits = l;
+		exact = true;
+		fixed = null;
+		value = l;
+	}
+
+/**
+ * Set the value to a fixed point number.
+ * 
+ * @param fp	The fixed point.
+ * @param l	The value in the fixed point.
+ * 
+ * @return boolean	True if the value is set, or false if it is CvtrFixed.overflow.
+ */
+	public boolean setFixed(CvtrFixed fp, long l) {
+		if (l == CvtrFixed.overflow)
+			return false;
+		bits = l;
+		exact = true;
+		fixed = fp;
+		value = fp.toDouble(l);
+
+		return true;
+	}
+
+/**
+ * Get the fixed point of a calculation with another operand, which is the fixed point
+ * of either operand.
+ * 
+ * @param oper	The other operand.
+ * 
+ * @return CvtrFixed	The fixed point, or null if neither operand is fixed point.
+ */
+	private CvtrFixed fixedWith(CvtrOperand oper) {
+		if (isFixed())
+			return fixed;
+		if (oper.isFixed())
+			return oper.fixed;
+
+		return null;
+	}
+
+/**
+ * Negate the value, which is still exact.
+ */
+	public void negate() {
+		bits = -bits;
+		value = -value;
+	}
+
+/**
+ * Test whether the value can be displayed as a 64 bit integer, which is an exact or
+ * fixed point value, or a value that is not rounded to the largest 64 bit integer.
+ * 
+ * @return boolean	True if the value fits in 64 bits.
+ */
+	public boolean fitsLong() {
+		return isExact() || isFixed() || (value >= -0x1p63 && value < 0x1p63);
+	}
+
+/**
+ * Add the value of another operand.  Exact integers are 64 bit two's complement numbers,
+ * like the results of logical operations, so a sum that does not fit wraps around.  Fixed
+ * point numbers are added exactly unless the sum does not fit in 64 bits.
+ * 
+ * @param oper	The other operand.
+ */
+	public void add(CvtrOperand oper) {
+		CvtrFixed fp;
+
+		if (isExact() && oper.isExact()) {
+			setLong(bits + oper.bits);
+			return;
+		} else if ((fp = fixedWith(oper)) != null && setFixed(fp, CvtrFixed.add(getFixed(fp), oper.getFixed(fp)))) {
+			return;
+		}
+		value += oper.value;
+	}
+
+/**
+ * Subtract the value of another operand.  Exact integers wrap around like add, and fixed
+ * point numbers are subtracted exactly unless the difference does not fit in 64 bits.
+ * 
+ * @param oper	The other operand.
+ */
+	public void subtract(CvtrOperand oper) {
+		CvtrFixed fp;
+
+		if (isExact() && oper.isExact()) {
+			setLong(bits - oper.bits);
+			return;
+		} else if ((fp = fixedWith(oper)) != null && setFixed(fp, CvtrFixed.subtract(getFixed(fp), oper.getFixed(fp)))) {
+			return;
+		}
+		value -= oper.value;
+	}
+
+/**
+ * Multiply by the value of another operand.  Exact integers wrap around like add, and
+ * fixed point numbers are rounded in the fixed point unless the product does not fit
+ * in 64 bits.
+ * 
+ * @param oper	The other operand.
+ */
+	public void multiply(CvtrOperand oper) {
+		CvtrFixed fp;
+
+		if (isExact() && oper.isExact()) {
+			setLong(bits * oper.bits);
+			return;
+		} else if ((fp = fixedWith(oper)) != null && setFixed(fp, fp.multiply(getFixed(fp), oper.getFixed(fp)))) {
+			return;
+		}
+		value *= oper.value;
+	}
+
+/**
+ * Divide by the value of another operand.  Fixed point numbers are divided and rounded
+ * in the fixed point unless the quotient does not fit in 64 bits.
+ * 
+ * @param oper	The other operand.
+ * 
+ * @return boolean	False if a fixed point number is divided by 0, which is divided as
+ * 					a double, otherwise true.
+ */
+	public boolean divide(CvtrOperand oper) {
+		CvtrFixed fp;
+
+		if ((fp = fixedWith(oper)) != null) {
+			if (oper.value == 0) {
+				value /= oper.value;
+				return false;
+			}
+			if (setFixed(fp, fp.divide(getFixed(fp), oper.getFixed(fp))))
+				return true;
+		}
+		value /= oper.value;
+
+		return true;
+	}
+
+/**
+ * Get the code of an operation or function symbol.
+ * 
+ * @param symbol	The symbol, or an empty string for no operation.
+ * 
+ * @return int	The operation code, or -1 if the symbol is not an operation.
+ */
+	public static int getOpCode(String symbol) {
+		if (symbol.length() == 0)
+			return opNone;
+		if (symbol.length() > 1 || symbol.charAt(0) == ' ')
+			return -1;
+
+		return opSymbols.indexOf(symbol.charAt(0));
+	}
+
+/**
+ * Get the symbol of an operation code.
+ * 
+ * @param code	The operation code.
+ * 
+ * @return String	The symbol, which is empty for no operation.
+ */
+	public static String getSymbol(int code) {
+		return (code == opNone) ? "" : opSymbols.substring(code, code + 1);
+	}
+
+/**
+ * Get the symbol of the operation.
+ * 
+ * @return String	The symbol, which is empty for no operation.
+ */
+	public String getOperation() {
+		return getSymbol(opCode);
+	}
+
+/**
+ * Test whether another operand has the same unit, by its category and unit index.
+ * 
+ * @param oper	The other operand.
+ * 
+ * @return boolean	True if both operands have the same unit, or neither has a unit.
+ */
+	public boolean sameUnit(CvtrOperand oper) {
+		return indexType == oper.indexType && indexUnit == oper.indexUnit;
 	}
 
 /**
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The Convertator Polynomial collects the terms of a group that is being expanded,
+ * such as the product of two groups of added terms.  Each term is an operand and the
+ * group units that follow it, and terms with the same units are added as they are
+ * collected, by finding the first term with the same dimension in a hash table.
+ * The terms are kept in the order of their first occurrence.
+ * <p/>
+ * The operation of each term is "+" or "-", and the value of a term is negated by a
+ * "-" operation.
+ */
+public class CvtrPolynomial
+{
+	// The terms in order of their first occurrence
+	private final ArrayList <List<CvtrOperand>> terms = new ArrayList<List<CvtrOperand>>();
+	// The first term with each dimension
+	private final HashMap <CvtrDimension, List<CvtrOperand>> like = new HashMap<CvtrDimension, List<CvtrOperand>>();
+
+/**
+ * The Convertator Polynomial constructor creates a polynomial with no terms.
+ */
+	public CvtrPolynomial() {
+
+	}
+
+/**
+ * Add a term.  If a term with the same units was added, the value is added to
+ * that term, otherwise the term is added after the other terms.
+ *
+ * @param term	The operand and its group units.
+ */
+	public void add(List<CvtrOperand> term) {
+		double value;
+		CvtrOperand first;
+		CvtrDimension dim = CvtrDimension.of(term, 0);
+		List <CvtrOperand> same;
+
+		// Terms whose units cannot be compared are not combined
+		if (dim == null || (same = like.get(dim)) == null) {
+			terms.add(term);
+			if (dim != null)
+				like.put(dim, term);
+			return;
+		}
+		first = same.get(0);
+		value = term.get(0).opCode == CvtrOperand.opSub ? -term.get(0).value : term.get(0).value;
+		if (first.opCode == CvtrOperand.opSub)
+			first.value -= value;
+		else
+			first.value += value;
+	}
+
+/**
+ * Get the number of different terms.
+ *
+ * @return int	The number of terms.
+ */
+	public int size() {
+		return terms.size();
+	}
+
+/**
+ * Add the operands of every term to a stack.
+ *
+ * @param stack	The stack.
+ */
+	public void addTo(List<CvtrOperand> stack) {
+		for (List<CvtrOperand> term : terms)
+			stack.addAll(term);
+	}
+
+}
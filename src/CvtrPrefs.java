@@ -65,6 +65,9 @@ public class CvtrPrefs
 	public String defaultSite = "English";
 	private JComboBox cbDefaultSite = null;
 
+/** The decimal separator of equations and results, which is US for a period or EU for a comma. */
+	public String defaultSeparator = "US";
+
 	private JButton bOK = null;
 	private JButton bReset = null;
 	private JButton bCancel = null;
@@ -133,12 +136,24 @@ public class CvtrPrefs
 				soundDir = prefItem.substring(i + 1);
 			} else if (prefItem.substring(0, i).equals("DefaultSite")) {
 				defaultSite = prefItem.substring(i + 1);
+			} else if (prefItem.substring(0, i).equals("DefaultSeparator")) {
+				defaultSeparator = prefItem.substring(i + 1);
 			}
 		}
+		parentWindow.cvtrEngine.setDecimalSeparator(getDecimalSeparator());
 
 		return true;
 	}
 
+/**
+ * Get the decimal separator of the DefaultSeparator preference.
+ * 
+ * @return char	A comma if the preference is EU or a comma, otherwise a period.
+ */
+	public char getDecimalSeparator() {
+		return (defaultSeparator.equals("EU") || defaultSeparator.equals(",")) ? ',' : '.';
+	}
+
 /**
  * Open an interactive window for the user to set preferences.
  */
@@ -163,6 +178,7 @@ public class CvtrPrefs
 		newPrefs += "SecondLang:" + secondLang + "\n";
 		newPrefs += "SoundDirectory:" + soundDir + "\n";
 		newPrefs += "DefaultSite:" + defaultSite + "\n";
+		newPrefs += "DefaultSeparator:" + defaultSeparator + "\n";
 
 		if (!parentWindow.cvtrFile.saveTextFile(newPrefs, "preferences"))
 			cvtrMessages.errorDialog("ERROR", parentWindow.cvtrFile.errorMessage);
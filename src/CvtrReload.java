@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The Convertator Reload class watches the Convertator data directories, and when
+ * data files (*.cvd) are created, changed or deleted, creates a new catalog, makes it
+ * the catalog shared by new engines, and gives it to each listener.  Only the files
+ * that changed are read.  The directories are:
+ * <ul>
+ *   <li>~/Convertator/data/(Units | Constants | Equations)</li>
+ *   <li>./data</li>
+ * </ul>
+ * If a changed file cannot be read, for example because it is still being written,
+ * the current catalog is kept and the file is read again on its next change.
+ */
+public class CvtrReload implements Runnable
+{
+	static final boolean verbose = false;
+	// The time to wait for more changes before creating the new catalog
+	final private static long settleTime = 200;
+
+	public String errorMessage = null;
+
+	private CvtrFile cvtrFile = null;
+	private volatile CvtrCatalog catalog = null;
+	private WatchService watcher = null;
+	private Thread watchThread = null;
+	// Changes which have not been loaded because a file could not be read
+	private HashSet <String> pending = new HashSet<String>();
+	private boolean pendingAll = false;
+	private CopyOnWriteArrayList <Consumer<CvtrCatalog>> listeners = new CopyOnWriteArrayList<Consumer<CvtrCatalog>>();
+
+/**
+ * The Convertator Reload constructor registers the data directories.
+ *
+ * @param cc	The current catalog.
+ *
+ * @throws IllegalArgumentException	If the directories cannot be watched.
+ */
+	public CvtrReload(CvtrCatalog cc) throws IllegalArgumentException {
+		String[] fTypes = {"Units", "Constants", "Equations"};
+		IllegalArgumentException exception;
+
+		catalog = cc;
+		try {
+			// The file handler is not shared, because it saves the state of the file being read
+			cvtrFile = new CvtrFile();
+			watcher = FileSystems.getDefault().newWatchService();
+			for (String fType : fTypes)
+				register(Paths.get(cvtrFile.homeDir + "data" + File.separator + fType));
+			register(Paths.get(System.getProperty("user.dir") + File.separator + "data"));
+		} catch (Exception err) {
+			exception = new IllegalArgumentException("Error watching Convertator data directories:\n  " + err.getMessage());
+			throw exception;
+		}
+	}
+
+/**
+ * Watch a directory for changes, if it exists.
+ *
+ * @param dir	The directory.
+ *
+ * @throws IOException	If the directory cannot be watched.
+ */
+	private void register(Path dir) throws IOException {
+		if (dir.toFile().isDirectory())
+			dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+				StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+/**
+ * Add a listener which is called with each new catalog.  Listeners are called on the
+ * reload thread.
+ *
+ * @param listener	The listener.
+ */
+	public void addListener(Consumer<CvtrCatalog> listener) {
+		listeners.add(listener);
+	}
+
+/**
+ * Give each new catalog to an engine.
+ *
+ * @param ce	The engine.
+ */
+	public void addEngine(CvtrEngine ce) {
+		addListener(ce::setCatalog);
+	}
+
+/**
+ * Get the current catalog.
+ *
+ * @return CvtrCatalog	The catalog.
+ */
+	public CvtrCatalog getCatalog() {
+		return catalog;
+	}
+
+/**
+ * Start watching the directories on a background thread.
+ */
+	public void start() {
+		watchThread = new Thread(this, "CvtrReload");
+		watchThread.setDaemon(true);
+		watchThread.start();
+	}
+
+/**
+ * Stop watching the directories.
+ */
+	public void stop() {
+		try {
+			watcher.close();
+		} catch (IOException err) {
+			;	// Ignore errors
+		}
+		if (watchThread != null)
+			watchThread.interrupt();
+	}
+
+/**
+ * Wait for changes to data files, and reload the catalog after each group of changes.
+ */
+	public void run() {
+		HashSet <String> changed = new HashSet<String>();
+		boolean overflow = false;
+		WatchKey key;
+
+		try {
+			while (true) {
+				// Collect changes until the directories are quiet
+				key = (changed.isEmpty() && !overflow) ? watcher.take() : watcher.poll(settleTime, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							overflow = true;
+						} else if (cvtrFile.isDataFile(event.context().toString())) {
+							changed.add(((Path) key.watchable()).resolve((Path) event.context()).toString());
+						}
+					}
+					key.reset();
+					continue;
+				}
+				// If changes were lost, every file is read
+				reload(overflow ? null : changed);
+				changed.clear();
+				overflow = false;
+			}
+		} catch (InterruptedException err) {
+			;	// Stopped
+		} catch (ClosedWatchServiceException err) {
+			;	// Stopped
+		}
+	}
+
+/**
+ * Create a new catalog from the changed files, and give it to each listener.  If a
+ * file cannot be read, the changes are kept and included in the next reload.
+ *
+ * @param changed	The full path of each file that was created, changed or deleted,
+ * 					or null to read every file.
+ *
+ * @return boolean	True if successful.
+ * 					Otherwise, the reason is saved in errorMessage and false is returned.
+ */
+	public synchronized boolean reload(Collection<String> changed) {
+		CvtrCatalog cc;
+
+if (verbose)
+System.out.println("Reload: " + changed);
+		if (changed == null)
+			pendingAll = true;
+		else
+			pending.addAll(changed);
+		try {
+			cc = catalog.reload(cvtrFile, pendingAll ? null : new ArrayList<String>(pending));
+		} catch (IllegalArgumentException err) {
+			errorMessage = err.getMessage();
+			return false;
+		}
+		pending.clear();
+		pendingAll = false;
+		errorMessage = null;
+		catalog = cc;
+		// Engines created later start with the new catalog
+		CvtrEngine.setSharedCatalog(cc);
+		for (Consumer<CvtrCatalog> listener : listeners)
+			listener.accept(cc);
+
+		return true;
+	}
+
+}
@@ -0,0 +1,723 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The Convertator Server class is an embedded HTTP server that provides the Convertator
+ * engine to other programs on the same computer.  The server only listens on the
+ * loopback address.  Requests and responses are JSON, and the body of a POST request
+ * may be a single object or an array of objects, which returns an array of results.
+ * <ul>
+ *   <li>POST /evaluate {"equation": "1 mi + 1 km", "precision": 5, "scientific": false}</li>
+ *   <li>POST /table {"equation": "1 mi + 1 km", "precision": 5}  The result in every
+ *       unit of its categories and in each numeric base</li>
+ *   <li>POST /convert {"value": 2.5, "from": "mi", "to": "km"}, or "values": [...]</li>
+ *   <li>POST /equation {"category": "Loans", "name": "Loan Payments",
+ *       "bindings": {"Loan": 10000, "Int": 6, "Yrs": 5}}, or "equation": template</li>
+ *   <li>GET /units  The unit categories and units</li>
+ *   <li>GET /stats  The result cache hits, misses and size</li>
+ * </ul>
+ * Results are saved in a cache shared by all of the engines.  Each calculation has a
+ * budget of operands, expanded terms and time, and an equation that exceeds it returns
+ * an error such as "?? Limit time", which is not saved in the cache.
+ * Each request runs on its own thread (a virtual thread when the Java runtime provides
+ * them), and borrows an engine from a fixed pool for the calculation.  Connections are
+ * kept alive, and requests sent on a connection before the previous response arrives
+ * are answered in order.
+ */
+public class CvtrServer
+{
+	static final boolean verbose = false;
+	final private static int defaultPort = 8077;
+	final private static int defaultCacheSize = 10000;
+	final private static long cacheTime = 10 * 60 * 1000;
+	// The limits of each calculation, so that one equation cannot hold an engine
+	final private static int maxTokens = 10000, maxOperands = 1000000, maxTerms = 100000;
+	final private static long defaultTimeout = 2000;
+
+	public String errorMessage = null;
+
+	private HttpServer httpServer = null;
+	private ExecutorService executor = null;
+	private ArrayBlockingQueue <CvtrEngine> engines;
+	// The current catalog, for the catalog lists and conversions, which do not need an engine
+	private volatile CvtrCatalog catalog = null;
+	private CvtrReload cvtrReload = null;
+	private CvtrCache resultCache = null;
+	private String defaultPrecision = "5";
+
+/**
+ * The Convertator Server constructor creates the pool of engines and the result cache.
+ *
+ * @param engineCount	The number of requests that can be calculated at the same time.
+ * @param cacheSize	The number of results saved in the cache, or 0 for no cache.
+ *
+ * @throws IllegalArgumentException	If an engine cannot be created.
+ */
+	public CvtrServer(int engineCount, int cacheSize) throws IllegalArgumentException {
+		int i;
+		CvtrCatalog cc;
+		CvtrEngine ce;
+		CvtrBudget budget = new CvtrBudget(maxTokens, maxOperands, maxTerms, defaultTimeout);
+		IllegalArgumentException exception;
+
+		if (engineCount < 1)
+			engineCount = 1;
+		engines = new ArrayBlockingQueue<CvtrEngine>(engineCount);
+		// All of the engines share one catalog
+		try {
+			cc = CvtrEngine.getSharedCatalog();
+		} catch (IllegalArgumentException err) {
+			exception = new IllegalArgumentException("Failed to create Convertator calulating engine:\n  " + err.getMessage());
+			throw exception;
+		}
+		if (cacheSize > 0)
+			resultCache = new CvtrCache(cacheSize, cacheTime);
+		for (i=0; i < engineCount; i++) {
+			ce = new CvtrEngine(cc);
+			ce.setCache(resultCache);
+			ce.setBudget(budget);
+			engines.add(ce);
+		}
+		catalog = cc;
+	}
+
+/**
+ * Set the precision used when a request does not specify one.
+ *
+ * @param precision	The number of digits after the decimal point.
+ */
+	public void setDefaultPrecision(String precision) {
+		defaultPrecision = precision;
+	}
+
+/**
+ * Set the time limit of each calculation, which must be set before the server is started.
+ *
+ * @param millis	The time in milliseconds, or 0 for no limit.
+ */
+	public void setTimeout(long millis) {
+		CvtrBudget budget = new CvtrBudget(maxTokens, maxOperands, maxTerms, millis);
+
+		for (CvtrEngine ce : engines)
+			ce.setBudget(budget);
+	}
+
+/**
+ * Start the server.
+ *
+ * @param port	The loopback port to listen on.  If 0, a free port is chosen.
+ *
+ * @return int	The port, or -1 if the server could not be started, in which case
+ * 				the reason is saved in errorMessage.
+ */
+	public int start(int port) {
+		// Small responses are sent immediately instead of waiting for an acknowledgement
+		if (System.getProperty("sun.net.httpserver.nodelay") == null)
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		try {
+			httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException err) {
+			errorMessage = "Error starting server on port " + port + ":\n  " + err.getMessage();
+			return -1;
+		}
+		// Changed data files are loaded without a restart
+		try {
+			cvtrReload = new CvtrReload(catalog);
+			for (CvtrEngine ce : engines)
+				cvtrReload.addEngine(ce);
+			cvtrReload.addListener(cc -> catalog = cc);
+			cvtrReload.start();
+		} catch (IllegalArgumentException err) {
+			System.err.println(err.getMessage());
+		}
+		httpServer.createContext("/", exchange -> handle(exchange));
+		executor = requestExecutor();
+		httpServer.setExecutor(executor);
+		httpServer.start();
+if (verbose)
+System.out.println("Server started on port " + httpServer.getAddress().getPort());
+
+		return httpServer.getAddress().getPort();
+	}
+
+/**
+ * Stop the server, waiting up to one second for requests in progress.
+ */
+	public void stop() {
+		if (httpServer != null)
+			httpServer.stop(1);
+		if (executor != null)
+			executor.shutdown();
+		if (cvtrReload != null)
+			cvtrReload.stop();
+		cvtrReload = null;
+		httpServer = null;
+		executor = null;
+	}
+
+/**
+ * Get the executor for requests, which creates a virtual thread per request if the
+ * Java runtime supports them, and otherwise uses a pool of platform threads.
+ *
+ * @return ExecutorService	The executor.
+ */
+	private static ExecutorService requestExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception err) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+/**
+ * Run the server from the command line arguments, which are:
+ * <p/>
+ * <i>-serve [port] [-engines n] [-cache n] [-precision n] [-timeout ms] [-bench requests]</i>
+ * <p/>
+ * With -bench, the server runs the requests against itself over the loopback address,
+ * prints the rate and exits.
+ *
+ * @param args	The command line arguments.
+ *
+ * @return int	The exit status, which is 0 if successful.
+ */
+	public static int runServer(String[] args) {
+		int idx, port = defaultPort, engineCount = Runtime.getRuntime().availableProcessors(), bench = 0;
+		int cacheSize = defaultCacheSize;
+		long timeout = defaultTimeout;
+		String precision = null;
+		CvtrServer cs;
+
+		try {
+			for (idx=1; idx < args.length; idx++) {
+				if (args[idx].equals("-engines") && (idx + 1) < args.length)
+					engineCount = Integer.parseInt(args[++idx]);
+				else if (args[idx].equals("-cache") && (idx + 1) < args.length)
+					cacheSize = Integer.parseInt(args[++idx]);
+				else if (args[idx].equals("-precision") && (idx + 1) < args.length)
+					precision = args[++idx];
+				else if (args[idx].equals("-timeout") && (idx + 1) < args.length)
+					timeout = Long.parseLong(args[++idx]);
+				else if (args[idx].equals("-bench") && (idx + 1) < args.length)
+					bench = Integer.parseInt(args[++idx]);
+				else
+					port = Integer.parseInt(args[idx]);
+			}
+		} catch (NumberFormatException err) {
+			System.err.println("Usage: -serve [port] [-engines n] [-cache n] [-precision n] [-timeout ms] [-bench requests]");
+			return 1;
+		}
+
+		try {
+			cs = new CvtrServer(engineCount, cacheSize);
+		} catch (IllegalArgumentException err) {
+			System.err.println(err.getMessage());
+			return 1;
+		}
+		if (precision != null)
+			cs.setDefaultPrecision(precision);
+		if (timeout != defaultTimeout)
+			cs.setTimeout(timeout);
+		if ((port = cs.start(bench > 0 ? 0 : port)) < 0) {
+			System.err.println(cs.errorMessage);
+			return 1;
+		}
+		if (bench > 0) {
+			System.out.println(benchmark(port, bench, engineCount));
+			cs.stop();
+		} else {
+			System.out.println("Convertator server listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port);
+		}
+
+		return 0;
+	} /* end runServer */
+
+/**
+ * Handle an HTTP request.
+ *
+ * @param exchange	The request and response.
+ */
+	private void handle(HttpExchange exchange) {
+		int status = 200;
+		String path = exchange.getRequestURI().getPath(), body;
+		Object request, result;
+		Map <String, Object> error = new LinkedHashMap<String, Object>();
+
+		try {
+			body = readBody(exchange.getRequestBody());
+			if (path.equals("/units")) {
+				result = units();
+			} else if (path.equals("/stats")) {
+				result = stats();
+			} else if (!path.equals("/evaluate") && !path.equals("/table") && !path.equals("/convert") && !path.equals("/equation")) {
+				status = 404;
+				error.put("error", "Unknown request " + path);
+				result = error;
+			} else if (!exchange.getRequestMethod().equals("POST")) {
+				status = 405;
+				error.put("error", "Use POST for " + path);
+				result = error;
+			} else {
+				try {
+					request = CvtrJson.parse(body);
+					// An array of requests returns an array of results
+					if (request instanceof List) {
+						ArrayList <Object> results = new ArrayList<Object>();
+						for (Object item : (List<?>) request)
+							results.add(dispatch(path, item));
+						result = results;
+					} else {
+						result = dispatch(path, request);
+					}
+				} catch (IllegalArgumentException err) {
+					status = 400;
+					error.put("error", err.getMessage());
+					result = error;
+				}
+			}
+			sendResult(exchange, status, result);
+		} catch (IOException err) {
+if (verbose)
+System.out.println("Server request error: " + err.getMessage());
+		// Any other failure is still answered, unless the response was already started
+		} catch (RuntimeException | Error err) {
+if (verbose)
+System.out.println("Server request failure: " + err);
+			if (exchange.getResponseCode() < 0) {
+				error.clear();
+				error.put("error", "Internal error: " + err);
+				try {
+					sendResult(exchange, 500, error);
+				} catch (IOException | RuntimeException sendErr) {
+if (verbose)
+System.out.println("Server response error: " + sendErr.getMessage());
+				}
+			}
+		} finally {
+			exchange.close();
+		}
+	} /* end handle */
+
+/**
+ * Send the result of a request as JSON.
+ *
+ * @param exchange	The request and response.
+ * @param status	The HTTP status.
+ * @param result	The result.
+ *
+ * @throws IOException	If the response cannot be sent.
+ */
+	private void sendResult(HttpExchange exchange, int status, Object result) throws IOException {
+		byte[] response;
+
+		response = CvtrJson.format(result).getBytes(StandardCharsets.UTF_8);
+		// The content length is always sent, so the connection can be kept alive
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, response.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(response);
+		}
+	}
+
+/**
+ * Read the body of a request.
+ *
+ * @param is	The request body.
+ *
+ * @return String	The body.
+ *
+ * @throws IOException	If the body cannot be read.
+ */
+	private String readBody(InputStream is) throws IOException {
+		return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+/**
+ * Process one request object.
+ *
+ * @param path	The request path.
+ * @param request	The request object.
+ *
+ * @return Object	The result object.
+ */
+	private Object dispatch(String path, Object request) {
+		Map <String, Object> result = new LinkedHashMap<String, Object>();
+
+		if (!(request instanceof Map)) {
+			result.put("error", "Request must be an object");
+			return result;
+		}
+		if (path.equals("/evaluate"))
+			return evaluate((Map<?, ?>) request, result);
+		else if (path.equals("/table"))
+			return table((Map<?, ?>) request, result);
+		else if (path.equals("/convert"))
+			return convert((Map<?, ?>) request, result);
+
+		return equation((Map<?, ?>) request, result);
+	}
+
+/**
+ * Evaluate an equation.
+ *
+ * @param request	The request, with equation, and optional precision and scientific.
+ * @param result	The result object, which is filled in.
+ *
+ * @return Map	The result object, with equation and either result or error.
+ */
+	private Map<String, Object> evaluate(Map<?, ?> request, Map<String, Object> result) {
+		if (!(request.get("equation") instanceof String)) {
+			result.put("error", "No equation");
+			return result;
+		}
+		return evaluate((String) request.get("equation"), request, result);
+	}
+
+/**
+ * Evaluate an equation with an engine from the pool.
+ *
+ * @param equation	The equation.
+ * @param request	The request, with optional precision and scientific.
+ * @param result	The result object, which is filled in.
+ *
+ * @return Map	The result object, with equation and either result or error.  The location
+ * 				of the error is included when it is known, which is not for cached errors.
+ */
+	private Map<String, Object> evaluate(String equation, Map<?, ?> request, Map<String, Object> result) {
+		Object precision = request.get("precision");
+		String answer;
+		CvtrEngine ce;
+
+		result.put("equation", equation);
+		try {
+			ce = engines.take();
+		} catch (InterruptedException err) {
+			result.put("error", "Interrupted");
+			return result;
+		}
+		try {
+			ce.setPrecision(precision instanceof Number ? "" + ((Number) precision).intValue() : defaultPrecision);
+			ce.scientificNotation = Boolean.TRUE.equals(request.get("scientific"));
+			if ((answer = ce.evaluate(equation, null)) == null) {
+				result.put("error", ce.getCalcError());
+				if (ce.getErrorOffset() >= 0)
+					result.put("offset", ce.getErrorOffset());
+			} else {
+				result.put("result", answer);
+			}
+		} finally {
+			engines.add(ce);
+		}
+
+		return result;
+	}
+
+/**
+ * Calculate an equation and display the result in every unit of its categories and
+ * in each numeric base.  The table is not saved in the cache.
+ *
+ * @param request	The request, with equation, and optional precision and scientific.
+ * @param result	The result object, which is filled in.
+ *
+ * @return Map	The result object, with equation, result and table, or error and the
+ * 				location of the error in the equation when it is known.
+ */
+	private Map<String, Object> table(Map<?, ?> request, Map<String, Object> result) {
+		Object precision = request.get("precision");
+		Map <String, Object> row;
+		ArrayList <Object> rows = new ArrayList<Object>();
+		CvtrEngine ce;
+
+		if (!(request.get("equation") instanceof String)) {
+			result.put("error", "No equation");
+			return result;
+		}
+		result.put("equation", request.get("equation"));
+		try {
+			ce = engines.take();
+		} catch (InterruptedException err) {
+			result.put("error", "Interrupted");
+			return result;
+		}
+		try {
+			ce.setPrecision(precision instanceof Number ? "" + ((Number) precision).intValue() : defaultPrecision);
+			ce.scientificNotation = Boolean.TRUE.equals(request.get("scientific"));
+			if (ce.calculate((String) request.get("equation"), 0) < 0) {
+				result.put("error", ce.getCalcError());
+				if (ce.getErrorOffset() >= 0)
+					result.put("offset", ce.getErrorOffset());
+				return result;
+			}
+			result.put("result", ce.getResult(null));
+			for (String[] line : ce.getResultTable()) {
+				row = new LinkedHashMap<String, Object>();
+				row.put("format", line[0]);
+				row.put("result", line[1]);
+				rows.add(row);
+			}
+			result.put("table", rows);
+		} finally {
+			engines.add(ce);
+		}
+
+		return result;
+	}
+
+/**
+ * Convert values from one set of units to another.
+ *
+ * @param request	The request, with from, to, and value or values.
+ * @param result	The result object, which is filled in.
+ *
+ * @return Map	The result object, with value or values, or error.
+ */
+	private Map<String, Object> convert(Map<?, ?> request, Map<String, Object> result) {
+		int i;
+		Object value = request.get("value"), values = request.get("values");
+		ArrayList <Object> converted;
+		CvtrConvert cc;
+
+		if (!(request.get("from") instanceof String) || !(request.get("to") instanceof String)) {
+			result.put("error", "No from or to units");
+			return result;
+		}
+		try {
+			cc = new CvtrConvert(catalog, (String) request.get("from"), (String) request.get("to"));
+		} catch (IllegalArgumentException err) {
+			result.put("error", err.getMessage());
+			return result;
+		}
+		if (value instanceof Number) {
+			result.put("value", cc.convert(((Number) value).doubleValue()));
+		} else if (values instanceof List) {
+			converted = new ArrayList<Object>();
+			for (i=0; i < ((List<?>) values).size(); i++) {
+				value = ((List<?>) values).get(i);
+				converted.add(value instanceof Number ? cc.convert(((Number) value).doubleValue()) : null);
+			}
+			result.put("values", converted);
+		} else {
+			result.put("error", "No value");
+		}
+
+		return result;
+	}
+
+/**
+ * Evaluate a catalog equation after replacing its placeholders with the bindings.
+ *
+ * @param request	The request, with category and name, or equation, and bindings.
+ * @param result	The result object, which is filled in.
+ *
+ * @return Map	The result object, with equation and either result or error.
+ */
+	private Map<String, Object> equation(Map<?, ?> request, Map<String, Object> result) {
+		int i, j;
+		Object bindings = request.get("bindings"), category = request.get("category"), name = request.get("name");
+		String template = null;
+		CvtrCatalog cc = catalog;
+
+		if (request.get("equation") instanceof String) {
+			template = (String) request.get("equation");
+		} else {
+			for (i=0; i < cc.EquationCategories.size() && template == null; i++) {
+				if (category != null && !cc.EquationCategories.get(i).equals(category))
+					continue;
+				for (j=0; j < cc.EquationNames.get(i).length; j++) {
+					if (cc.EquationNames.get(i)[j].equals(name)) {
+						template = cc.EquationValues.get(i)[j];
+						break;
+					}
+				}
+			}
+		}
+		if (template == null) {
+			result.put("error", "Equation " + name + " not found");
+			return result;
+		}
+		if (bindings instanceof Map)
+			template = bindEquation(template, (Map<?, ?>) bindings);
+
+		return evaluate(template, request, result);
+	}
+
+/**
+ * Replace the placeholder words in an equation template with values.  Only whole
+ * words are replaced, so a placeholder does not change a unit that contains it.
+ *
+ * @param template	The equation template.
+ * @param bindings	The value of each placeholder.
+ *
+ * @return String	The equation.
+ */
+	public static String bindEquation(String template, Map<?, ?> bindings) {
+		int idx = 0, end;
+		String word;
+		Object value;
+		StringBuilder sb = new StringBuilder();
+
+		while (idx < template.length()) {
+			if (!Character.isLetterOrDigit(template.charAt(idx)) && template.charAt(idx) != '_') {
+				sb.append(template.charAt(idx++));
+				continue;
+			}
+			for (end=idx; end < template.length(); end++) {
+				if (!Character.isLetterOrDigit(template.charAt(end)) && template.charAt(end) != '_')
+					break;
+			}
+			word = template.substring(idx, end);
+			if (bindings.containsKey(word)) {
+				value = bindings.get(word);
+				// Numbers are written without an exponent, which the engine does not parse
+				if (value instanceof Number)
+					sb.append(new BigDecimal(((Number) value).doubleValue()).round(MathContext.DECIMAL64).stripTrailingZeros().toPlainString());
+				else
+					sb.append(value);
+			} else {
+				sb.append(word);
+			}
+			idx = end;
+		}
+
+		return sb.toString();
+	} /* end bindEquation */
+
+/**
+ * Get the unit categories and units.
+ *
+ * @return Map	The list of categories, each with its name and units.
+ */
+	private Map<String, Object> units() {
+		int i, j;
+		String[] names;
+		Map <String, Object> result = new LinkedHashMap<String, Object>(), category, unit;
+		ArrayList <Object> categories = new ArrayList<Object>(), units;
+		CvtrCatalog cc = catalog;
+
+		for (i=0; i < cc.UnitCategories.size(); i++) {
+			category = new LinkedHashMap<String, Object>();
+			category.put("category", cc.UnitCategories.get(i));
+			units = new ArrayList<Object>();
+			names = cc.UnitNames.get(i);
+			for (j=0; j < names.length; j++) {
+				unit = new LinkedHashMap<String, Object>();
+				unit.put("name", names[j]);
+				unit.put("abbrev", CvtrEngine.getUnitAbbrev(names[j]));
+				units.add(unit);
+			}
+			category.put("units", units);
+			categories.add(category);
+		}
+		result.put("categories", categories);
+
+		return result;
+	}
+
+/**
+ * Get the result cache statistics.
+ *
+ * @return Map	The hits, misses and size of the cache.
+ */
+	private Map<String, Object> stats() {
+		Map <String, Object> result = new LinkedHashMap<String, Object>();
+
+		if (resultCache != null) {
+			result.put("hits", resultCache.getHits());
+			result.put("misses", resultCache.getMisses());
+			result.put("size", resultCache.size());
+		}
+
+		return result;
+	}
+
+/**
+ * Send evaluate requests to a server over the loopback address from several threads,
+ * each reusing its connection.
+ *
+ * @param port	The port of the server.
+ * @param requests	The total number of requests.
+ * @param clients	The number of client threads.
+ *
+ * @return String	The number of requests, errors, time and rate.
+ */
+	public static String benchmark(final int port, final int requests, int clients) {
+		int i;
+		long start, elapsed;
+		final AtomicInteger remaining = new AtomicInteger(requests), errors = new AtomicInteger(0);
+		final byte[] body = "{\"equation\": \"(2.5 mi + 3 km) / 15 min\"}".getBytes(StandardCharsets.UTF_8);
+		ExecutorService pool = Executors.newFixedThreadPool(clients);
+
+		start = System.nanoTime();
+		for (i=0; i < clients; i++) {
+			pool.execute(() -> {
+				HttpURLConnection conn;
+				while (remaining.getAndDecrement() > 0) {
+					try {
+						conn = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/evaluate").openConnection();
+						conn.setRequestMethod("POST");
+						conn.setDoOutput(true);
+						try (OutputStream os = conn.getOutputStream()) {
+							os.write(body);
+						}
+						try (InputStream is = conn.getInputStream()) {
+							is.readAllBytes();
+						}
+						if (conn.getResponseCode() != 200)
+							errors.incrementAndGet();
+					} catch (IOException err) {
+						errors.incrementAndGet();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(1, TimeUnit.HOURS);
+		} catch (InterruptedException err) {
+			;	// Report the requests completed so far
+		}
+		elapsed = System.nanoTime() - start;
+
+		return requests + " requests, " + errors.get() + " errors, " + (elapsed / 1000000) + " ms, " +
+			(long) (requests * 1e9 / Math.max(1, elapsed)) + " requests/sec";
+	} /* end benchmark */
+
+}
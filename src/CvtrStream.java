@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2009 Jim Sansing
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA 02111-1307, USA.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * The Convertator Stream is the characters of an equation read from a stream as they
+ * are parsed, so that an equation that is too large to be a String is never in memory
+ * all at once.  The characters are read a window ahead of the last character used, and
+ * the characters before the token being parsed are released and dropped.
+ * <p/>
+ * Until the end of the stream is read, the length is the number of characters read so
+ * far, which is always past the window after the last character used.  The parser only
+ * compares locations near the last character it used with the length, so it sees the
+ * same length that the whole equation would have.
+ */
+public class CvtrStream implements CharSequence
+{
+	// The characters read past the last character used
+	final private static int lookahead = 4096;
+
+	private Reader reader;
+	private char[] buffer = new char[lookahead * 4];
+	// The location in the equation of the first character of the buffer
+	private int offset = 0;
+	private int count = 0;
+	// The characters before this location are no longer used
+	private int released = 0;
+	// The location after the last character used
+	private int last = 0;
+	private boolean end = false;
+	private IOException error = null;
+
+/**
+ * The Convertator Stream constructor.
+ *
+ * @param input	The stream of the equation, which is not closed.
+ */
+	public CvtrStream(Reader input) {
+		reader = input;
+	}
+
+/**
+ * Get a character of the equation.
+ *
+ * @param index	The location of the character, which must not be released.
+ *
+ * @return char	The character.
+ */
+	public char charAt(int index) {
+		if (index >= offset + count)
+			fill(index + 1);
+		if (index < offset || index >= offset + count)
+			throw new IndexOutOfBoundsException("index " + index + ", characters " + offset + " to " + (offset + count));
+		if (index >= last)
+			last = index + 1;
+
+		return buffer[index - offset];
+	}
+
+/**
+ * Get the length of the equation, which is the characters read so far until the end
+ * of the stream is read.
+ *
+ * @return int	The length.
+ */
+	public int length() {
+		fill((int) Math.min(Integer.MAX_VALUE, (long) last + lookahead));
+
+		return offset + count;
+	}
+
+/**
+ * Get some characters of the equation.
+ *
+ * @param start	The location of the first character, which must not be released.
+ * @param stop	The location after the last character.
+ *
+ * @return CharSequence	The characters.
+ */
+	public CharSequence subSequence(int start, int stop) {
+		if (stop > offset + count)
+			fill(stop);
+		if (start < offset || stop > offset + count || start > stop)
+			throw new IndexOutOfBoundsException("characters " + start + " to " + stop + " of " + offset + " to " + (offset + count));
+		if (stop > last)
+			last = stop;
+
+		return new String(buffer, start - offset, stop - start);
+	}
+
+/**
+ * Release the characters before a location, which are not used again.
+ *
+ * @param index	The location of the first character still used.
+ */
+	public void release(int index) {
+		if (index > released)
+			released = index;
+	}
+
+/**
+ * Get the error reading the stream, which ends the equation where it happened.
+ *
+ * @return IOException	The error, or null if there was none.
+ */
+	public IOException getError() {
+		return error;
+	}
+
+/**
+ * Get the characters that are still held.  The released characters are not included.
+ *
+ * @return String	The characters.
+ */
+	public String toString() {
+		return new String(buffer, 0, count);
+	}
+
+/**
+ * Read the stream until a location is in the buffer or the stream ends.  When the
+ * buffer is full, the released characters are dropped, and it only grows when they
+ * are not enough.
+ *
+ * @param length	The location after the last character needed.
+ */
+	private void fill(int length) {
+		int n, drop;
+
+		while (!end && offset + count < length) {
+			if (count == buffer.length) {
+				if ((drop = Math.min(count, released - offset)) > 0) {
+					System.arraycopy(buffer, drop, buffer, 0, count - drop);
+					offset += drop;
+					count -= drop;
+				}
+				if (count == buffer.length)
+					buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, buffer.length * 2L));
+			}
+			try {
+				if ((n = reader.read(buffer, count, buffer.length - count)) < 0)
+					end = true;
+				else
+					count += n;
+			} catch (IOException err) {
+				error = err;
+				end = true;
+			}
+		}
+	}
+
+}
@@ -34,6 +34,7 @@ import java.util.Locale;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
@@ -47,6 +48,7 @@ import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.KeyStroke;
 import javax.swing.SpinnerListModel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
@@ -71,12 +73,16 @@ public class CvtrWindow extends JFrame
 	public CvtrPrefs userPrefs = null;
 /** The result modification window class */
 	private CvtrModifyResult modResult = null;
+	// The equation of the last calculation, which may be displayed in another format
+	private String resultEquation = null;
 /** The customization window class */
 	private CvtrCustom customData = null;
 /** The data import window class */
 	private CvtrImport importData = null;
 /** The message display class */
 	private CvtrMessages cvtrMessages = null;
+/** The data file watcher, which loads changed data files */
+	private CvtrReload cvtrReload = null;
 	
 	// Information for performing undo on the equation text
 	private CvtrHistory historyAction;
@@ -100,7 +106,9 @@ public class CvtrWindow extends JFrame
 	private JComboBox cbOperators = null;	
 	private JButton bUnit = null;
 	public JComboBox cbUnits = null;
-	public JComboBox cbCategories = null;
+	public JComboBox <Object> cbCategories = null;
+	private JMenu menuConstants = null;
+	private JMenu menuEquations = null;
 	private JButton bBase = null;
 	public JComboBox cbBases = null;
 	private JSpinner spPrecision = null;
@@ -160,6 +168,14 @@ public class CvtrWindow extends JFrame
 			cvtrMessages.errorDialog("ERROR", "Failed to create Convertator calulating engine:\n  " + err.getMessage());
 			System.exit(-1);
 		}
+		// Load data files saved by Custom or Import without a restart
+		try {
+			cvtrReload = new CvtrReload(cvtrEngine.getCatalog());
+			cvtrReload.addListener(cc -> SwingUtilities.invokeLater(() -> setCatalog(cc)));
+			cvtrReload.start();
+		} catch (IllegalArgumentException err) {
+			cvtrMessages.infoDialog("WARNING", err.getMessage());
+		}
 		// Set the messages file handler for help dialogs
 		cvtrMessages.cvtrFile = cvtrFile;
 		userPrefs = new CvtrPrefs(this);
@@ -228,18 +244,23 @@ public class CvtrWindow extends JFrame
 			public void actionPerformed(ActionEvent e) { clearER(); } });
 		menu.add(menuItem);
 
+		menuItem = new JMenuItem("Result in All Units", KeyEvent.VK_R);
+		menuItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) { showResultTable(); } });
+		menu.add(menuItem);
+
 //		menuItem = new JMenuItem("Preferences", KeyEvent.VK_P);
 //		menuItem.addActionListener(new ActionListener() {
 //			public void actionPerformed(ActionEvent e) { editPreferences(); } });
 //		menu.add(menuItem);
 
-		menu = new JMenu("Constants");
-		menuBar.add(menu);
-		buildTree(menu, "C");
+		menuConstants = new JMenu("Constants");
+		menuBar.add(menuConstants);
+		buildTree(menuConstants, "C");
 		
-		menu = new JMenu("Equations");
-		menuBar.add(menu);
-		buildTree(menu, "E");
+		menuEquations = new JMenu("Equations");
+		menuBar.add(menuEquations);
+		buildTree(menuEquations, "E");
 
 		menu = new JMenu("Help");
 		menu.setMnemonic(KeyEvent.VK_H);
@@ -568,7 +589,7 @@ System.out.println("Update Prefs");
 		JLabel lType = new JLabel("Type", JLabel.CENTER);
 		c.weightx = 0.08; c.gridwidth = 1; c.gridx = 0; c.gridy = 4;
 		gbLayout.setConstraints(lType, c); cvtrWindow.add(lType);
-		cbCategories = new JComboBox(cvtrEngine.UnitCategories.toArray());
+		cbCategories = new JComboBox<Object>(cvtrEngine.UnitCategories.toArray());
 		c.weightx = 0.16; c.gridwidth = 2; c.gridx = 1; c.gridy = 4;
 		gbLayout.setConstraints(cbCategories, c); cvtrWindow.add(cbCategories);
 		cbCategories.addActionListener(new ActionListener() {
@@ -888,7 +909,7 @@ System.out.println("Update Prefs");
 			return;
 
 		uName = cbUnits.getSelectedItem().toString();
-			insertEquationData(cvtrEngine.getUnitAbbrev(uName));
+			insertEquationData(CvtrEngine.getUnitAbbrev(uName));
 	}
 
 /**
@@ -908,6 +929,30 @@ System.out.println("Update Prefs");
 		repaint();
 	}
 
+/**
+ * Use a new catalog of Units, Constants and Equations after the data files change.
+ * The unit categories and the Constants and Equations menus are rebuilt.
+ * 
+ * @param cc	The new catalog.
+ */
+	private void setCatalog(CvtrCatalog cc) {
+		Object category = cbCategories.getSelectedItem();
+
+		cvtrEngine.setCatalog(cc);
+		// The result units refer to the previous categories
+		equationResult = null;
+		autoSelect = true;
+		cbCategories.setModel(new DefaultComboBoxModel<Object>(cc.UnitCategories.toArray()));
+		if (category != null && cc.UnitCategories.contains(category))
+			cbCategories.setSelectedItem(category);
+		autoSelect = false;
+		setCategory();
+		menuConstants.removeAll();
+		buildTree(menuConstants, "C");
+		menuEquations.removeAll();
+		buildTree(menuEquations, "E");
+	}
+
 /**
  * Set the selected operator in the equation field.
  */
@@ -1080,12 +1125,29 @@ System.out.println("Update Prefs");
 
 	}
 
+/**
+ * Display the last result in every unit of its categories and in each numeric base.
+ */
+	private void showResultTable() {
+		String table = "";
+		String[][] rows;
+
+		if ((rows = cvtrEngine.getResultTable()) == null) {
+			txResult.setText("?? Result");
+			return;
+		}
+		for (String[] row : rows)
+			table += row[0] + ":  " + row[1].trim() + "\n";
+		cvtrMessages.helpStringDialog("Result: " + resultEquation, table);
+	}
+
 /**
  * Get modifications to the result.
  */
 	private void updateResult() {
 		modResult.finishEvent();
 		modResult = null;
+		// The equation is not calculated again unless it was changed
 		eqEvent();
 	}
 
@@ -1175,14 +1237,18 @@ System.out.println("Update Prefs");
 			repaint();
 			return;
 		}
-		if ((equationResult == null ||
-				!txEquation.getText().equals(cbEquation.getItemAt(cbEquation.getSelectedIndex()))) &&
+		// If the equation has not changed, the last calculation is displayed in the new format
+		if ((equationResult == null || cvtrEngine.getFinal() == null ||
+				!(txEquation.getText().equals(cbEquation.getItemAt(cbEquation.getSelectedIndex())) ||
+				txEquation.getText().equals(resultEquation))) &&
 				cvtrEngine.calculate(txEquation.getText(), 0) < 0) {
 if (verbose)
 System.out.println("Error: " + cvtrEngine.getCalcError());
 			txResult.setText(cvtrEngine.getCalcError());
 			equationResult = null;
+			resultEquation = null;
 		} else {
+			resultEquation = txEquation.getText();
 			// Set format of result
 			if (equationResult == null) {
 				equationResult = new CvtrResult[cvtrEngine.EquationResult.length];